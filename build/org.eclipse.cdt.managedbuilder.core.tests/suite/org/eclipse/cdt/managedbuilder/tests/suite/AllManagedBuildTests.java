@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2004, 2011 IBM Corporation and others.
+ *  Copyright (c) 2004, 2013 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -21,6 +21,7 @@ import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.dom.IPDOMManager;
 import org.eclipse.cdt.managedbuilder.core.regressions.RegressionTests;
 import org.eclipse.cdt.managedbuilder.core.tests.BuildDescriptionModelTests;
+import org.eclipse.cdt.managedbuilder.core.tests.BuildStepCacheTests;
 import org.eclipse.cdt.managedbuilder.core.tests.BuildSystem40Tests;
 import org.eclipse.cdt.managedbuilder.core.tests.ManagedBuildCoreTests;
 import org.eclipse.cdt.managedbuilder.core.tests.ManagedBuildCoreTests20;
@@ -37,7 +38,9 @@ import org.eclipse.cdt.managedbuilder.core.tests.ManagedProjectUpdateTests;
 import org.eclipse.cdt.managedbuilder.core.tests.MultiVersionSupportTests;
 import org.eclipse.cdt.managedbuilder.core.tests.OptionCategoryEnablementTests;
 import org.eclipse.cdt.managedbuilder.core.tests.OptionEnablementTests;
+import org.eclipse.cdt.managedbuilder.core.tests.ParallelBuilderTests;
 import org.eclipse.cdt.managedbuilder.core.tests.PathConverterTest;
+import org.eclipse.cdt.managedbuilder.core.tests.ProcessLauncherTests;
 import org.eclipse.cdt.managedbuilder.core.tests.ResourceBuildCoreTests;
 import org.eclipse.cdt.managedbuilder.language.settings.providers.tests.AllLanguageSettingsProvidersMBSTests;
 import org.eclipse.cdt.managedbuilder.templateengine.tests.AllTemplateEngineTests;
@@ -88,6 +91,9 @@ public class AllManagedBuildTests {
 		suite.addTest(ManagedBuildDependencyCalculatorTests.suite());
 		suite.addTest(BuildDescriptionModelTests.suite());
 		suite.addTest(PathConverterTest.suite());
+		suite.addTest(ProcessLauncherTests.suite());
+		suite.addTest(BuildStepCacheTests.suite());
+		suite.addTest(ParallelBuilderTests.suite());
 
 		// managedbuilder.templateengine.tests
 		suite.addTest(AllTemplateEngineTests.suite());
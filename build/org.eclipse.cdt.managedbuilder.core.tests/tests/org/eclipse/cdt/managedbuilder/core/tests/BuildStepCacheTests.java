@@ -0,0 +1,293 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.core.tests;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildCommand;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildDescription;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildIOType;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildResource;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildStep;
+import org.eclipse.cdt.managedbuilder.internal.buildmodel.BuildCommand;
+import org.eclipse.cdt.managedbuilder.internal.buildmodel.BuildStepCache;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Tests the keys, hits and eviction of the cache of build step outputs.
+ */
+public class BuildStepCacheTests extends TestCase {
+	private File fDir;
+	private File fProgram;
+	private File fSource;
+	private File fHeader;
+	private File fObject;
+
+	public static Test suite() {
+		return new TestSuite(BuildStepCacheTests.class);
+	}
+
+	private static class Resource implements IBuildResource {
+		private final File fFile;
+
+		Resource(File file) {
+			fFile = file;
+		}
+		public IPath getLocation() {
+			return new Path(fFile.getAbsolutePath());
+		}
+		public IPath getFullPath() {
+			return null;
+		}
+		public URI getLocationURI() {
+			return fFile.toURI();
+		}
+		public IBuildIOType getProducerIOType() {
+			return null;
+		}
+		public IBuildIOType[] getDependentIOTypes() {
+			return new IBuildIOType[0];
+		}
+		public IBuildStep getProducerStep() {
+			return null;
+		}
+		public IBuildStep[] getDependentSteps() {
+			return new IBuildStep[0];
+		}
+		public boolean needsRebuild() {
+			return true;
+		}
+		public boolean isProjectResource() {
+			return false;
+		}
+		public boolean isRemoved() {
+			return false;
+		}
+		public IBuildDescription getBuildDescription() {
+			return null;
+		}
+	}
+
+	private static class Step implements IBuildStep {
+		private final IBuildResource[] fInputs;
+		private final IBuildResource[] fOutputs;
+
+		Step(File[] inputs, File[] outputs) {
+			fInputs = toResources(inputs);
+			fOutputs = toResources(outputs);
+		}
+		private static IBuildResource[] toResources(File[] files) {
+			IBuildResource[] result = new IBuildResource[files.length];
+			for (int i = 0; i < files.length; i++) {
+				result[i] = new Resource(files[i]);
+			}
+			return result;
+		}
+		public IBuildIOType[] getInputIOTypes() {
+			return new IBuildIOType[0];
+		}
+		public IBuildIOType[] getOutputIOTypes() {
+			return new IBuildIOType[0];
+		}
+		public boolean needsRebuild() {
+			return true;
+		}
+		public IBuildResource[] getInputResources() {
+			return fInputs;
+		}
+		public IBuildResource[] getOutputResources() {
+			return fOutputs;
+		}
+		public boolean isRemoved() {
+			return false;
+		}
+		public IBuildDescription getBuildDescription() {
+			return null;
+		}
+		@SuppressWarnings("rawtypes")
+		public IBuildCommand[] getCommands(IPath cwd, Map inStepMap, Map outStepMap, boolean resolveAll) {
+			return null;
+		}
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fDir = File.createTempFile("buildStepCache", "");
+		fDir.delete();
+		assertTrue(fDir.mkdirs());
+		fProgram = write("cc", "compiler");
+		fSource = write("a.c", "#include \"a.h\"\nint a = A;\n");
+		fHeader = write("a.h", "#define A 1\n");
+		fObject = write("a.o", "");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		delete(fDir);
+	}
+
+	private File write(String name, String contents) throws IOException {
+		File file = new File(fDir, name);
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(contents.getBytes());
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	private static String read(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] bytes = new byte[(int) file.length()];
+			int n = 0;
+			while (n < bytes.length) {
+				int read = in.read(bytes, n, bytes.length - n);
+				if (read < 0)
+					break;
+				n += read;
+			}
+			return new String(bytes, 0, n);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private BuildStepCache createCache(long maxSize) {
+		return new BuildStepCache(new File(fDir, "cache"), maxSize);
+	}
+
+	/** A compile step whose inputs include its calculated dependencies */
+	private IBuildStep compileStep() {
+		return new Step(new File[] { fSource, fHeader }, new File[] { fObject });
+	}
+
+	private IBuildCommand[] compile(String arg, Map<String, String> env) {
+		String[] args = { arg, "-c", fSource.getAbsolutePath(), "-o", fObject.getAbsolutePath() };
+		return new IBuildCommand[] { new BuildCommand(new Path(fProgram.getAbsolutePath()), args, env,
+				new Path(fDir.getAbsolutePath()), null) };
+	}
+
+	private IBuildCommand[] compile() {
+		return compile("-O2", new HashMap<String, String>());
+	}
+
+	private String key(BuildStepCache cache) {
+		String key = cache.computeKey(compileStep(), compile(), true);
+		assertNotNull(key);
+		return key;
+	}
+
+	public void testKeyIsStable() throws Exception {
+		BuildStepCache cache = createCache(1024);
+		assertEquals(key(cache), key(cache));
+	}
+
+	public void testKeyChangesWithArguments() throws Exception {
+		BuildStepCache cache = createCache(1024);
+		String key = key(cache);
+		assertFalse(key.equals(cache.computeKey(compileStep(), compile("-O0", new HashMap<String, String>()), true)));
+	}
+
+	public void testKeyChangesWithEnvironment() throws Exception {
+		BuildStepCache cache = createCache(1024);
+		String key = key(cache);
+		Map<String, String> env = new HashMap<String, String>();
+		env.put("LANG", "C");
+		assertFalse(key.equals(cache.computeKey(compileStep(), compile("-O2", env), true)));
+	}
+
+	public void testKeyChangesWithInputContents() throws Exception {
+		BuildStepCache cache = createCache(1024);
+		String key = key(cache);
+		write("a.c", "#include \"a.h\"\nint a = A + 1;\n");
+		assertFalse(key.equals(key(cache)));
+	}
+
+	public void testKeyChangesWithDependencyContents() throws Exception {
+		BuildStepCache cache = createCache(1024);
+		String key = key(cache);
+		write("a.h", "#define A 2\n");
+		assertFalse(key.equals(key(cache)));
+	}
+
+	public void testNoKeyWithoutCalculatedDependencies() throws Exception {
+		BuildStepCache cache = createCache(1024);
+		// Without the dependencies a changed header would not change the key.
+		assertNull(cache.computeKey(compileStep(), compile(), false));
+		// Steps which are not part of a build description have no calculated dependencies.
+		assertNull(cache.computeKey(compileStep(), compile()));
+	}
+
+	public void testHitRestoresOutputs() throws Exception {
+		BuildStepCache cache = createCache(1024);
+		String key = key(cache);
+		assertFalse(cache.restore(key, compileStep()));
+		assertEquals(1, cache.getMisses());
+
+		write("a.o", "object code");
+		cache.store(key, compileStep());
+		assertTrue(fObject.delete());
+
+		assertTrue(cache.restore(key, compileStep()));
+		assertEquals(1, cache.getHits());
+		assertEquals("object code", read(fObject));
+
+		// The index of the cache is read from its directory by a new session.
+		assertTrue(fObject.delete());
+		BuildStepCache next = createCache(1024);
+		assertTrue(next.restore(key, compileStep()));
+		assertEquals("object code", read(fObject));
+	}
+
+	public void testEvictionRespectsSizeLimit() throws Exception {
+		// Room for two entries of 100 bytes.
+		BuildStepCache cache = createCache(250);
+		String object = new String(new char[100]).replace('\0', 'x');
+		write("a.o", object);
+		cache.store("a", compileStep());
+		cache.store("b", compileStep());
+		// Makes b the least recently used entry.
+		assertTrue(cache.restore("a", compileStep()));
+
+		cache.store("c", compileStep());
+		String[] entries = new File(fDir, "cache").list();
+		assertEquals(2, entries.length);
+		assertFalse(cache.restore("b", compileStep()));
+		assertTrue(cache.restore("a", compileStep()));
+		assertTrue(cache.restore("c", compileStep()));
+		assertEquals(object, read(fObject));
+	}
+}
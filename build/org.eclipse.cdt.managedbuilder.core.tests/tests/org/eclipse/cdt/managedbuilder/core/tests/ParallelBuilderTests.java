@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.core.tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildCommand;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildDescription;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildIOType;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildResource;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildStep;
+import org.eclipse.cdt.managedbuilder.core.IConfiguration;
+import org.eclipse.cdt.managedbuilder.internal.buildmodel.BuildCommand;
+import org.eclipse.cdt.managedbuilder.internal.buildmodel.BuildProcessManager;
+import org.eclipse.cdt.managedbuilder.internal.buildmodel.GenDirInfo;
+import org.eclipse.cdt.managedbuilder.internal.buildmodel.ParallelBuilder;
+import org.eclipse.cdt.managedbuilder.internal.buildmodel.ProcessLauncher;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Platform;
+
+/**
+ * Tests the order in which the parallel internal builder starts the steps of a build.
+ */
+public class ParallelBuilderTests extends TestCase {
+	/** Long enough for a build to stall noticeably if it is not woken up by an exiting process */
+	private static final long WAIT_TIMEOUT = 10000;
+
+	private static final IPath CWD = new Path(System.getProperty("java.io.tmpdir"));
+
+	private final Description fDescription = new Description();
+	private final List<Step> fStarted = new ArrayList<Step>();
+	private final Map<IBuildCommand, ProcessLauncher> fLaunchers = new HashMap<IBuildCommand, ProcessLauncher>();
+
+	public static Test suite() {
+		return new TestSuite(ParallelBuilderTests.class);
+	}
+
+	private class Resource implements IBuildResource {
+		private final IBuildStep fProducer;
+		private final List<IBuildStep> fDependents = new ArrayList<IBuildStep>();
+
+		Resource(IBuildStep producer) {
+			fProducer = producer;
+		}
+		public IPath getLocation() {
+			return null;
+		}
+		public IPath getFullPath() {
+			return null;
+		}
+		public URI getLocationURI() {
+			return null;
+		}
+		public IBuildIOType getProducerIOType() {
+			return null;
+		}
+		public IBuildIOType[] getDependentIOTypes() {
+			return new IBuildIOType[0];
+		}
+		public IBuildStep getProducerStep() {
+			return fProducer;
+		}
+		public IBuildStep[] getDependentSteps() {
+			return fDependents.toArray(new IBuildStep[fDependents.size()]);
+		}
+		public boolean needsRebuild() {
+			return true;
+		}
+		public boolean isProjectResource() {
+			return false;
+		}
+		public boolean isRemoved() {
+			return false;
+		}
+		public IBuildDescription getBuildDescription() {
+			return fDescription;
+		}
+	}
+
+	private class Step implements IBuildStep {
+		private final String fName;
+		private final Resource fOutput = new Resource(this);
+		private final IBuildResource[] fInputs;
+		private final IBuildCommand fCommand;
+		/** Whether the processes of all steps this one depends on had exited when it was started */
+		boolean fInputsDoneWhenStarted;
+
+		/**
+		 * Creates a step that depends on the outputs of the given ones
+		 */
+		Step(String name, Step... inputs) {
+			fName = name;
+			fInputs = new IBuildResource[inputs.length];
+			for (int i = 0; i < inputs.length; i++) {
+				fInputs[i] = inputs[i].fOutput;
+				inputs[i].fOutput.fDependents.add(this);
+			}
+			Path cmd;
+			String[] args;
+			if (Platform.getOS().equals(Platform.OS_WIN32)) {
+				cmd = new Path("cmd");
+				args = new String[] { "/c", "exit 0" };
+			} else {
+				cmd = new Path("sh");
+				args = new String[] { "-c", "exit 0" };
+			}
+			fCommand = new BuildCommand(cmd, args, null, CWD, null);
+		}
+		public IBuildIOType[] getInputIOTypes() {
+			return new IBuildIOType[0];
+		}
+		public IBuildIOType[] getOutputIOTypes() {
+			return new IBuildIOType[0];
+		}
+		public boolean needsRebuild() {
+			return true;
+		}
+		public IBuildResource[] getInputResources() {
+			return fInputs;
+		}
+		public IBuildResource[] getOutputResources() {
+			return new IBuildResource[] { fOutput };
+		}
+		public boolean isRemoved() {
+			return false;
+		}
+		public IBuildDescription getBuildDescription() {
+			return fDescription;
+		}
+		/** Called by the builder when the step is started */
+		@SuppressWarnings("rawtypes")
+		public IBuildCommand[] getCommands(IPath cwd, Map inStepMap, Map outStepMap, boolean resolveAll) {
+			fStarted.add(this);
+			fInputsDoneWhenStarted = true;
+			for (IBuildResource input : fInputs) {
+				IBuildStep producer = input.getProducerStep();
+				if (producer instanceof Step) {
+					ProcessLauncher launcher = fLaunchers.get(((Step) producer).fCommand);
+					if (launcher == null || launcher.queryState() != ProcessLauncher.STATE_DONE)
+						fInputsDoneWhenStarted = false;
+				}
+			}
+			return new IBuildCommand[] { fCommand };
+		}
+		@Override
+		public String toString() {
+			return fName;
+		}
+	}
+
+	private class Description implements IBuildDescription {
+		final Step fInputStep = new Step("input");
+		final Step fOutputStep = new Step("output");
+
+		public IBuildStep getInputStep() {
+			return fInputStep;
+		}
+		public IBuildStep getOutputStep() {
+			return fOutputStep;
+		}
+		public IBuildResource getBuildResource(IPath location) {
+			return null;
+		}
+		public IBuildResource getBuildResource(IResource resource) {
+			return null;
+		}
+		public IBuildResource[] getResources() {
+			return new IBuildResource[0];
+		}
+		public IBuildStep[] getSteps() {
+			return new IBuildStep[0];
+		}
+		public IConfiguration getConfiguration() {
+			return null;
+		}
+		public IPath getDefaultBuildDirLocation() {
+			return CWD;
+		}
+		public URI getDefaultBuildDirLocationURI() {
+			return null;
+		}
+		public IPath getDefaultBuildDirFullPath() {
+			return null;
+		}
+	}
+
+	/**
+	 * Records the launched processes and waits for them to exit far longer than the builder does.
+	 */
+	private class ProcessManager extends BuildProcessManager {
+		ProcessManager(int processes) {
+			super(new ByteArrayOutputStream(), new ByteArrayOutputStream(), false, processes);
+		}
+
+		@Override
+		public ProcessLauncher launchProcess(IBuildCommand cmd, IPath cwd, IProgressMonitor monitor) {
+			ProcessLauncher launcher = super.launchProcess(cmd, cwd, monitor);
+			if (launcher != null)
+				fLaunchers.put(cmd, launcher);
+			return launcher;
+		}
+
+		@Override
+		public void waitForProcessExit(long timeout) {
+			super.waitForProcessExit(WAIT_TIMEOUT);
+		}
+	}
+
+	private static class Builder extends ParallelBuilder {
+		Builder(OutputStream out) {
+			super(CWD, new GenDirInfo(ResourcesPlugin.getWorkspace().getRoot().getProject("parallelBuilderTests")),
+					out, out, new NullProgressMonitor(), false, false);
+		}
+
+		int build(IBuildDescription des, BuildProcessManager mgr) {
+			enqueueAll(des);
+			sortQueue();
+			return dispatch(mgr);
+		}
+	}
+
+	private int build(int processes) {
+		return new Builder(new ByteArrayOutputStream()).build(fDescription, new ProcessManager(processes));
+	}
+
+	public void testLongestChainIsStartedFirst() throws Exception {
+		Step input = fDescription.fInputStep;
+		Step a = new Step("a", input);
+		Step b = new Step("b", input);
+		Step c = new Step("c", b);
+		Step d = new Step("d", c);
+		Step e = new Step("e", input);
+		Step f = new Step("f", e);
+
+		assertEquals(ParallelBuilder.STATUS_OK, build(1));
+		// Of the ready steps the one heading the longest chain is started first.
+		assertEquals(Arrays.asList(b, e, a, c, f, d), fStarted);
+	}
+
+	public void testWaitingStepIsStartedOnExit() throws Exception {
+		Step input = fDescription.fInputStep;
+		Step first = new Step("first", input);
+		Step second = new Step("second", first);
+
+		long start = System.currentTimeMillis();
+		assertEquals(ParallelBuilder.STATUS_OK, build(2));
+		// Without the notification the builder would wait for the full timeout.
+		assertTrue(System.currentTimeMillis() - start < WAIT_TIMEOUT);
+		assertEquals(Arrays.asList(first, second), fStarted);
+		assertTrue(second.fInputsDoneWhenStarted);
+	}
+}
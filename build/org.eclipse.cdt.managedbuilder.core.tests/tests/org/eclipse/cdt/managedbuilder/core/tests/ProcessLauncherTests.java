@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.core.tests;
+
+import java.io.ByteArrayOutputStream;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.cdt.managedbuilder.internal.buildmodel.ProcessLauncher;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Platform;
+
+/**
+ * Tests the exit code reported by the process launcher of the internal builder.
+ */
+public class ProcessLauncherTests extends TestCase {
+
+	public static Test suite() {
+		return new TestSuite(ProcessLauncherTests.class);
+	}
+
+	private ProcessLauncher launch(int exitCode, final Object exitLock, final boolean[] exited) {
+		Path cmd;
+		String[] args;
+		if (Platform.getOS().equals(Platform.OS_WIN32)) {
+			cmd = new Path("cmd");
+			args = new String[] { "/c", "exit " + exitCode };
+		} else {
+			cmd = new Path("sh");
+			args = new String[] { "-c", "exit " + exitCode };
+		}
+		ProcessLauncher launcher = new ProcessLauncher(cmd, args, null, new Path(System.getProperty("java.io.tmpdir")),
+				new ByteArrayOutputStream(), new ByteArrayOutputStream(), new NullProgressMonitor(), false);
+		launcher.setExitHandler(new Runnable() {
+			public void run() {
+				synchronized (exitLock) {
+					exited[0] = true;
+					exitLock.notifyAll();
+				}
+			}
+		});
+		launcher.launch();
+		return launcher;
+	}
+
+	private int waitForExitCode(int expected) throws Exception {
+		Object exitLock = new Object();
+		boolean[] exited = { false };
+		ProcessLauncher launcher = launch(expected, exitLock, exited);
+		synchronized (exitLock) {
+			long end = System.currentTimeMillis() + 10000;
+			while (!exited[0] && System.currentTimeMillis() < end) {
+				exitLock.wait(100);
+			}
+		}
+		assertTrue(exited[0]);
+		// The parallel builder asks for the exit code as soon as the launcher is done,
+		// the reader threads may still be running the exit handler at that point.
+		assertEquals(ProcessLauncher.STATE_DONE, launcher.queryState());
+		return launcher.getExitCode();
+	}
+
+	public void testSuccessfulStep() throws Exception {
+		assertEquals(0, waitForExitCode(0));
+	}
+
+	public void testFailingStep() throws Exception {
+		assertEquals(3, waitForExitCode(3));
+	}
+}
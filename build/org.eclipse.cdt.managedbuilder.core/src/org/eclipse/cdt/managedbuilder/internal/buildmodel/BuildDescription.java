@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2011 Intel Corporation and others.
+ * Copyright (c) 2006, 2013 Intel Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -1668,16 +1668,21 @@ public class BuildDescription implements IBuildDescription {
 	private void calculateDeps(BuildStep step){
 		BuildResource rcs[] = (BuildResource[])step.getInputResources();
 		Set<IPath> depSet = new HashSet<IPath>();
+		// An empty result cannot be told apart from a file that is not indexed yet.
+		boolean calculated = rcs.length > 0;
 
 		for (BuildResource rc : rcs) {
 			IManagedDependencyCalculator depCalc = getDependencyCalculator(step, rc);
-			if(depCalc != null){
-				IPath paths[] = depCalc.getDependencies();
+			IPath paths[] = depCalc != null ? depCalc.getDependencies() : null;
+			if(paths != null && paths.length > 0){
 				for (IPath path : paths) {
 					depSet.add(path);
 				}
+			} else {
+				calculated = false;
 			}
 		}
+		step.setDependenciesCalculated(calculated);
 
 		if(depSet.size() > 0){
 			BuildIOType ioType = step.createIOType(true, false, null);
@@ -33,6 +33,21 @@ public class BuildProcessManager {
 	protected Vector<ProcessLauncher> processes;
 	protected int maxProcesses;
 	
+	/**
+	 * Lock signalled whenever one of the launched processes terminates
+	 */
+	private final Object exitLock = new Object();
+	private boolean exitPending;
+	private final Runnable exitHandler = new Runnable() {
+		@Override
+		public void run() {
+			synchronized (exitLock) {
+				exitPending = true;
+				exitLock.notifyAll();
+			}
+		}
+	};
+	
 	/**
 	 * Initializes process manager
 	 * 
@@ -68,6 +83,7 @@ public class BuildProcessManager {
 		for (int i = 0; i < maxProcesses; i++) {
 			if (i >= processes.size()) {
 				ProcessLauncher process = new ProcessLauncher(cmd.getCommand(), cmd.getArgs(), mapToStringArray(cmd.getEnvironment()), cwd, out, err, monitor, show);
+				process.setExitHandler(exitHandler);
 				processes.add(process);
 				process.launch();
 				return process;
@@ -75,6 +91,7 @@ public class BuildProcessManager {
 			}
 			if (processes.get(i).queryState() == ProcessLauncher.STATE_DONE) {
 				ProcessLauncher process = new ProcessLauncher(cmd.getCommand(), cmd.getArgs(), mapToStringArray(cmd.getEnvironment()), cwd, out, err, monitor, show);
+				process.setExitHandler(exitHandler);
 				processes.set(i, process);
 				process.launch();
 				return process;
@@ -112,6 +129,25 @@ public class BuildProcessManager {
 		return false;
 	}
 
+	/**
+	 * Waits until one of the launched processes terminates, returns immediately
+	 * if a process has terminated since the last call. 
+	 * 
+	 * @param timeout Maximum time to wait in milliseconds
+	 */
+	public void waitForProcessExit(long timeout) {
+		synchronized (exitLock) {
+			if (!exitPending) {
+				try {
+					exitLock.wait(timeout);
+				} catch (InterruptedException e) {
+					// do nothing
+				}
+			}
+			exitPending = false;
+		}
+	}
+
 	/**
 	 * Returns maximum threads used up to that point
 	 */
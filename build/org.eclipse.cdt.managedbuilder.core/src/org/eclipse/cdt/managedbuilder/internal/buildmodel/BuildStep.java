@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2007 Intel Corporation and others.
+ * Copyright (c) 2006, 2013 Intel Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -56,6 +56,7 @@ public class BuildStep implements IBuildStep {
 	private IInputType fInputType;
 	private ITool fLibTool;
 	private boolean fAssignToCalculated;
+	private boolean fDependenciesCalculated;
 
 	protected BuildStep(BuildDescription des, ITool tool, IInputType inputType){
 		fTool = tool;
@@ -599,6 +600,18 @@ public class BuildStep implements IBuildStep {
 		return fLibTool;
 	}
 
+	/**
+	 * Returns whether the dependencies of every input of this step were calculated
+	 * and added to its inputs.
+	 */
+	public boolean dependenciesCalculated(){
+		return fDependenciesCalculated;
+	}
+
+	void setDependenciesCalculated(boolean calculated){
+		fDependenciesCalculated = calculated;
+	}
+
 	protected void performAsignToOption(IPath cwd){
 		if(fTool == null && !fAssignToCalculated)
 			return;
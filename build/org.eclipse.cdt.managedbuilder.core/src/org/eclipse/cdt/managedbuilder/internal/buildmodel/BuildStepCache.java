@@ -0,0 +1,386 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.managedbuilder.internal.buildmodel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildCommand;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildResource;
+import org.eclipse.cdt.managedbuilder.buildmodel.IBuildStep;
+import org.eclipse.cdt.utils.PathUtil;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Platform;
+
+/**
+ * Content addressed cache for the outputs of build steps. A step is identified by
+ * the hash of its command lines, environments and working directories, of the
+ * location, size and time stamp of the invoked programs and of the contents of all
+ * its input resources, which include the dependencies of the step. Steps whose
+ * dependencies were not calculated are not cached. On a hit the outputs are
+ * copied from the cache instead of running the commands.
+ * <p>
+ * The cache is enabled by setting the system property {@value #CACHE_DIR_PROPERTY}
+ * to a directory. Its size is limited by {@value #CACHE_SIZE_PROPERTY} (in megabytes),
+ * the least recently used entries are removed first.
+ *
+ * NOTE: This class is subject to change and discuss,
+ * and is currently available in experimental mode only
+ */
+public class BuildStepCache {
+	public static final String CACHE_DIR_PROPERTY = "org.eclipse.cdt.managedbuilder.core.buildStepCache"; //$NON-NLS-1$
+	public static final String CACHE_SIZE_PROPERTY = "org.eclipse.cdt.managedbuilder.core.buildStepCacheSize"; //$NON-NLS-1$
+	private static final long DEFAULT_CACHE_SIZE_MB = 1024;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final char[] HEX = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+	private static final String TMP_SUFFIX = ".tmp"; //$NON-NLS-1$
+
+	private static BuildStepCache fInstance;
+
+	private final File fCacheDir;
+	private final long fMaxSize;
+	private int fHits;
+	private int fMisses;
+	/** Sizes of the entries of the cache, from the least to the most recently used one */
+	private LinkedHashMap<String, Long> fEntries;
+	private long fTotalSize;
+
+	/**
+	 * Returns the build step cache, or <code>null</code> if it is not enabled.
+	 */
+	public static synchronized BuildStepCache getInstance() {
+		if (fInstance == null) {
+			String dir = System.getProperty(CACHE_DIR_PROPERTY);
+			if (dir == null || dir.length() == 0)
+				return null;
+			long maxSize = Long.getLong(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE_MB).longValue() * 1024 * 1024;
+			fInstance = new BuildStepCache(new File(dir), maxSize);
+		}
+		return fInstance;
+	}
+
+	public BuildStepCache(File cacheDir, long maxSize) {
+		fCacheDir = cacheDir;
+		fMaxSize = maxSize;
+	}
+
+	/**
+	 * Computes the key for the given step and its commands. Returns <code>null</code>
+	 * if the step cannot be cached, e.g. because one of its inputs or outputs is not
+	 * a local file, or because its dependencies were not calculated.
+	 */
+	public String computeKey(IBuildStep step, IBuildCommand[] cmds) {
+		boolean dependenciesCalculated = step instanceof BuildStep && ((BuildStep) step).dependenciesCalculated();
+		return computeKey(step, cmds, dependenciesCalculated);
+	}
+
+	/**
+	 * Computes the key for the given step and its commands. Without calculated
+	 * dependencies the inputs of the step do not include the headers it reads, so
+	 * a changed header would not change the key and <code>null</code> is returned.
+	 */
+	public String computeKey(IBuildStep step, IBuildCommand[] cmds, boolean dependenciesCalculated) {
+		IBuildResource[] outputs = step.getOutputResources();
+		if (!dependenciesCalculated || outputs.length == 0 || cmds == null || cmds.length == 0)
+			return null;
+		for (IBuildResource output : outputs) {
+			if (output.getLocation() == null)
+				return null;
+		}
+
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+			for (IBuildCommand cmd : cmds) {
+				File program = findProgram(cmd);
+				if (program == null)
+					return null;
+				update(digest, program.getAbsolutePath());
+				update(digest, String.valueOf(program.length()));
+				update(digest, String.valueOf(program.lastModified()));
+				for (String arg : cmd.getArgs()) {
+					update(digest, arg);
+				}
+				IPath cwd = cmd.getCWD();
+				update(digest, cwd != null ? cwd.toOSString() : ""); //$NON-NLS-1$
+				Map<String, String> env = cmd.getEnvironment();
+				if (env != null) {
+					// The order of variables does not matter.
+					String[] names = env.keySet().toArray(new String[env.size()]);
+					Arrays.sort(names);
+					for (String name : names) {
+						update(digest, name);
+						update(digest, String.valueOf(env.get(name)));
+					}
+				}
+			}
+			IBuildResource[] inputs = step.getInputResources();
+			String[] paths = new String[inputs.length];
+			for (int i = 0; i < inputs.length; i++) {
+				IPath location = inputs[i].getLocation();
+				if (location == null)
+					return null;
+				paths[i] = location.toOSString();
+			}
+			// The order of inputs does not matter.
+			Arrays.sort(paths);
+			byte[] buffer = new byte[BUFFER_SIZE];
+			for (String path : paths) {
+				File file = new File(path);
+				if (!file.isFile())
+					return null;
+				update(digest, path);
+				InputStream in = new FileInputStream(file);
+				try {
+					int n;
+					while ((n = in.read(buffer)) > 0) {
+						digest.update(buffer, 0, n);
+					}
+				} finally {
+					in.close();
+				}
+			}
+			return toHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			return null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the file of the program invoked by the command, or <code>null</code> if
+	 * it cannot be found. A program without a path is searched on the path of the
+	 * command's environment.
+	 */
+	private static File findProgram(IBuildCommand cmd) {
+		IPath command = cmd.getCommand();
+		if (command == null)
+			return null;
+		IPath location = null;
+		if (command.isAbsolute()) {
+			location = command;
+		} else if (command.segmentCount() > 1) {
+			IPath cwd = cmd.getCWD();
+			if (cwd != null)
+				location = cwd.append(command);
+		} else {
+			String path = null;
+			Map<String, String> env = cmd.getEnvironment();
+			if (env != null) {
+				boolean win32 = Platform.getOS().equals(Platform.OS_WIN32);
+				for (Map.Entry<String, String> var : env.entrySet()) {
+					String name = var.getKey();
+					if (win32 ? name.equalsIgnoreCase("PATH") : name.equals("PATH")) { //$NON-NLS-1$ //$NON-NLS-2$
+						path = var.getValue();
+						break;
+					}
+				}
+			}
+			location = PathUtil.findProgramLocation(command.toOSString(), path);
+		}
+		if (location == null)
+			return null;
+		File file = location.toFile();
+		return file.isFile() ? file : null;
+	}
+
+	/**
+	 * Copies the cached outputs for the given key to the locations of the outputs
+	 * of the step. Returns whether the outputs were restored.
+	 */
+	public synchronized boolean restore(String key, IBuildStep step) {
+		Map<String, Long> entries = getEntries();
+		File entry = new File(fCacheDir, key);
+		IBuildResource[] outputs = step.getOutputResources();
+		if (entries.get(key) != null) {
+			try {
+				for (int i = 0; i < outputs.length; i++) {
+					File cached = new File(entry, String.valueOf(i));
+					if (!cached.isFile())
+						throw new IOException();
+					copy(cached, outputs[i].getLocation().toFile());
+				}
+				// Keeps the order of use for the next session.
+				entry.setLastModified(System.currentTimeMillis());
+				fHits++;
+				return true;
+			} catch (IOException e) {
+				removeEntry(key);
+			}
+		}
+		fMisses++;
+		return false;
+	}
+
+	/**
+	 * Stores the outputs of a successfully built step under the given key.
+	 */
+	public synchronized void store(String key, IBuildStep step) {
+		getEntries();
+		File entry = new File(fCacheDir, key);
+		File tmp = new File(fCacheDir, key + TMP_SUFFIX);
+		IBuildResource[] outputs = step.getOutputResources();
+		long size = 0;
+		try {
+			delete(tmp);
+			if (!tmp.mkdirs())
+				return;
+			for (int i = 0; i < outputs.length; i++) {
+				File output = outputs[i].getLocation().toFile();
+				if (!output.isFile())
+					throw new IOException();
+				copy(output, new File(tmp, String.valueOf(i)));
+				size += output.length();
+			}
+			removeEntry(key);
+			if (!tmp.renameTo(entry))
+				throw new IOException();
+		} catch (IOException e) {
+			delete(tmp);
+			return;
+		}
+		fEntries.put(key, Long.valueOf(size));
+		fTotalSize += size;
+		evict();
+	}
+
+	public synchronized int getHits() {
+		return fHits;
+	}
+
+	public synchronized int getMisses() {
+		return fMisses;
+	}
+
+	/**
+	 * Returns the index of the entries of the cache, it is read from the cache
+	 * directory on first use. Entries which have been used on a previous session
+	 * are ordered by their time stamps.
+	 */
+	private Map<String, Long> getEntries() {
+		if (fEntries == null) {
+			fEntries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+			fTotalSize = 0;
+			File[] files = fCacheDir.listFiles();
+			if (files != null) {
+				final long[] lastModified = new long[files.length];
+				Integer[] order = new Integer[files.length];
+				for (int i = 0; i < files.length; i++) {
+					lastModified[i] = files[i].lastModified();
+					order[i] = Integer.valueOf(i);
+				}
+				Arrays.sort(order, new Comparator<Integer>() {
+					@Override
+					public int compare(Integer a, Integer b) {
+						long ma = lastModified[a.intValue()];
+						long mb = lastModified[b.intValue()];
+						return ma < mb ? -1 : (ma > mb ? 1 : 0);
+					}
+				});
+				for (Integer idx : order) {
+					File file = files[idx.intValue()];
+					if (file.getName().endsWith(TMP_SUFFIX)) {
+						// Left over from an interrupted store.
+						delete(file);
+					} else if (file.isDirectory()) {
+						long size = size(file);
+						fEntries.put(file.getName(), Long.valueOf(size));
+						fTotalSize += size;
+					}
+				}
+			}
+		}
+		return fEntries;
+	}
+
+	private void removeEntry(String key) {
+		Long size = fEntries.remove(key);
+		if (size != null)
+			fTotalSize -= size.longValue();
+		delete(new File(fCacheDir, key));
+	}
+
+	/**
+	 * Removes the least recently used entries until the cache fits into its size limit.
+	 */
+	private void evict() {
+		for (Iterator<Map.Entry<String, Long>> it = fEntries.entrySet().iterator(); it.hasNext() && fTotalSize > fMaxSize;) {
+			Map.Entry<String, Long> entry = it.next();
+			it.remove();
+			fTotalSize -= entry.getValue().longValue();
+			delete(new File(fCacheDir, entry.getKey()));
+		}
+	}
+
+	private static long size(File file) {
+		File[] children = file.listFiles();
+		if (children == null)
+			return file.length();
+		long size = 0;
+		for (File child : children) {
+			size += size(child);
+		}
+		return size;
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private static void copy(File from, File to) throws IOException {
+		InputStream in = new FileInputStream(from);
+		try {
+			OutputStream out = new FileOutputStream(to);
+			try {
+				byte[] buffer = new byte[BUFFER_SIZE];
+				int n;
+				while ((n = in.read(buffer)) > 0) {
+					out.write(buffer, 0, n);
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void update(MessageDigest digest, String str) {
+		digest.update(str.getBytes());
+		digest.update((byte) 0);
+	}
+
+	private static String toHex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+			chars[2 * i + 1] = HEX[bytes[i] & 0xf];
+		}
+		return new String(chars);
+	}
+}
@@ -41,6 +41,7 @@ import org.eclipse.core.runtime.SubProgressMonitor;
 public class DescriptionBuilder implements IBuildModelBuilder {
 	private static final String BUILDER_MSG_HEADER = "InternalBuilder.msg.header"; //$NON-NLS-1$
 	private static final String BUILDER_NOTHING_TODO = "InternalBuilder.nothing.todo"; //$NON-NLS-1$
+	private static final String BUILDER_CACHE_STATISTICS = "InternalBuilder.cache.statistics"; //$NON-NLS-1$
 	private static final String LINE_SEPARATOR = System.getProperty("line.separator", "\n"); //$NON-NLS-1$ //$NON-NLS-2$
 
 
@@ -155,6 +156,9 @@ public class DescriptionBuilder implements IBuildModelBuilder {
 		monitor.subTask("");	//$NON-NLS-1$
 
 		if(num > 0){
+			BuildStepCache cache = BuildStepCache.getInstance();
+			int hits = cache != null ? cache.getHits() : 0;
+			int misses = cache != null ? cache.getMisses() : 0;
 			BuildStepVisitor visitor = new BuildStepVisitor(out, err, monitor);
 			try {
 				BuildDescriptionManager.accept(visitor,
@@ -165,6 +169,13 @@ public class DescriptionBuilder implements IBuildModelBuilder {
 
 			if(status == STATUS_OK)
 				status = visitor.fStatus;
+
+			if(cache != null){
+				printMessage(
+						ManagedMakeMessages.getFormattedString(BUILDER_CACHE_STATISTICS,
+								new String[] {String.valueOf(cache.getHits() - hits), String.valueOf(cache.getMisses() - misses)}),
+						out);
+			}
 		} else {
 			printMessage(
 					ManagedMakeMessages.getFormattedString(BUILDER_NOTHING_TODO,
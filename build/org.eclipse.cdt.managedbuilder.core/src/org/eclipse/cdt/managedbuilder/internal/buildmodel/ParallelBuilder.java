@@ -69,6 +69,7 @@ public class ParallelBuilder {
 	protected class BuildQueueElement implements Comparable<BuildQueueElement> {
 		protected IBuildStep step;
 		protected int level;
+		protected int chainLength;
 		
 		public BuildQueueElement(IBuildStep _step, int _level) {
 			step = _step;
@@ -87,6 +88,14 @@ public class ParallelBuilder {
 			level = _level;
 		}
 		
+		/**
+		 * Returns the number of steps in the longest chain of steps depending on this one,
+		 * including this step
+		 */
+		public int getChainLength() {
+			return chainLength;
+		}
+		
 		@Override
 		public int hashCode() {
 			return step.hashCode();
@@ -101,6 +110,11 @@ public class ParallelBuilder {
 				return -1;
 			if (elem.getLevel() < level)
 				return 1;
+			// Within a level start the steps heading the longest chains first
+			if (elem.getChainLength() > chainLength)
+				return 1;
+			if (elem.getChainLength() < chainLength)
+				return -1;
 			return 0;
 		}
 
@@ -247,7 +261,9 @@ public class ParallelBuilder {
 	 * Sorts the queue
 	 */
 	protected void sortQueue() {
+		HashMap<IBuildStep, Integer> chainLengths = new HashMap<IBuildStep, Integer>();
 		for (BuildQueueElement elem : unsorted) {
+			elem.chainLength = computeChainLength(elem.getStep(), chainLengths);
 			queue.add(elem);
 		}
 		unsorted.clear();
@@ -258,6 +274,29 @@ public class ParallelBuilder {
 		Collections.sort(queue);
 	}
 
+	/**
+	 * Computes the number of enqueued steps in the longest chain of steps starting
+	 * with the given one
+	 */
+	private int computeChainLength(IBuildStep step, HashMap<IBuildStep, Integer> chainLengths) {
+		Integer known = chainLengths.get(step);
+		if (known != null)
+			return known.intValue();
+		
+		// Guard against cycles
+		chainLengths.put(step, Integer.valueOf(0));
+		int max = 0;
+		for (IBuildResource rc : step.getOutputResources()) {
+			for (IBuildStep dependent : rc.getDependentSteps()) {
+				if (dependent != null && dependent != step)
+					max = Math.max(max, computeChainLength(dependent, chainLengths));
+			}
+		}
+		int length = queueHash.containsKey(step) ? max + 1 : max;
+		chainLengths.put(step, Integer.valueOf(length));
+		return length;
+	}
+	
 	/**
 	 * Enqueues build steps directly accessed from the given one. Each
 	 * new element will have level 1 if it needs rebuild and 0 otherwise.
@@ -327,6 +366,7 @@ public class ParallelBuilder {
 			}
 			// Everything goes OK.
 			boolean proceed = true;
+			boolean progress = false;
 			
 			// Check if there is room for new process
 			if (!mgr.hasEmpty()) {
@@ -346,6 +386,7 @@ public class ParallelBuilder {
 						}
 						// Try to launch next command for the current active step
 						if (buildStep.isDone()) continue;
+						progress = true;
 						if (buildStep.launchNextCmd(mgr)) {
 							// Command has been launched. Check if process pool is not maximized yet
 							if (!mgr.hasEmpty()) {
@@ -362,13 +403,9 @@ public class ParallelBuilder {
 				}
 			}
 			
-			// If nothing to do, then sleep and continue main loop
+			// If nothing to do, then wait for a process to terminate and continue main loop
 			if (!proceed) {
-				try {
-					Thread.sleep(MAIN_LOOP_DELAY);
-				} catch (InterruptedException e) {
-					// do nothing
-				}
+				mgr.waitForProcessExit(MAIN_LOOP_DELAY);
 				continue main_loop;
 			}
 			
@@ -416,6 +453,7 @@ public class ParallelBuilder {
 						// Remove element from the build queue and add it to the
 						// "active steps" list.
 						iter.remove();
+						progress = true;
 						for (int i = 0; i < maxProcesses; i++) {
 							if (i >= active.size()) {
 								// add new item
@@ -447,6 +485,10 @@ public class ParallelBuilder {
 			// Now finally, check if we're done
 			if (activeCount <= 0 && queue.size() == 0) 
 				break main_loop;
+			
+			// The remaining steps wait for active ones
+			if (!progress && activeCount > 0)
+				mgr.waitForProcessExit(MAIN_LOOP_DELAY);
 		}
 
 		if (status != STATUS_OK && errorMsg != null) 
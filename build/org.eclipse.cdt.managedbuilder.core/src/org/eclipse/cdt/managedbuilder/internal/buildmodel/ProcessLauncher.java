@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006 Intel Corporation and others.
+ * Copyright (c) 2006, 2013 Intel Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -42,6 +42,69 @@ public class ProcessLauncher {
 	protected Process process;
 	protected ProcessClosure closure = null;
 	protected int state;
+	protected Runnable exitHandler;
+
+	/**
+	 * Process closure that runs the exit handler of the launcher once both
+	 * reader threads have completed, i.e. the process has terminated.
+	 */
+	private static class NotifyingProcessClosure extends ProcessClosure {
+		private class NotifyingReaderThread extends ReaderThread {
+			public NotifyingReaderThread(ThreadGroup group, String name, InputStream in, OutputStream out) {
+				super(group, name, in, out);
+			}
+
+			@Override
+			public synchronized void complete() {
+				super.complete();
+				readerCompleted();
+			}
+		}
+
+		private final Runnable fExitHandler;
+		private int fRunningReaders = 2;
+
+		public NotifyingProcessClosure(Process process, OutputStream outputStream, OutputStream errorStream, Runnable exitHandler) {
+			super(process, outputStream, errorStream);
+			fExitHandler = exitHandler;
+		}
+
+		@Override
+		public void runNonBlocking() {
+			ThreadGroup group = new ThreadGroup("CBuilder" + fCounter++); //$NON-NLS-1$
+
+			fOutputReader = new NotifyingReaderThread(group, "OutputReader", fProcess.getInputStream(), fOutput); //$NON-NLS-1$
+			fErrorReader = new NotifyingReaderThread(group, "ErrorReader", fProcess.getErrorStream(), fError); //$NON-NLS-1$
+
+			fOutputReader.start();
+			fErrorReader.start();
+		}
+
+		/**
+		 * Unlike {@link ProcessClosure#isRunning()} this does not depend on the reader threads
+		 * to have died, which happens only after the exit handler has been run.
+		 */
+		@Override
+		public boolean isRunning() {
+			if (fProcess != null) {
+				if (!fOutputReader.finished() || !fErrorReader.finished()) {
+					return true;
+				}
+				fProcess = null;
+			}
+			return false;
+		}
+
+		private void readerCompleted() {
+			boolean exited;
+			synchronized (this) {
+				exited = --fRunningReaders == 0;
+			}
+			if (exited) {
+				fExitHandler.run();
+			}
+		}
+	}
 
 	/**
 	 * Returns command line as a string array
@@ -91,7 +154,9 @@ public class ProcessLauncher {
 	 * Returns exit code of a process
 	 */
 	public int getExitCode() {
-		if (process == null || closure.isAlive()) return 0;
+		// Once the process is known to be done, its reader threads may still be alive
+		// running the exit handler, wait for the process itself in that case.
+		if (process == null || (state != STATE_DONE && closure.isAlive())) return 0;
 		try { return process.waitFor(); }
 		catch (InterruptedException e) { return 0; } 
 	}
@@ -119,6 +184,14 @@ public class ProcessLauncher {
 		lineSeparator = System.getProperty("line.separator", "\n"); //$NON-NLS-1$ //$NON-NLS-2$
 	}
 	
+	/**
+	 * Sets a handler that is run on an arbitrary thread when the launched process
+	 * terminates. Must be called before {@link #launch()}.
+	 */
+	public void setExitHandler(Runnable handler) {
+		exitHandler = handler;
+	}
+
 	/**
 	 * Launches a process
 	 */
@@ -128,7 +201,10 @@ public class ProcessLauncher {
 				printCommandLine();
 			state = STATE_RUNNING;
 			process = ProcessFactory.getFactory().exec(cmd, env, cwd); 
-			closure = new ProcessClosure(process, out, err);
+			if (exitHandler != null)
+				closure = new NotifyingProcessClosure(process, out, err, exitHandler);
+			else
+				closure = new ProcessClosure(process, out, err);
 			// Close the input of the process since we will never write to it
 			try {
 				process.getOutputStream().close();
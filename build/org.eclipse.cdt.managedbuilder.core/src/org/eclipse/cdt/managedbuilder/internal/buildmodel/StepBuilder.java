@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.cdt.managedbuilder.internal.buildmodel;
 
+import java.io.IOException;
 import java.io.OutputStream;
 
 import org.eclipse.cdt.managedbuilder.buildmodel.BuildDescriptionManager;
@@ -17,6 +18,7 @@ import org.eclipse.cdt.managedbuilder.buildmodel.IBuildCommand;
 import org.eclipse.cdt.managedbuilder.buildmodel.IBuildDescription;
 import org.eclipse.cdt.managedbuilder.buildmodel.IBuildResource;
 import org.eclipse.cdt.managedbuilder.buildmodel.IBuildStep;
+import org.eclipse.cdt.managedbuilder.internal.core.ManagedMakeMessages;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspaceRoot;
@@ -38,12 +40,17 @@ import org.eclipse.core.runtime.SubProgressMonitor;
  *
  */
 public class StepBuilder implements IBuildModelBuilder {
+	private static final String BUILDER_MSG_HEADER = "InternalBuilder.msg.header"; //$NON-NLS-1$
+	private static final String BUILDER_CACHE_RESTORED = "InternalBuilder.cache.restored"; //$NON-NLS-1$
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator", "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+
 	private IBuildStep fStep;
 	private IPath fCWD;
 	private GenDirInfo fDirs;
 	private boolean fResumeOnErrs;
 	private int fNumCommands = -1;
 	private CommandBuilder fCommandBuilders[];
+	private IBuildCommand fCommands[];
 	private IResourceRebuildStateContainer fRebuildStateContainer;
 
 	public StepBuilder(IBuildStep step, IResourceRebuildStateContainer rs){
@@ -85,6 +92,16 @@ public class StepBuilder implements IBuildModelBuilder {
 			//TODO: monitor
 			createOutDirs(new NullProgressMonitor());
 
+			BuildStepCache cache = BuildStepCache.getInstance();
+			String cacheKey = cache != null ? cache.computeKey(fStep, fCommands) : null;
+			if(cacheKey != null && cache.restore(cacheKey, fStep)){
+				printMessage(ManagedMakeMessages.getFormattedString(BUILDER_CACHE_RESTORED,
+						DbgUtil.stepName(fStep)), out);
+				status = postProcess(STATUS_OK, new NullProgressMonitor());
+				monitor.done();
+				return status;
+			}
+
 			for(int i = 0;
 					i < bs.length
 						&& status != STATUS_CANCELLED
@@ -108,11 +125,25 @@ public class StepBuilder implements IBuildModelBuilder {
 			}
 			//TODO: monitor
 			status = postProcess(status, new NullProgressMonitor());
+			if(cacheKey != null && status == STATUS_OK)
+				cache.store(cacheKey, fStep);
 		}
 		monitor.done();
 		return status;
 	}
 
+	protected void printMessage(String msg, OutputStream os){
+		if (os != null) {
+			msg = ManagedMakeMessages.getFormattedString(BUILDER_MSG_HEADER, msg) + LINE_SEPARATOR;
+			try {
+				os.write(msg.getBytes());
+				os.flush();
+			} catch (IOException e) {
+				// ignore;
+			}
+		}
+	}
+
 	protected int postProcess(int status, IProgressMonitor monitor){
 		if(status != STATUS_ERROR_LAUNCH){
 			refreshOutputs(monitor);
@@ -219,6 +250,7 @@ public class StepBuilder implements IBuildModelBuilder {
 	protected CommandBuilder[] getCommandBuilders(){
 		if(fCommandBuilders == null){
 			IBuildCommand cmds[] = fStep.getCommands(fCWD, null, null, true);
+			fCommands = cmds;
 			if(cmds == null)
 				fCommandBuilders = new CommandBuilder[0];
 			else {
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.codan.core.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.eclipse.cdt.codan.core.CodanRuntime;
+import org.eclipse.cdt.codan.core.model.IProblemReporter;
+import org.eclipse.cdt.codan.internal.checkers.StatementHasNoEffectChecker;
+import org.eclipse.cdt.codan.internal.core.CodanApplication;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+import org.osgi.framework.Bundle;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Tests the headless code analysis application.
+ */
+@SuppressWarnings("nls")
+public class CodanApplicationTest extends CheckerTestCase {
+	private static final int FILES = 4;
+
+	private IProblemReporter fReporter;
+	private Set<String> fFiles = new HashSet<String>();
+	private String fOut;
+	private String fErr;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		enableProblems(StatementHasNoEffectChecker.ER_ID);
+		// The application replaces the problem reporter.
+		fReporter = CodanRuntime.getInstance().getProblemReporter();
+		for (int i = 0; i < FILES; i++) {
+			File file = loadcode("main() {\n int a;\n +a;\n}\n", "file" + i + ".c");
+			fFiles.add(file.getCanonicalPath());
+		}
+	}
+
+	@Override
+	public void tearDown() throws CoreException {
+		CodanRuntime.getInstance().setProblemReporter(fReporter);
+		super.tearDown();
+	}
+
+	private static class Context implements IApplicationContext {
+		private final Map<String, Object> fArguments = new HashMap<String, Object>();
+
+		Context(String[] args) {
+			fArguments.put("application.args", args);
+		}
+		public Map<String, Object> getArguments() {
+			return fArguments;
+		}
+		public void applicationRunning() {
+		}
+		public String getBrandingApplication() {
+			return null;
+		}
+		public String getBrandingName() {
+			return null;
+		}
+		public String getBrandingDescription() {
+			return null;
+		}
+		public String getBrandingId() {
+			return null;
+		}
+		public String getBrandingProperty(String key) {
+			return null;
+		}
+		public Bundle getBrandingBundle() {
+			return null;
+		}
+		public void setResult(Object result, IApplication application) {
+		}
+	}
+
+	private Object run(String... args) throws Exception {
+		PrintStream out = System.out;
+		PrintStream err = System.err;
+		ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+		ByteArrayOutputStream errBytes = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(outBytes, true));
+		System.setErr(new PrintStream(errBytes, true));
+		try {
+			return new CodanApplication().start(new Context(args));
+		} finally {
+			System.setOut(out);
+			System.setErr(err);
+			fOut = outBytes.toString();
+			fErr = errBytes.toString();
+		}
+	}
+
+	private String projectName() {
+		return cproject.getProject().getName();
+	}
+
+	public void testParallelRun() throws Exception {
+		assertEquals(IApplication.EXIT_OK, run("-jobs", "2", projectName()));
+		Set<String> files = new HashSet<String>();
+		for (String line : fOut.split("\n")) {
+			line = line.trim();
+			if (line.length() == 0)
+				continue;
+			// <file>:<line>: <message>
+			int sep = line.indexOf(":3: ");
+			assertTrue(line, sep > 0);
+			files.add(new File(line.substring(0, sep)).getCanonicalPath());
+		}
+		assertEquals(fFiles, files);
+	}
+
+	public void testParallelRunWithXmlAndStats() throws Exception {
+		assertEquals(IApplication.EXIT_OK, run("-jobs", "2", "-xml", "-stats", projectName()));
+		Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(
+				new ByteArrayInputStream(fOut.getBytes("UTF-8")));
+		assertEquals("codan", document.getDocumentElement().getTagName());
+		NodeList problems = document.getElementsByTagName("problem");
+		assertEquals(FILES, problems.getLength());
+		Set<String> files = new HashSet<String>();
+		for (int i = 0; i < problems.getLength(); i++) {
+			Element problem = (Element) problems.item(i);
+			assertEquals(StatementHasNoEffectChecker.ER_ID, problem.getAttribute("id"));
+			assertEquals("3", problem.getAttribute("line"));
+			assertTrue(problem.getTextContent().length() > 0);
+			files.add(new File(problem.getAttribute("file")).getCanonicalPath());
+		}
+		assertEquals(fFiles, files);
+		// The statistics go to standard error, they must not break the document.
+		assertTrue(fErr.contains(StatementHasNoEffectChecker.class.getName()));
+	}
+
+	public void testInvalidJobs() throws Exception {
+		assertEquals(CodanApplication.EXIT_INVALID_ARGUMENTS, run("-jobs", "0", projectName()));
+		assertEquals(CodanApplication.EXIT_INVALID_ARGUMENTS, run("-jobs", "x", projectName()));
+		assertEquals(CodanApplication.EXIT_INVALID_ARGUMENTS, run(projectName(), "-jobs"));
+		// Nothing was analyzed.
+		assertFalse(fOut.contains(":3: "));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009,2010 QNX Software Systems
+ * Copyright (c) 2009, 2013 QNX Software Systems
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,12 +10,14 @@
  *******************************************************************************/
 package org.eclipse.cdt.codan.internal.core;
 
+import java.io.PrintStream;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
 /**
- * Class to collect time states for checkers runs
+ * Class to collect time states for checkers runs. The times of checkers running on
+ * different threads are added up.
  */
 public class CheckersTimeStats {
 	public static final String ALL = "ALL"; //$NON-NLS-1$
@@ -31,17 +33,21 @@ public class CheckersTimeStats {
 
 	private static class TimeRecord {
 		private long duration;
-		private long current;
 		private int count;
+		// Checkers may run on several threads, each one measures its own time.
+		private final ThreadLocal<Long> current = new ThreadLocal<Long>();
 
 		public void start() {
-			current = System.currentTimeMillis();
+			current.set(System.currentTimeMillis());
 		}
 
-		public void stop() {
+		public synchronized void stop() {
+			Long start = current.get();
+			if (start == null)
+				return;
+			current.remove();
 			count++;
-			duration += System.currentTimeMillis() - current;
-			current = 0;
+			duration += System.currentTimeMillis() - start.longValue();
 		}
 
 		/*
@@ -50,7 +56,7 @@ public class CheckersTimeStats {
 		 * @see java.lang.Object#toString()
 		 */
 		@Override
-		public String toString() {
+		public synchronized String toString() {
 			if (count != 0)
 				return duration + " " + count + " " + duration / count;  //$NON-NLS-1$//$NON-NLS-2$
 			return ""; //$NON-NLS-1$
@@ -62,7 +68,7 @@ public class CheckersTimeStats {
 	 * @param id - checker id
 	 * @return
 	 */
-	private TimeRecord getTimeRecord(String id) {
+	private synchronized TimeRecord getTimeRecord(String id) {
 		TimeRecord record = records.get(id);
 		if (record == null) {
 			record = new TimeRecord();
@@ -118,18 +124,25 @@ public class CheckersTimeStats {
 	 *
 	 */
 	public void printStats() {
-		System.out.println("---"); //$NON-NLS-1$
+		printStats(System.out);
+	}
+
+	/**
+	 * @param out the stream to print the statistics to
+	 */
+	public synchronized void printStats(PrintStream out) {
+		out.println("---"); //$NON-NLS-1$
 		for (Iterator<String> iterator = records.keySet().iterator(); iterator.hasNext();) {
 			String id = iterator.next();
 			TimeRecord timeRecord = getTimeRecord(id);
-			System.out.println(timeRecord.toString() + " " + id); //$NON-NLS-1$
+			out.println(timeRecord.toString() + " " + id); //$NON-NLS-1$
 		}
 	}
 
 	/**
 	 *
 	 */
-	public void reset() {
+	public synchronized void reset() {
 		records.clear();
 	}
 }
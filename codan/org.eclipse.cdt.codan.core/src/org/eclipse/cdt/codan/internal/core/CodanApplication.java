@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 Alena Laskavaia and others.
+ * Copyright (c) 2010, 2013 Alena Laskavaia and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,7 +15,9 @@ import java.util.Collection;
 
 import org.eclipse.cdt.codan.core.CodanRuntime;
 import org.eclipse.cdt.codan.core.model.AbstractProblemReporter;
+import org.eclipse.cdt.codan.core.model.CheckerLaunchMode;
 import org.eclipse.cdt.codan.core.model.ICodanProblemMarker;
+import org.eclipse.cdt.codan.core.model.IProblem;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspaceRoot;
@@ -32,9 +34,15 @@ import org.eclipse.osgi.util.NLS;
  * @noinstantiate This class is not intended to be instantiated by clients.
  */
 public class CodanApplication implements IApplication {
+	/** Exit code for invalid arguments */
+	public static final Integer EXIT_INVALID_ARGUMENTS = Integer.valueOf(1);
+
 	private Collection<String> projects = new ArrayList<String>();
 	private boolean verbose;
 	private boolean all;
+	private boolean xml;
+	private boolean stats;
+	private int jobs = 1;
 
 	@Override
 	public Object start(IApplicationContext context) throws Exception {
@@ -43,21 +51,39 @@ public class CodanApplication implements IApplication {
 			help();
 			return EXIT_OK;
 		}
-		extractArguments(args);
-		CodanBuilder codanBuilder = new CodanBuilder();
+		if (!extractArguments(args)) {
+			help();
+			return EXIT_INVALID_ARGUMENTS;
+		}
 		CodanRuntime runtime = CodanRuntime.getInstance();
 		runtime.setProblemReporter(new AbstractProblemReporter() {
 			@Override
-			protected void reportProblem(ICodanProblemMarker pm) {
+			protected synchronized void reportProblem(ICodanProblemMarker pm) {
 				IResource file = pm.getResource();
-				System.out.println(file.getLocation() + ":" + pm.getLocation().getLineNumber() + ": " //$NON-NLS-1$ //$NON-NLS-2$
-						+ pm.createMessage());
+				if (xml) {
+					IProblem problem = pm.getProblem();
+					System.out.println("  <problem file=\"" + escape(String.valueOf(file.getLocation())) //$NON-NLS-1$
+							+ "\" line=\"" + pm.getLocation().getLineNumber() //$NON-NLS-1$
+							+ "\" id=\"" + escape(problem.getId()) //$NON-NLS-1$
+							+ "\" severity=\"" + problem.getSeverity() + "\">" //$NON-NLS-1$ //$NON-NLS-2$
+							+ escape(pm.createMessage()) + "</problem>"); //$NON-NLS-1$
+				} else {
+					System.out.println(file.getLocation() + ":" + pm.getLocation().getLineNumber() + ": " //$NON-NLS-1$ //$NON-NLS-2$
+							+ pm.createMessage());
+				}
 			}
 		});
+		if (xml) {
+			System.out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"); //$NON-NLS-1$
+			System.out.println("<codan>"); //$NON-NLS-1$
+		}
+		if (stats) {
+			CheckersTimeStats.getInstance().reset();
+		}
 		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
 		if (all) {
 			log(Messages.CodanApplication_LogRunWorkspace);
-			codanBuilder.processResource(root, new NullProgressMonitor());
+			processResource(root);
 		} else {
 			for (String project : projects) {
 				log(Messages.CodanApplication_LogRunProject + project);
@@ -67,13 +93,46 @@ public class CodanApplication implements IApplication {
 							NLS.bind(Messages.CodanApplication_Error_ProjectDoesNotExists, project));
 					continue;
 				}
-				codanBuilder.processResource(wProject, new NullProgressMonitor());
+				processResource(wProject);
 			}
 		}
+		if (xml) {
+			System.out.println("</codan>"); //$NON-NLS-1$
+		}
+		if (stats) {
+			// Keep the XML document on standard output well-formed.
+			CheckersTimeStats.getInstance().printStats(xml ? System.err : System.out);
+		}
 		return EXIT_OK;
 	}
 
+	private void processResource(IResource resource) {
+		if (jobs > 1) {
+			CodanRunner.processResourceInParallel(resource, CheckerLaunchMode.RUN_ON_FULL_BUILD, jobs,
+					new NullProgressMonitor());
+		} else {
+			CodanRunner.processResource(resource, CheckerLaunchMode.RUN_ON_FULL_BUILD, new NullProgressMonitor());
+		}
+	}
+
+	private static String escape(String str) {
+		StringBuilder buf = new StringBuilder(str.length());
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			switch (c) {
+			case '<': buf.append("&lt;"); break; //$NON-NLS-1$
+			case '>': buf.append("&gt;"); break; //$NON-NLS-1$
+			case '&': buf.append("&amp;"); break; //$NON-NLS-1$
+			case '"': buf.append("&quot;"); break; //$NON-NLS-1$
+			default: buf.append(c);
+			}
+		}
+		return buf.toString();
+	}
+
 	/**
+	 * Prints a verbose message. Messages go to standard error, such that they
+	 * do not interfere with the problems printed to standard output.
 	 * @param string
 	 */
 	private void log(String string) {
@@ -83,18 +142,38 @@ public class CodanApplication implements IApplication {
 
 	/**
 	 * @param args
+	 * @return <code>false</code> if the arguments are not valid
 	 */
-	private void extractArguments(String[] args) {
+	private boolean extractArguments(String[] args) {
 		for (int i = 0; i < args.length; i++) {
 			String string = args[i];
 			if (string.equals("-verbose")) { //$NON-NLS-1$
 				verbose = true;
 			} else if (string.equals("-all")) { //$NON-NLS-1$
 				all = true;
+			} else if (string.equals("-xml")) { //$NON-NLS-1$
+				xml = true;
+			} else if (string.equals("-stats")) { //$NON-NLS-1$
+				stats = true;
+			} else if (string.equals("-jobs")) { //$NON-NLS-1$
+				if (i + 1 >= args.length) {
+					System.err.println(Messages.CodanApplication_Error_MissingJobs);
+					return false;
+				}
+				try {
+					jobs = Integer.parseInt(args[++i]);
+				} catch (NumberFormatException e) {
+					jobs = 0;
+				}
+				if (jobs < 1) {
+					System.err.println(NLS.bind(Messages.CodanApplication_Error_InvalidJobs, args[i]));
+					return false;
+				}
 			} else {
 				projects.add(string);
 			}
 		}
+		return true;
 	}
 
 	/**
@@ -105,6 +184,9 @@ public class CodanApplication implements IApplication {
 		System.out.println(Messages.CodanApplication_Options);
 		System.out.println(Messages.CodanApplication_all_option);
 		System.out.println(Messages.CodanApplication_verbose_option);
+		System.out.println(Messages.CodanApplication_jobs_option);
+		System.out.println(Messages.CodanApplication_xml_option);
+		System.out.println(Messages.CodanApplication_stats_option);
 	}
 
 	@Override
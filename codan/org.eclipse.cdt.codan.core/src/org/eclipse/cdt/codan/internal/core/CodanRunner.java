@@ -11,6 +11,13 @@
  *******************************************************************************/
 package org.eclipse.cdt.codan.internal.core;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.eclipse.cdt.codan.core.CodanCorePlugin;
 import org.eclipse.cdt.codan.core.model.CheckerLaunchMode;
 import org.eclipse.cdt.codan.core.model.IChecker;
@@ -18,8 +25,10 @@ import org.eclipse.cdt.codan.core.model.ICheckerInvocationContext;
 import org.eclipse.cdt.codan.core.model.IRunnableInEditorChecker;
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceVisitor;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.osgi.util.NLS;
@@ -54,6 +63,82 @@ public class CodanRunner {
 		processResource(resource, null, checkerLaunchMode, monitor);
 	}
 
+	/**
+	 * Runs all checkers on a given resource and all resources contained in it. The checkers are
+	 * run on the containers first, then the files are distributed over the given number of worker
+	 * threads. Each file is analyzed with its own invocation context, a checker is never run on
+	 * two files at the same time.
+	 *
+	 * @param resource - the resource to run the checkers on, either IFile or IContainer
+	 * @param checkerLaunchMode - the checker launch mode.
+	 * @param jobs - the number of worker threads
+	 * @param monitor - the progress monitor
+	 */
+	public static void processResourceInParallel(IResource resource, final CheckerLaunchMode checkerLaunchMode,
+			int jobs, IProgressMonitor monitor) {
+		final List<IResource> containers = new ArrayList<IResource>();
+		final List<IResource> files = new ArrayList<IResource>();
+		try {
+			resource.accept(new IResourceVisitor() {
+				@Override
+				public boolean visit(IResource r) {
+					if (r instanceof IContainer) {
+						containers.add(r);
+					} else {
+						files.add(r);
+					}
+					return true;
+				}
+			});
+		} catch (CoreException e) {
+			CodanCorePlugin.log(e);
+			return;
+		}
+
+		CheckersRegistry chegistry = CheckersRegistry.getInstance();
+		monitor.beginTask(NLS.bind(Messages.CodanRunner_Code_analysis_on, resource.getFullPath().toString()),
+				chegistry.getCheckersSize() * (containers.size() + files.size()));
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, jobs));
+		try {
+			for (IResource container : containers) {
+				if (monitor.isCanceled())
+					return;
+				if (!runCheckers(container, null, checkerLaunchMode, monitor))
+					return;
+			}
+
+			final IProgressMonitor workerMonitor = new NullProgressMonitor();
+			List<Future<?>> results = new ArrayList<Future<?>>(files.size());
+			for (final IResource file : files) {
+				results.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						runCheckers(file, null, checkerLaunchMode, workerMonitor);
+					}
+				}));
+			}
+			for (Future<?> result : results) {
+				if (monitor.isCanceled()) {
+					workerMonitor.setCanceled(true);
+					return;
+				}
+				try {
+					result.get();
+				} catch (InterruptedException e) {
+					workerMonitor.setCanceled(true);
+					Thread.currentThread().interrupt();
+					return;
+				} catch (ExecutionException e) {
+					CodanCorePlugin.log(e.getCause());
+				}
+				monitor.worked(chegistry.getCheckersSize());
+			}
+		} finally {
+			executor.shutdownNow();
+			monitor.done();
+		}
+	}
+
 	private static void processResource(IResource resource, Object model,
 			CheckerLaunchMode checkerLaunchMode, IProgressMonitor monitor) {
 		CheckersRegistry chegistry = CheckersRegistry.getInstance();
@@ -72,41 +157,8 @@ public class CodanRunner {
 		monitor.beginTask(NLS.bind(Messages.CodanRunner_Code_analysis_on, resource.getFullPath().toString()),
 				checkers * (1 + numChildren * childWeight));
 		try {
-			CheckersTimeStats.getInstance().checkerStart(CheckersTimeStats.ALL);
-			ICheckerInvocationContext context = new CheckerInvocationContext(resource);
-			try {
-				for (IChecker checker : chegistry) {
-					try {
-						if (monitor.isCanceled())
-							return;
-						if (chegistry.isCheckerEnabled(checker, resource, checkerLaunchMode)) {
-							synchronized (checker) {
-								try {
-									checker.before(resource);
-									CheckersTimeStats.getInstance().checkerStart(checker.getClass().getName());
-									if (checkerLaunchMode == CheckerLaunchMode.RUN_AS_YOU_TYPE) {
-										((IRunnableInEditorChecker) checker).processModel(model, context);
-									} else {
-										checker.processResource(resource, context);
-									}
-								} finally {
-									CheckersTimeStats.getInstance().checkerStop(checker.getClass().getName());
-									checker.after(resource);
-								}
-							}
-						}
-						monitor.worked(1);
-					} catch (OperationCanceledException e) {
-						return;
-					} catch (Throwable e) {
-						CodanCorePlugin.log(e);
-					}
-				}
-			} finally {
-				context.dispose();
-				CheckersTimeStats.getInstance().checkerStop(CheckersTimeStats.ALL);
-				//CheckersTimeStats.getInstance().printStats();
-			}
+			if (!runCheckers(resource, model, checkerLaunchMode, monitor))
+				return;
 
 			if (children != null &&
 					(checkerLaunchMode == CheckerLaunchMode.RUN_ON_FULL_BUILD || checkerLaunchMode == CheckerLaunchMode.RUN_ON_DEMAND)) {
@@ -120,4 +172,50 @@ public class CodanRunner {
 			monitor.done();
 		}
 	}
+
+	/**
+	 * Runs the enabled checkers on the given resource, without visiting its children.
+	 *
+	 * @return <code>false</code> if the run was canceled.
+	 */
+	private static boolean runCheckers(IResource resource, Object model,
+			CheckerLaunchMode checkerLaunchMode, IProgressMonitor monitor) {
+		CheckersRegistry chegistry = CheckersRegistry.getInstance();
+		CheckersTimeStats.getInstance().checkerStart(CheckersTimeStats.ALL);
+		ICheckerInvocationContext context = new CheckerInvocationContext(resource);
+		try {
+			for (IChecker checker : chegistry) {
+				try {
+					if (monitor.isCanceled())
+						return false;
+					if (chegistry.isCheckerEnabled(checker, resource, checkerLaunchMode)) {
+						synchronized (checker) {
+							try {
+								checker.before(resource);
+								CheckersTimeStats.getInstance().checkerStart(checker.getClass().getName());
+								if (checkerLaunchMode == CheckerLaunchMode.RUN_AS_YOU_TYPE) {
+									((IRunnableInEditorChecker) checker).processModel(model, context);
+								} else {
+									checker.processResource(resource, context);
+								}
+							} finally {
+								CheckersTimeStats.getInstance().checkerStop(checker.getClass().getName());
+								checker.after(resource);
+							}
+						}
+					}
+					monitor.worked(1);
+				} catch (OperationCanceledException e) {
+					return false;
+				} catch (Throwable e) {
+					CodanCorePlugin.log(e);
+				}
+			}
+		} finally {
+			context.dispose();
+			CheckersTimeStats.getInstance().checkerStop(CheckersTimeStats.ALL);
+			//CheckersTimeStats.getInstance().printStats();
+		}
+		return true;
+	}
 }
@@ -19,12 +19,17 @@ import org.eclipse.osgi.util.NLS;
  */
 class Messages extends NLS {
 	public static String CodanApplication_all_option;
+	public static String CodanApplication_Error_InvalidJobs;
+	public static String CodanApplication_Error_MissingJobs;
 	public static String CodanApplication_Error_ProjectDoesNotExists;
 	public static String CodanApplication_LogRunProject;
 	public static String CodanApplication_LogRunWorkspace;
 	public static String CodanApplication_Options;
 	public static String CodanApplication_Usage;
 	public static String CodanApplication_verbose_option;
+	public static String CodanApplication_jobs_option;
+	public static String CodanApplication_xml_option;
+	public static String CodanApplication_stats_option;
 	public static String CodanRunner_Code_analysis_on;
 
 	static {
@@ -14,6 +14,7 @@ package org.eclipse.cdt.core.internal.errorparsers.tests;
 import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 
 import junit.framework.TestCase;
@@ -21,6 +22,7 @@ import junit.framework.TestSuite;
 
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.ErrorParserManager;
+import org.eclipse.cdt.core.IConsoleParser;
 import org.eclipse.cdt.core.IErrorParser;
 import org.eclipse.cdt.core.IErrorParser2;
 import org.eclipse.cdt.core.IMarkerGenerator;
@@ -29,6 +31,7 @@ import org.eclipse.cdt.core.dom.IPDOMManager;
 import org.eclipse.cdt.core.model.ICProject;
 import org.eclipse.cdt.core.testplugin.CProjectHelper;
 import org.eclipse.cdt.core.testplugin.CTestPlugin;
+import org.eclipse.cdt.internal.core.ConsoleOutputSniffer;
 import org.eclipse.core.internal.registry.ExtensionRegistry;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
@@ -194,6 +197,23 @@ public class ErrorParserManagerTest extends TestCase {
 	}
 
 
+	public void testPipelinedOutput() throws IOException {
+		ConsoleOutputSniffer sniffer = new ConsoleOutputSniffer(new IConsoleParser[] { epManager });
+		sniffer.setPipelined(true);
+		OutputStream out = sniffer.getOutputStream();
+		FileInputStream fileInputStream = new FileInputStream(CTestPlugin.getDefault().getFileInPlugin(
+				new Path("resources/errortests/output-1")));
+		byte b[] = new byte[1024];
+		while (true) {
+			int k = fileInputStream.read(b);
+			if (k < 0)
+				break;
+			out.write(b, 0, k);
+		}
+		fileInputStream.close();
+		out.close();
+		assertEquals(22, errorList.size());
+	}
 
 	private String addErrorParserExtension(String shortId, Class cl) {
 		String ext = "<plugin><extension id=\"" + shortId + "\" name=\"" + shortId
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2013 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -41,6 +41,8 @@ import org.eclipse.core.runtime.Status;
  */
 public class ASTCacheTests extends BaseTestCase {
 	private final static boolean DEBUG= false;
+	/** Memory budget for the ASTs of the inactive translation units, enough for all of them */
+	private final static long INACTIVE_BUDGET= 1024 * 1024;
 	
 	private static int fgReconcilerCount;
 
@@ -142,6 +144,7 @@ public class ASTCacheTests extends BaseTestCase {
 		checkSingleThreadAccess();
 		checkAccessWithSequentialReconciler();
 		checkAccessWithConcurrentReconciler();
+		checkInactiveASTs();
 	}
 	
 	private void checkActiveElement() throws Exception {
@@ -311,6 +314,137 @@ public class ASTCacheTests extends BaseTestCase {
 		}
 	}
 
+	private void checkInactiveASTs() throws Exception {
+		final ASTCache cache= new ASTCache(INACTIVE_BUDGET);
+		final IASTTranslationUnit[] asts= new IASTTranslationUnit[2];
+		cache.setActiveElement(fTU1);
+		cache.runOnAST(fTU2, true, null, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) {
+				assertNotNull(ast);
+				asts[0]= ast;
+				return Status.OK_STATUS;
+			}
+		});
+		assertEquals(0, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		// The AST of the inactive element is reused, even without waiting.
+		cache.runOnAST(fTU2, false, null, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) {
+				assertSame(asts[0], ast);
+				return Status.OK_STATUS;
+			}
+		});
+		assertEquals(1, cache.getHitCount());
+
+		// And is kept when the element becomes active.
+		cache.setActiveElement(fTU2);
+		cache.runOnAST(fTU2, true, null, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) {
+				assertSame(asts[0], ast);
+				return Status.OK_STATUS;
+			}
+		});
+		assertEquals(2, cache.getHitCount());
+
+		cache.disposeInactiveASTs();
+		cache.runOnAST(fTU1, true, null, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) {
+				assertNotNull(ast);
+				asts[1]= ast;
+				return Status.OK_STATUS;
+			}
+		});
+		assertEquals(2, cache.getMissCount());
+	}
+
+	private IASTTranslationUnit getAST(ASTCache cache, ITranslationUnit tUnit) {
+		final IASTTranslationUnit[] result= new IASTTranslationUnit[1];
+		cache.runOnAST(tUnit, true, null, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) {
+				result[0]= ast;
+				return Status.OK_STATUS;
+			}
+		});
+		assertNotNull(result[0]);
+		return result[0];
+	}
+
+	private void waitForInactiveASTCount(ASTCache cache, int expected) throws InterruptedException {
+		// Changes of the index are notified asynchronously.
+		long end= System.currentTimeMillis() + 10000;
+		while (cache.getInactiveASTCount() != expected && System.currentTimeMillis() < end) {
+			Thread.sleep(50);
+		}
+		assertEquals(expected, cache.getInactiveASTCount());
+	}
+
+	public void testInactiveASTsAreDisabledByDefault() throws Exception {
+		if (System.getProperty("org.eclipse.cdt.core.astCacheBudget") != null)
+			return;
+		ASTCache cache= new ASTCache();
+		cache.setActiveElement(fTU1);
+		getAST(cache, fTU2);
+		getAST(cache, fTU2);
+		assertEquals(2, cache.getMissCount());
+		assertEquals(0, cache.getInactiveASTCount());
+	}
+
+	public void testSizeOfInactiveASTsIsBounded() throws Exception {
+		ASTCache cache= new ASTCache(INACTIVE_BUDGET);
+		getAST(cache, fTU2);
+		long size= cache.getInactiveASTSize();
+		// The estimate is based on the AST, not only on the contents.
+		assertTrue(size > SOURCE2.length() * 2);
+
+		// Room for one of the ASTs, which have the same structure.
+		cache= new ASTCache(size * 3 / 2);
+		getAST(cache, fTU2);
+		getAST(cache, fTU1);
+		assertEquals(1, cache.getInactiveASTCount());
+		assertEquals(size, cache.getInactiveASTSize());
+		// The least recently used AST has been discarded.
+		getAST(cache, fTU2);
+		assertEquals(3, cache.getMissCount());
+	}
+
+	public void testInactiveASTsAreDiscardedWithTheirElements() throws Exception {
+		ASTCache cache= new ASTCache(INACTIVE_BUDGET);
+		getAST(cache, fTU1);
+		getAST(cache, fTU2);
+		assertEquals(2, cache.getInactiveASTCount());
+
+		fTU2.getResource().delete(true, npm());
+		waitForInactiveASTCount(cache, 1);
+
+		fProject.getProject().close(npm());
+		try {
+			waitForInactiveASTCount(cache, 0);
+		} finally {
+			fProject.getProject().open(npm());
+		}
+	}
+
+	public void testInactiveASTsAreDiscardedOnIndexChange() throws Exception {
+		ASTCache cache= new ASTCache(INACTIVE_BUDGET);
+		getAST(cache, fTU2);
+		assertEquals(1, cache.getInactiveASTCount());
+
+		fIndex.releaseReadLock();
+		try {
+			createFile(fProject.getProject(), "source3.cpp", "void foo3() {}");
+			waitForIndexer(fProject);
+		} finally {
+			fIndex.acquireReadLock();
+		}
+		waitForInactiveASTCount(cache, 0);
+	}
+
 	private void waitForAST(ASTCache cache, ITranslationUnit tUnit, ASTRunnable runnable) {
 		if (DEBUG) System.out.println("waiting for "+tUnit.getElementName());
 		long start= System.currentTimeMillis();
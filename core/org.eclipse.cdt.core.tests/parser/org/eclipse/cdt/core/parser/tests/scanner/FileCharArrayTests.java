@@ -21,6 +21,8 @@ import junit.framework.TestSuite;
 
 import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
 import org.eclipse.cdt.internal.core.parser.scanner.AbstractCharArray;
+import org.eclipse.cdt.internal.core.parser.scanner.ByteCharArray;
+import org.eclipse.cdt.internal.core.parser.scanner.CharArray;
 import org.eclipse.cdt.internal.core.parser.scanner.FileCharArray;
 import org.eclipse.cdt.internal.core.parser.scanner.LazyCharArray;
 
@@ -63,6 +65,53 @@ public class FileCharArrayTests extends BaseTestCase {
 		testFile(false, LazyCharArray.CHUNK_SIZE*3+1);
 	}
 
+	public void testSmallAsciiFile() throws IOException {
+		createFile(true, 1000);
+		AbstractCharArray charArray= createCharArray("UTF-8");
+		assertTrue(charArray instanceof ByteCharArray);
+		checkContent(charArray, 0, 1000);
+		assertEquals(1000, charArray.getLength());
+		assertEquals(decodeCompletely("UTF-8").getContentsHash(), charArray.getContentsHash());
+	}
+
+	public void testSmallNonAsciiFile() throws IOException {
+		createFile(false, 1000);
+		AbstractCharArray charArray= createCharArray("UTF-8");
+		assertTrue(charArray instanceof CharArray);
+		assertEquals(999, charArray.getLength());
+		assertEquals(0xa2, charArray.get(0));
+		assertEquals(2, charArray.get(1));
+
+		charArray= createCharArray("ISO-8859-1");
+		assertTrue(charArray instanceof ByteCharArray);
+		assertEquals(0xc2, charArray.get(0));
+		assertEquals(0xa2, charArray.get(1));
+		assertEquals(decodeCompletely("ISO-8859-1").getContentsHash(), charArray.getContentsHash());
+	}
+
+	private AbstractCharArray createCharArray(String charSet) throws IOException {
+		final FileInputStream inputStream = new FileInputStream(fFile);
+		try {
+			return FileCharArray.create(fFile.getPath(), charSet, inputStream);
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	private CharArray decodeCompletely(String charSet) throws IOException {
+		final FileInputStream inputStream = new FileInputStream(fFile);
+		try {
+			byte[] bytes= new byte[(int) fFile.length()];
+			int read= 0;
+			while (read < bytes.length) {
+				read+= inputStream.read(bytes, read, bytes.length - read);
+			}
+			return new CharArray(new String(bytes, charSet));
+		} finally {
+			inputStream.close();
+		}
+	}
+
 	private void testFile(boolean aligned, int charSize) throws IOException {
 		createFile(aligned, charSize);
 		
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2011 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2013 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -30,7 +30,12 @@ import org.eclipse.cdt.core.dom.IName;
 import org.eclipse.cdt.core.dom.IPDOMManager;
 import org.eclipse.cdt.core.dom.ast.ASTTypeUtil;
 import org.eclipse.cdt.core.dom.ast.DOMException;
+import org.eclipse.cdt.core.dom.ast.IASTCompoundStatement;
 import org.eclipse.cdt.core.dom.ast.IASTDeclaration;
+import org.eclipse.cdt.core.dom.ast.IASTExpressionStatement;
+import org.eclipse.cdt.core.dom.ast.IASTFunctionCallExpression;
+import org.eclipse.cdt.core.dom.ast.IASTFunctionDefinition;
+import org.eclipse.cdt.core.dom.ast.IASTIdExpression;
 import org.eclipse.cdt.core.dom.ast.IASTImplicitName;
 import org.eclipse.cdt.core.dom.ast.IASTImplicitNameOwner;
 import org.eclipse.cdt.core.dom.ast.IASTName;
@@ -38,6 +43,7 @@ import org.eclipse.cdt.core.dom.ast.IASTNodeSelector;
 import org.eclipse.cdt.core.dom.ast.IASTPreprocessorIfdefStatement;
 import org.eclipse.cdt.core.dom.ast.IASTPreprocessorStatement;
 import org.eclipse.cdt.core.dom.ast.IASTSimpleDeclaration;
+import org.eclipse.cdt.core.dom.ast.IASTStatement;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 import org.eclipse.cdt.core.dom.ast.IBasicType;
 import org.eclipse.cdt.core.dom.ast.IBinding;
@@ -86,6 +92,7 @@ import org.eclipse.cdt.core.testplugin.TestScannerProvider;
 import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
 import org.eclipse.cdt.core.testplugin.util.TestSourceReader;
 import org.eclipse.cdt.internal.core.dom.parser.ASTNode;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPScope;
 import org.eclipse.cdt.internal.core.pdom.CModelListener;
 import org.eclipse.cdt.internal.core.pdom.indexer.IndexerPreferences;
 import org.eclipse.core.resources.IContainer;
@@ -2537,4 +2544,54 @@ public class IndexBugsTests extends BaseTestCase {
 			IndexerPreferences.setUpdatePolicy(fCProject.getProject(), IndexerPreferences.getDefaultUpdatePolicy());
 		}
 	}
+
+	// void func(int);
+
+	// static void func(char) {}
+
+	// #include "header.h"
+	// void test() {
+	//   func(1);
+	//   func(2);
+	//   func('a');
+	// }
+	public void testIndexLookupsOfGlobalScopeAreCached() throws Exception {
+		String[] contents= getContentsForTest(3);
+		TestSourceReader.createFile(fCProject.getProject(), "header.h", contents[0]);
+		TestSourceReader.createFile(fCProject.getProject(), "other.cpp", contents[1]);
+		IFile file= TestSourceReader.createFile(fCProject.getProject(), "source.cpp", contents[2]);
+		CCorePlugin.getIndexManager().reindex(fCProject);
+		waitForIndexer();
+		ITranslationUnit tu= (ITranslationUnit) CoreModel.getDefault().create(file);
+		fIndex.acquireReadLock();
+		try {
+			IASTTranslationUnit ast= tu.getAST(fIndex, ITranslationUnit.AST_SKIP_INDEXED_HEADERS);
+			CPPScope scope= (CPPScope) ast.getScope();
+			IASTFunctionDefinition test= (IASTFunctionDefinition) ast.getDeclarations()[0];
+			IASTStatement[] stmts= ((IASTCompoundStatement) test.getBody()).getStatements();
+			assertEquals(3, stmts.length);
+			IBinding[] funcs= new IBinding[stmts.length];
+			for (int i = 0; i < stmts.length; i++) {
+				IASTFunctionCallExpression call=
+						(IASTFunctionCallExpression) ((IASTExpressionStatement) stmts[i]).getExpression();
+				funcs[i]= ((IASTIdExpression) call.getFunctionNameExpression()).getName().resolveBinding();
+			}
+
+			// The first call searches the index, the other ones reuse its result.
+			assertTrue(scope.getIndexLookupCount() >= 3);
+			assertTrue(scope.getIndexLookupCacheHits() >= 2);
+			assertTrue(scope.getIndexLookupCacheHits() < scope.getIndexLookupCount());
+
+			// The cached results give the same binding as the first lookup.
+			assertTrue(funcs[0] instanceof ICPPFunction);
+			assertEquals(funcs[0], funcs[1]);
+			// The file-local function of other.cpp would be the better match, the file-set
+			// still hides it when the result comes from the cache.
+			assertEquals(funcs[0], funcs[2]);
+			IType param= ((ICPPFunction) funcs[2]).getType().getParameterTypes()[0];
+			assertEquals(IBasicType.Kind.eInt, ((IBasicType) param).getKind());
+		} finally {
+			fIndex.releaseReadLock();
+		}
+	}
 }
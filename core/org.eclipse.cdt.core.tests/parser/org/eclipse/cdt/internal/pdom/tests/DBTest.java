@@ -126,6 +126,44 @@ public class DBTest extends BaseTestCase {
 		assertEquals(mem2, mem1);
 	}
 	
+	public void testConcurrentChunkReads() throws Exception {
+		final int count= 200;
+		final long[] recs= new long[count];
+		for (int i = 0; i < count; i++) {
+			recs[i]= db.malloc(Database.MAX_MALLOC_SIZE);
+			db.putInt(recs[i], i);
+		}
+		db.giveUpExclusiveLock(true);
+		db.getChunkCache().setMaxSize(Database.CHUNK_SIZE * 10);
+
+		final Throwable[] failure= {null};
+		Thread[] threads= new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int offset= t;
+			threads[t]= new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < count; i++) {
+							int j= (i * 7 + offset) % count;
+							assertEquals(j, db.getInt(recs[j]));
+						}
+					} catch (Throwable e) {
+						failure[0]= e;
+					}
+				}
+			};
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertNull(failure[0]);
+		db.setExclusiveLock();
+	}
+
 	private static class FindVisitor implements IBTreeVisitor {
 		private Database db;
 		private String key;
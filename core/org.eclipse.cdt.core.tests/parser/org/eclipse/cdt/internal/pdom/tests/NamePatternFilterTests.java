@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.pdom.tests;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import junit.framework.Test;
+
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.cdt.internal.core.pdom.NamePatternFilter;
+
+/**
+ * Tests for the pre-check used when searching the index for bindings matching a pattern.
+ */
+public class NamePatternFilterTests extends BaseTestCase {
+	private static final String[] PATTERNS = {
+		"abc", "a.*c", ".*bc.*", "ab?c", "ab*c", "ab+c", "a{0,2}bc", "a\\.bc", "a\\\\b",
+		"[ab]c", "(ab)?c", "ab|c", "\\w+bc", "\\Qab\\E", "a\\x62c", "^ab$", "a.c.*", ".*A.*B.*"
+	};
+	private static final String ALPHABET = "abcABC_.\\";
+
+	public static Test suite() {
+		return suite(NamePatternFilterTests.class);
+	}
+
+	private static NamePatternFilter filter(String pattern, int flags) {
+		return NamePatternFilter.create(Pattern.compile(pattern, flags));
+	}
+
+	public void testRejectsNamesWithoutLiterals() throws Exception {
+		assertFalse(filter("foo.*bar", 0).mayMatch("fooba".toCharArray()));
+		assertFalse(filter(".*Widget.*", 0).mayMatch("widget".toCharArray()));
+		assertFalse(filter("x?yz", 0).mayMatch("xy".toCharArray()));
+		assertTrue(filter("x?yz", 0).mayMatch("yz".toCharArray()));
+		assertTrue(filter(".*Widget.*", Pattern.CASE_INSENSITIVE).mayMatch("my_widget".toCharArray()));
+		assertTrue(filter("foo|bar", 0).mayMatch("baz".toCharArray()));
+		assertTrue(filter("foo.*", Pattern.COMMENTS).mayMatch("bar".toCharArray()));
+	}
+
+	public void testNeverRejectsMatches() throws Exception {
+		Random random = new Random(4711);
+		for (String p : PATTERNS) {
+			for (int flags : new int[] { 0, Pattern.CASE_INSENSITIVE }) {
+				Pattern pattern = Pattern.compile(p, flags);
+				NamePatternFilter filter = NamePatternFilter.create(pattern);
+				for (int i = 0; i < 20000; i++) {
+					char[] name = new char[random.nextInt(6)];
+					for (int j = 0; j < name.length; j++) {
+						name[j] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+					}
+					if (pattern.matcher(new String(name)).matches()) {
+						assertTrue(p + " rejects " + new String(name), filter.mayMatch(name));
+					}
+				}
+			}
+		}
+	}
+}
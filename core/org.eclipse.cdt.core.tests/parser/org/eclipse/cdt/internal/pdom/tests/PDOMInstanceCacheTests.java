@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.pdom.tests;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.Test;
+
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPClassTemplate;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateInstance;
+import org.eclipse.cdt.core.index.IndexFilter;
+import org.eclipse.cdt.core.testplugin.util.TestSourceReader;
+import org.eclipse.cdt.internal.core.pdom.dom.PDOMBinding;
+import org.eclipse.cdt.internal.core.pdom.dom.PDOMNode;
+import org.eclipse.cdt.internal.core.pdom.dom.cpp.PDOMCPPLinkage;
+import org.eclipse.cdt.internal.core.pdom.dom.cpp.PDOMInstanceCache;
+
+/**
+ * Tests that the instances of a template found in the index are kept across read-locks, and that
+ * they are searched again after the index was changed.
+ */
+public class PDOMInstanceCacheTests extends PDOMInlineCodeTestBase {
+
+	public static Test suite() {
+		return suite(PDOMInstanceCacheTests.class);
+	}
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		setUpSections(1);
+	}
+
+	private PDOMBinding getTemplate() throws Exception {
+		IBinding[] bindings= pdom.findBindings(new char[][] {"Foo".toCharArray()}, IndexFilter.ALL_DECLARED, npm());
+		assertEquals(1, bindings.length);
+		assertInstance(bindings[0], ICPPClassTemplate.class);
+		return (PDOMBinding) bindings[0];
+	}
+
+	private static Long getKey(PDOMBinding template) {
+		return template.getRecord() + PDOMCPPLinkage.CACHE_INSTANCES;
+	}
+
+	private static Set<Long> getInstanceRecords(PDOMBinding template) {
+		Set<Long> records= new HashSet<Long>();
+		for (ICPPTemplateInstance instance : PDOMInstanceCache.getCache(template).getAllInstances()) {
+			records.add(((PDOMNode) instance).getRecord());
+		}
+		return records;
+	}
+
+	//	template<typename T> class Foo {};
+	//	Foo<int> a;
+	//	Foo<char> b;
+	public void testInstancesAreKeptAcrossReadLocks() throws Exception {
+		PDOMBinding template= getTemplate();
+		Set<Long> instances= getInstanceRecords(template);
+		assertEquals(2, instances.size());
+		Object indexInstances= pdom.getIndexCachedResult(getKey(template));
+		assertNotNull(indexInstances);
+
+		// A second AST holds a new read-lock.
+		pdom.releaseReadLock();
+		pdom.acquireReadLock();
+		template= getTemplate();
+		assertEquals(instances, getInstanceRecords(template));
+		// The instances were taken from the index cache, not searched again.
+		assertSame(indexInstances, pdom.getIndexCachedResult(getKey(template)));
+	}
+
+	//	template<typename T> class Foo {};
+	//	Foo<int> a;
+	public void testInstanceAddedToIndexIsFound() throws Exception {
+		PDOMBinding template= getTemplate();
+		assertEquals(1, getInstanceRecords(template).size());
+		assertNotNull(pdom.getIndexCachedResult(getKey(template)));
+
+		// The indexer adds the instance under the write-lock.
+		pdom.releaseReadLock();
+		TestSourceReader.createFile(cproject.getProject(), "more.cpp",
+				"template<typename T> class Foo {};\nFoo<double> c;\n");
+		waitForIndexer(cproject);
+		pdom.acquireReadLock();
+
+		template= getTemplate();
+		assertEquals(2, getInstanceRecords(template).size());
+	}
+
+	//	template<typename T> class Foo {};
+	//	Foo<int> a;
+	public void testWriteLockDiscardsIndexResults() throws Exception {
+		PDOMBinding template= getTemplate();
+		getInstanceRecords(template);
+		Long key= getKey(template);
+		assertNotNull(pdom.getIndexCachedResult(key));
+
+		pdom.acquireWriteLock(1);
+		try {
+			// The index may change while the write-lock is held.
+			assertNull(pdom.getIndexCachedResult(key));
+			pdom.putIndexCachedResult(key, "value");
+			assertNull(pdom.getIndexCachedResult(key));
+		} finally {
+			pdom.releaseWriteLock(1, false);
+		}
+		assertNull(pdom.getIndexCachedResult(key));
+
+		// The next AST searches the index again.
+		pdom.releaseReadLock();
+		pdom.acquireReadLock();
+		template= getTemplate();
+		assertEquals(1, getInstanceRecords(template).size());
+		assertNotNull(pdom.getIndexCachedResult(key));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2012 QNX Software Systems and others.
+ * Copyright (c) 2006, 2013 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -29,6 +29,10 @@ public class PDOMTests extends TestSuite {
 		suite.addTest(PDOMCBugsTest.suite());
 		suite.addTest(PDOMCPPBugsTest.suite());
 		suite.addTest(PDOMSearchTest.suite());
+		suite.addTest(NamePatternFilterTests.suite());
+		suite.addTest(SourceFilePrefetcherTests.suite());
+		suite.addTest(TeamPDOMChunksTests.suite());
+		suite.addTest(PDOMInstanceCacheTests.suite());
 		suite.addTest(PDOMLocationTests.suite());
 		suite.addTest(PDOMProviderTests.suite());
 		suite.addTest(EnumerationTests.suite());
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.pdom.tests;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.Test;
+
+import org.eclipse.cdt.core.index.IIndexFileLocation;
+import org.eclipse.cdt.core.model.AbstractLanguage;
+import org.eclipse.cdt.core.parser.FileContent;
+import org.eclipse.cdt.core.parser.IScannerInfo;
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.cdt.internal.core.parser.scanner.InternalFileContent;
+import org.eclipse.cdt.internal.core.pdom.AbstractIndexerTask.UnusedHeaderStrategy;
+import org.eclipse.cdt.internal.core.pdom.IndexerInputAdapter;
+import org.eclipse.cdt.internal.core.pdom.SourceFilePrefetcher;
+
+/**
+ * Tests for reading source files ahead of the indexer.
+ */
+public class SourceFilePrefetcherTests extends BaseTestCase {
+	/**
+	 * Input adapter that records the files which are read.
+	 */
+	private static class RecordingInputAdapter extends IndexerInputAdapter {
+		final List<Object> fRead= Collections.synchronizedList(new ArrayList<Object>());
+
+		@Override
+		public FileContent getCodeReader(Object tu) {
+			fRead.add(tu);
+			return FileContent.create(tu.toString(), ("int " + tu + ";").toCharArray());
+		}
+
+		@Override public IIndexFileLocation resolveASTPath(String astFilePath) { return null; }
+		@Override public IIndexFileLocation resolveIncludeFile(String includePath) { return null; }
+		@Override public boolean doesIncludeFileExist(String includePath) { return false; }
+		@Override public String getASTPath(IIndexFileLocation ifl) { return null; }
+		@Override public boolean isSource(String astFilePath) { return true; }
+		@Override public long getFileSize(String astFilePath) { return 0; }
+		@Override public boolean isCaseInsensitiveFileSystem() { return false; }
+		@Override public Object getInputFile(IIndexFileLocation location) { return null; }
+		@Override public long getLastModified(IIndexFileLocation location) { return 0; }
+		@Override public long getFileSize(IIndexFileLocation location) { return 0; }
+		@Override public String getEncoding(IIndexFileLocation location) { return null; }
+		@Override public IIndexFileLocation resolveFile(Object tu) { return null; }
+		@Override public boolean isSourceUnit(Object tu) { return true; }
+		@Override public boolean isFileBuildConfigured(Object tu) { return true; }
+		@Override public boolean isIndexedOnlyIfIncluded(Object tu) { return false; }
+		@Override public boolean isIndexedUnconditionally(IIndexFileLocation location) { return false; }
+		@Override public boolean canBePartOfSDK(IIndexFileLocation ifl) { return false; }
+		@Override public AbstractLanguage[] getLanguages(Object tu, UnusedHeaderStrategy strat) { return null; }
+		@Override public IScannerInfo getBuildConfiguration(int linkageID, Object tu) { return null; }
+	}
+
+	private RecordingInputAdapter fAdapter;
+	private SourceFilePrefetcher fPrefetcher;
+
+	public static Test suite() {
+		return suite(SourceFilePrefetcherTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fAdapter= new RecordingInputAdapter();
+		fPrefetcher= new SourceFilePrefetcher(fAdapter);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fPrefetcher.dispose();
+		super.tearDown();
+	}
+
+	private String getSource(FileContent content) {
+		return ((InternalFileContent) content).getSource().toString();
+	}
+
+	public void testTakePrefetchedContent() throws Exception {
+		fPrefetcher.prefetch("a");
+		FileContent content= fPrefetcher.take("a");
+		assertNotNull(content);
+		assertEquals("int a;", getSource(content));
+		// Content can be taken only once.
+		assertNull(fPrefetcher.take("a"));
+		assertNull(fPrefetcher.take("b"));
+	}
+
+	public void testIndexerOrder() throws Exception {
+		// The indexer starts reading the next file before it takes the current one.
+		String[] files= { "a", "b", "c", "d" };
+		fPrefetcher.prefetch(files[0]);
+		for (int i= 0; i < files.length; i++) {
+			if (i + 1 < files.length) {
+				fPrefetcher.prefetch(files[i + 1]);
+			}
+			FileContent content= fPrefetcher.take(files[i]);
+			assertNotNull(files[i], content);
+			assertEquals("int " + files[i] + ";", getSource(content));
+		}
+		// Every file was read exactly once.
+		assertEquals(files.length, fAdapter.fRead.size());
+	}
+
+	public void testCancel() throws Exception {
+		fPrefetcher.prefetch("a");
+		fPrefetcher.cancel();
+		assertNull(fPrefetcher.take("a"));
+	}
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.pdom.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.Test;
+
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.cdt.internal.core.pdom.TeamPDOMChunks;
+import org.eclipse.cdt.internal.core.pdom.db.Database;
+
+/**
+ * Tests for the incremental export and import of team shared indexes.
+ */
+public class TeamPDOMChunksTests extends BaseTestCase {
+	private File fBase;
+	private File fTarget;
+
+	public static Test suite() {
+		return suite(TeamPDOMChunksTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fBase = File.createTempFile("pdombase", "db");
+		fTarget = File.createTempFile("pdomtarget", "db");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fBase.delete();
+		fTarget.delete();
+		super.tearDown();
+	}
+
+	private static void write(File file, byte[] content) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static byte[] read(File file) throws IOException {
+		byte[] content = new byte[(int) file.length()];
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try {
+			in.readFully(content);
+		} finally {
+			in.close();
+		}
+		return content;
+	}
+
+	private byte[] createDelta(byte[] base, byte[] target, int expectedChunks) throws IOException {
+		write(fBase, base);
+		write(fTarget, target);
+		TeamPDOMChunks baseChunks = TeamPDOMChunks.compute(fBase);
+		TeamPDOMChunks targetChunks = TeamPDOMChunks.compute(fTarget);
+		ByteArrayOutputStream delta = new ByteArrayOutputStream();
+		assertEquals(expectedChunks, targetChunks.writeDelta(fTarget, baseChunks, delta));
+		return delta.toByteArray();
+	}
+
+	private void checkRoundTrip(byte[] base, byte[] target, int expectedChunks) throws IOException {
+		byte[] delta = createDelta(base, target, expectedChunks);
+		TeamPDOMChunks baseChunks = TeamPDOMChunks.compute(fBase);
+		TeamPDOMChunks targetChunks = TeamPDOMChunks.compute(fTarget);
+		assertEquals(expectedChunks, targetChunks.applyDelta(fBase, baseChunks, new ByteArrayInputStream(delta)));
+		assertTrue(Arrays.equals(target, read(fBase)));
+	}
+
+	public void testModifiedChunks() throws Exception {
+		byte[] base = new byte[10 * Database.CHUNK_SIZE];
+		new Random(4711).nextBytes(base);
+		byte[] target = base.clone();
+		target[3 * Database.CHUNK_SIZE + 17] ^= 1;
+		target[7 * Database.CHUNK_SIZE] ^= 1;
+		checkRoundTrip(base, target, 2);
+		checkRoundTrip(base, base.clone(), 0);
+	}
+
+	public void testChangedLength() throws Exception {
+		byte[] base = new byte[10 * Database.CHUNK_SIZE];
+		new Random(4711).nextBytes(base);
+		checkRoundTrip(base, Arrays.copyOf(base, 12 * Database.CHUNK_SIZE + 5), 3);
+		checkRoundTrip(base, Arrays.copyOf(base, 4 * Database.CHUNK_SIZE), 0);
+		checkRoundTrip(base, Arrays.copyOf(base, 4 * Database.CHUNK_SIZE + 5), 1);
+	}
+
+	public void testChunkTablePersistence() throws Exception {
+		byte[] content = new byte[3 * Database.CHUNK_SIZE + 100];
+		new Random(4711).nextBytes(content);
+		write(fBase, content);
+		TeamPDOMChunks chunks = TeamPDOMChunks.compute(fBase);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		chunks.write(out);
+		TeamPDOMChunks copy = TeamPDOMChunks.read(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(chunks.getLength(), copy.getLength());
+		assertEquals(4, copy.getChunkCount());
+		assertTrue(Arrays.equals(chunks.getIdentity(), copy.getIdentity()));
+	}
+
+	public void testRejectsDifferentBase() throws Exception {
+		Random random = new Random(4711);
+		byte[] base = new byte[4 * Database.CHUNK_SIZE];
+		random.nextBytes(base);
+		byte[] target = base.clone();
+		target[0] ^= 1;
+		byte[] delta = createDelta(base, target, 1);
+		TeamPDOMChunks targetChunks = TeamPDOMChunks.compute(fTarget);
+
+		assertTrue(targetChunks.isDeltaOf(TeamPDOMChunks.compute(fBase), new ByteArrayInputStream(delta)));
+
+		byte[] other = base.clone();
+		other[2 * Database.CHUNK_SIZE] ^= 1;
+		write(fBase, other);
+		assertFalse(targetChunks.isDeltaOf(TeamPDOMChunks.compute(fBase), new ByteArrayInputStream(delta)));
+		try {
+			targetChunks.applyDelta(fBase, TeamPDOMChunks.compute(fBase), new ByteArrayInputStream(delta));
+			fail("Delta must not be applied to a different base");
+		} catch (IOException e) {
+		}
+		// The base is not modified.
+		assertTrue(Arrays.equals(other, read(fBase)));
+	}
+}
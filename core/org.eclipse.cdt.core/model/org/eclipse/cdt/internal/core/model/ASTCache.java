@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2012 Wind River Systems, Inc. and others. All rights reserved.
+ * Copyright (c) 2007, 2013 Wind River Systems, Inc. and others. All rights reserved.
  * This program and the accompanying materials are made available under the
  * terms of the Eclipse Public License v1.0 which accompanies this distribution,
  * and is available at http://www.eclipse.org/legal/epl-v10.html
@@ -11,10 +11,25 @@
  ******************************************************************************/
 package org.eclipse.cdt.internal.core.model;
 
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.dom.ast.ASTGenericVisitor;
+import org.eclipse.cdt.core.dom.ast.IASTNode;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 import org.eclipse.cdt.core.index.IIndex;
+import org.eclipse.cdt.core.index.IIndexChangeEvent;
+import org.eclipse.cdt.core.index.IIndexChangeListener;
 import org.eclipse.cdt.core.index.IIndexManager;
+import org.eclipse.cdt.core.model.CoreModel;
+import org.eclipse.cdt.core.model.ElementChangedEvent;
+import org.eclipse.cdt.core.model.ICElement;
+import org.eclipse.cdt.core.model.ICElementDelta;
+import org.eclipse.cdt.core.model.ICProject;
+import org.eclipse.cdt.core.model.IElementChangedListener;
 import org.eclipse.cdt.core.model.ILanguage;
 import org.eclipse.cdt.core.model.ITranslationUnit;
 import org.eclipse.cdt.internal.core.dom.parser.ASTTranslationUnit;
@@ -28,7 +43,11 @@ import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.core.runtime.Status;
 
 /**
- * Provides a shared AST of a single translation unit at a time.
+ * Provides a shared AST of a single translation unit at a time. In addition, ASTs of translation
+ * units that are no longer active, or that have been requested while not being active, are kept
+ * in a least recently used cache bounded by an estimate of their memory usage. The latter cache
+ * is disabled unless a memory budget is configured. Its ASTs are discarded when their translation
+ * units are removed or their projects are closed, and when the index of their project changes.
  *
  * @since 4.0
  */
@@ -45,6 +64,18 @@ public class ASTCache {
 			| ITranslationUnit.AST_SKIP_TRIVIAL_EXPRESSIONS_IN_AGGREGATE_INITIALIZERS
 			| ITranslationUnit.AST_PARSE_INACTIVE_CODE;
 
+	/**
+	 * System property for the memory budget, in megabytes, of the ASTs cached for translation
+	 * units that are not active. A value of zero, the default, disables the cache.
+	 */
+	private static final String CACHE_BUDGET_PROPERTY= "org.eclipse.cdt.core.astCacheBudget"; //$NON-NLS-1$
+	private static final long DEFAULT_CACHE_BUDGET_MB= 0;
+	/**
+	 * Rough estimate of the memory used per node of an AST, including the bindings and types
+	 * computed for its names and expressions.
+	 */
+	private static final int AST_BYTES_PER_NODE= 200;
+
 	/**
 	 * Do something with an AST.
 	 *
@@ -61,6 +92,75 @@ public class ASTCache {
 		IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) throws CoreException;
 	}
 
+	/**
+	 * An AST of a translation unit that is not active.
+	 */
+	private static class CacheEntry {
+		final IASTTranslationUnit fAST;
+		final char[] fContents;
+		final long fLastWriteOnIndex;
+		final long fSize;
+
+		CacheEntry(IASTTranslationUnit ast, char[] contents, long lastWriteOnIndex) {
+			fAST= ast;
+			fContents= contents;
+			fLastWriteOnIndex= lastWriteOnIndex;
+			fSize= estimateSize(ast) + (long) contents.length * 2;
+		}
+
+		long getSize() {
+			return fSize;
+		}
+	}
+
+	/**
+	 * Estimates the memory used by the given AST from the number of its nodes. The nodes of
+	 * headers are counted as well, in case they have been parsed.
+	 */
+	private static long estimateSize(IASTTranslationUnit ast) {
+		final long[] count= { 0 };
+		ast.accept(new ASTGenericVisitor(true) {
+			@Override
+			protected int genericVisit(IASTNode node) {
+				count[0]++;
+				return PROCESS_CONTINUE;
+			}
+		});
+		count[0]+= ast.getAllPreprocessorStatements().length + ast.getComments().length;
+		return count[0] * AST_BYTES_PER_NODE;
+	}
+
+	/**
+	 * Discards the ASTs of inactive translation units that have been removed, whose project
+	 * has been closed, or that have been invalidated by a write to the index of their project.
+	 */
+	private class InactiveASTListener implements IElementChangedListener, IIndexChangeListener {
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			synchronized (fCacheMutex) {
+				processDelta(event.getDelta());
+			}
+		}
+
+		private void processDelta(ICElementDelta delta) {
+			if (delta.getKind() == ICElementDelta.REMOVED
+					|| (delta.getFlags() & ICElementDelta.F_CLOSED) != 0) {
+				removeInactiveASTs(delta.getElement(), false);
+				return;
+			}
+			for (ICElementDelta child : delta.getAffectedChildren()) {
+				processDelta(child);
+			}
+		}
+
+		@Override
+		public void indexChanged(IIndexChangeEvent event) {
+			synchronized (fCacheMutex) {
+				removeInactiveASTs(event.getAffectedProject(), true);
+			}
+		}
+	}
+
 	private final int fParseMode;
 	private final Object fCacheMutex= new Object();
 
@@ -76,12 +176,38 @@ public class ASTCache {
 	private long fLastWriteOnIndex;
 	/** Indicates whether the AST is currently being computed */
 	private boolean fIsReconciling;
+	/** The contents of the active translation unit from which the AST was created */
+	private char[] fContents;
+	/** The contents of the active translation unit when reconciling started */
+	private char[] fReconcilingContents;
+
+	/** ASTs of translation units that are not active, least recently used first */
+	private final LinkedHashMap<ITranslationUnit, CacheEntry> fInactiveASTs=
+			new LinkedHashMap<ITranslationUnit, CacheEntry>(16, 0.75f, true);
+	private final long fMaxInactiveSize;
+	private long fInactiveSize;
+	private final InactiveASTListener fInactiveASTListener= new InactiveASTListener();
+	/** Whether the listener is registered, which is the case while there are inactive ASTs */
+	private boolean fIsListening;
+	private int fHits;
+	private int fMisses;
 
 	/**
 	 * Create a new AST cache.
 	 */
 	public ASTCache() {
+		this(Long.getLong(CACHE_BUDGET_PROPERTY, DEFAULT_CACHE_BUDGET_MB).longValue() * 1024 * 1024);
+	}
+
+	/**
+	 * Create a new AST cache keeping the ASTs of translation units that are not active.
+	 *
+	 * @param maxInactiveSize  the estimated memory, in bytes, that the ASTs of translation units
+	 *     that are not active may use, zero to not keep these ASTs
+	 */
+	public ASTCache(long maxInactiveSize) {
 		fParseMode= PARSE_MODE;
+		fMaxInactiveSize= maxInactiveSize;
 	}
 
 	/**
@@ -107,6 +233,9 @@ public class ASTCache {
 			if (progressMonitor != null && progressMonitor.isCanceled())
 				return null;
 
+			// Reading the contents may block on the buffer of a working copy, it is done
+			// without holding the cache lock and only when there is an AST to validate.
+			final char[] currentContents= hasInactiveAST(tUnit) ? tUnit.getContents() : null;
 			final boolean isActiveElement;
 			synchronized (fCacheMutex) {
 				isActiveElement= tUnit.equals(fActiveTU);
@@ -120,6 +249,19 @@ public class ASTCache {
 							// cached AST is valid
 							if (DEBUG)
 								System.out.println(DEBUG_PREFIX + getThreadName() + "returning cached AST:" + toString(fAST) + " for: " + tUnit.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
+							fHits++;
+							return fAST;
+						}
+					}
+					if (!fIsReconciling) {
+						// the AST may have been cached while the element was not active
+						CacheEntry entry= getInactiveAST(tUnit, index, currentContents);
+						if (entry != null) {
+							removeInactiveAST(tUnit);
+							fAST= entry.fAST;
+							fContents= entry.fContents;
+							fLastWriteOnIndex= entry.fLastWriteOnIndex;
+							fHits++;
 							return fAST;
 						}
 					}
@@ -149,14 +291,27 @@ public class ASTCache {
 					} catch (InterruptedException e) {
 						return null; // thread has been interrupted don't compute AST
 					}
-				} else if (!wait) {
-					return null;
+				} else if (!isActiveElement) {
+					CacheEntry entry= getInactiveAST(tUnit, index, currentContents);
+					if (entry != null) {
+						if (DEBUG)
+							System.out.println(DEBUG_PREFIX + getThreadName() + "returning cached inactive AST for: " + tUnit.getElementName()); //$NON-NLS-1$
+						fHits++;
+						return entry.fAST;
+					}
+					if (!wait)
+						return null;
 				}
+				fMisses++;
 			}
 
 			if (isActiveElement)
 				aboutToBeReconciled(tUnit);
 
+			// Capture the contents before parsing, such that a concurrent modification
+			// invalidates the cached AST.
+			final char[] contents= isActiveElement || fMaxInactiveSize <= 0 ? null : tUnit.getContents();
+
 			if (DEBUG)
 				System.err.println(DEBUG_PREFIX + getThreadName() + "creating AST for " + tUnit.getElementName()); //$NON-NLS-1$
 
@@ -167,6 +322,13 @@ public class ASTCache {
 					ast= null;
 				else if (DEBUG && ast != null)
 					System.err.println(DEBUG_PREFIX + getThreadName() + "created AST for: " + tUnit.getElementName()); //$NON-NLS-1$
+				if (ast != null && contents != null) {
+					CacheEntry entry= new CacheEntry(ast, contents, ast.getIndex().getLastWriteAccess());
+					synchronized (fCacheMutex) {
+						if (!tUnit.equals(fActiveTU))
+							cacheInactiveAST(tUnit, entry);
+					}
+				}
 			} finally {
 				if (isActiveElement) {
 					if (fAST != null) {
@@ -294,6 +456,8 @@ public class ASTCache {
 
 		fAST= ast;
 		fLastWriteOnIndex= fAST == null ? 0 : fAST.getIndex().getLastWriteAccess();
+		fContents= fAST == null ? null : fReconcilingContents;
+		fReconcilingContents= null;
 
 		// Signal AST change
 		fCacheMutex.notifyAll();
@@ -362,6 +526,10 @@ public class ASTCache {
 			return;
 		}
 		synchronized (fCacheMutex) {
+			if (fAST != null && fContents != null && !fIsReconciling) {
+				cacheInactiveAST(fActiveTU, new CacheEntry(fAST, fContents, fLastWriteOnIndex));
+				fAST= null;
+			}
 			fIsReconciling= false;
 			fActiveTU= tUnit;
 			cache(null, tUnit);
@@ -392,6 +560,9 @@ public class ASTCache {
 		if (tUnit == null)
 			return;
 
+		// The AST is created from these or newer contents, a newer AST is never cached for
+		// older contents. They are read without holding the cache lock.
+		final char[] contents= fMaxInactiveSize > 0 ? tUnit.getContents() : null;
 		synchronized (fCacheMutex) {
 			if (fActiveTU == null || !fActiveTU.equals(tUnit)) {
 				return;
@@ -401,7 +572,9 @@ public class ASTCache {
 				System.out.println(DEBUG_PREFIX + getThreadName() + "about to reconcile: " + toString(tUnit)); //$NON-NLS-1$
 
 			fIsReconciling= true;
+			removeInactiveAST(tUnit);
 			cache(null, tUnit);
+			fReconcilingContents= contents;
 		}
 	}
 
@@ -442,6 +615,162 @@ public class ASTCache {
 		}
 	}
 
+	/**
+	 * Returns whether an AST is cached for the given translation unit while it is not active.
+	 */
+	private boolean hasInactiveAST(ITranslationUnit tUnit) {
+		synchronized (fCacheMutex) {
+			return fInactiveASTs.containsKey(tUnit);
+		}
+	}
+
+	/**
+	 * Returns the cached AST of a translation unit that is not active, provided it is still
+	 * valid for the given index and the given current contents of the translation unit.
+	 * Without the current contents, which were read before acquiring the cache lock, the
+	 * AST cannot be validated and <code>null</code> is returned.
+	 */
+	private CacheEntry getInactiveAST(ITranslationUnit tUnit, IIndex index, char[] currentContents) {
+		assert Thread.holdsLock(fCacheMutex);
+		if (currentContents == null)
+			return null;
+		CacheEntry entry= fInactiveASTs.get(tUnit);
+		if (entry == null)
+			return null;
+		if (entry.fLastWriteOnIndex < index.getLastWriteAccess()
+				|| !Arrays.equals(entry.fContents, currentContents)) {
+			removeInactiveAST(tUnit);
+			return null;
+		}
+		return entry;
+	}
+
+	private void cacheInactiveAST(ITranslationUnit tUnit, CacheEntry entry) {
+		assert Thread.holdsLock(fCacheMutex);
+		if (fMaxInactiveSize <= 0 || tUnit == null)
+			return;
+		final long size= entry.getSize();
+		if (size > fMaxInactiveSize)
+			return;
+		removeInactiveAST(tUnit);
+		fInactiveASTs.put(tUnit, entry);
+		fInactiveSize+= size;
+		for (Iterator<CacheEntry> it= fInactiveASTs.values().iterator(); fInactiveSize > fMaxInactiveSize && it.hasNext();) {
+			fInactiveSize-= it.next().getSize();
+			it.remove();
+		}
+		updateListener();
+		if (DEBUG)
+			System.out.println(DEBUG_PREFIX + getThreadName() + "cached inactive AST for: " + toString(tUnit) + ", " + fInactiveASTs.size() + " ASTs, ~" + fInactiveSize / 1024 + "KB"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+
+	private void removeInactiveAST(ITranslationUnit tUnit) {
+		CacheEntry old= fInactiveASTs.remove(tUnit);
+		if (old != null) {
+			fInactiveSize-= old.getSize();
+			updateListener();
+		}
+	}
+
+	/**
+	 * Removes the ASTs of the inactive translation units that are the given element or are
+	 * contained in it. Optionally only the ASTs that are outdated by a later index write
+	 * access are removed, as the notification of a change may arrive late.
+	 */
+	private void removeInactiveASTs(ICElement element, boolean onlyIfOutdated) {
+		assert Thread.holdsLock(fCacheMutex);
+		if (element == null)
+			return;
+		for (Iterator<Map.Entry<ITranslationUnit, CacheEntry>> it= fInactiveASTs.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<ITranslationUnit, CacheEntry> entry= it.next();
+			final CacheEntry cached= entry.getValue();
+			if (isContainedIn(entry.getKey(), element) && (!onlyIfOutdated
+					|| cached.fLastWriteOnIndex < cached.fAST.getIndex().getLastWriteAccess())) {
+				if (DEBUG)
+					System.out.println(DEBUG_PREFIX + getThreadName() + "discarding inactive AST for: " + toString(entry.getKey())); //$NON-NLS-1$
+				fInactiveSize-= cached.getSize();
+				it.remove();
+			}
+		}
+		updateListener();
+	}
+
+	private static boolean isContainedIn(ITranslationUnit tUnit, ICElement element) {
+		if (element instanceof ICProject)
+			return element.equals(tUnit.getCProject());
+		for (ICElement e= tUnit; e != null; e= e.getParent()) {
+			if (e.equals(element))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Listens to changes of the model and the index only while there are inactive ASTs.
+	 */
+	private void updateListener() {
+		assert Thread.holdsLock(fCacheMutex);
+		final boolean listen= !fInactiveASTs.isEmpty();
+		if (listen == fIsListening)
+			return;
+		fIsListening= listen;
+		if (listen) {
+			CoreModel.getDefault().addElementChangedListener(fInactiveASTListener);
+			CCorePlugin.getIndexManager().addIndexChangeListener(fInactiveASTListener);
+		} else {
+			CoreModel.getDefault().removeElementChangedListener(fInactiveASTListener);
+			CCorePlugin.getIndexManager().removeIndexChangeListener(fInactiveASTListener);
+		}
+	}
+
+	/**
+	 * Discards the ASTs of all translation units that are not active.
+	 */
+	public void disposeInactiveASTs() {
+		synchronized (fCacheMutex) {
+			fInactiveASTs.clear();
+			fInactiveSize= 0;
+			updateListener();
+		}
+	}
+
+	/**
+	 * Returns the number of ASTs kept for translation units that are not active.
+	 */
+	public int getInactiveASTCount() {
+		synchronized (fCacheMutex) {
+			return fInactiveASTs.size();
+		}
+	}
+
+	/**
+	 * Returns the estimated memory, in bytes, used by the ASTs of translation units that
+	 * are not active.
+	 */
+	public long getInactiveASTSize() {
+		synchronized (fCacheMutex) {
+			return fInactiveSize;
+		}
+	}
+
+	/**
+	 * Returns the number of requests that were served with a cached AST.
+	 */
+	public int getHitCount() {
+		synchronized (fCacheMutex) {
+			return fHits;
+		}
+	}
+
+	/**
+	 * Returns the number of requests for which an AST had to be created.
+	 */
+	public int getMissCount() {
+		synchronized (fCacheMutex) {
+			return fMisses;
+		}
+	}
+
 	private static String getThreadName() {
 		String name= Thread.currentThread().getName();
 		if (name != null)
@@ -61,6 +61,10 @@ abstract public class CPPScope implements ICPPASTInternalScope {
 	private boolean isCached = false;
 	protected CharArrayObjectMap<Object> bindings;
 	private ICPPNamespace fIndexNamespace= UNINITIALIZED;
+	private ICPPNamespace fIndexNamespaceForLookup;
+	private CharArrayObjectMap<IBinding[]> fIndexBindings;
+	private int fIndexLookups;
+	private int fIndexLookupCacheHits;
 
 	public static class CPPScopeProblem extends ProblemBinding implements ICPPScope {
         public CPPScopeProblem(IASTNode node, int id, char[] arg) {
@@ -133,8 +137,7 @@ abstract public class CPPScope implements ICPPASTInternalScope {
 				// Try looking this up in the index.
 				if (physicalNode instanceof IASTTranslationUnit) {
 					try {
-						IBinding[] bindings= index.findBindings(nchars,
-								IndexFilter.CPP_DECLARED_OR_IMPLICIT_NO_INSTANCE, NPM);
+						IBinding[] bindings= findIndexBindings(index, nchars);
 						if (fileSet != null) {
 							bindings= fileSet.filterFileLocalBindings(bindings);
 						}
@@ -195,7 +198,7 @@ abstract public class CPPScope implements ICPPASTInternalScope {
 						final char[] nchars = lookup.getLookupKey();
 						IBinding[] bindings = lookup.isPrefixLookup() ?
 								index.findBindingsForContentAssist(nchars, true, filter, null) :
-								index.findBindings(nchars, filter, null);
+								findIndexBindings(index, nchars);
 						if (fileSet != null) {
 							bindings= fileSet.filterFileLocalBindings(bindings);
 						}
@@ -206,9 +209,14 @@ abstract public class CPPScope implements ICPPASTInternalScope {
 				} else if (physicalNode instanceof ICPPASTNamespaceDefinition) {
 					ICPPASTNamespaceDefinition ns = (ICPPASTNamespaceDefinition) physicalNode;
 					try {
-						IIndexBinding binding = index.findBinding(ns.getName());
-						if (binding instanceof ICPPNamespace) {
-							ICPPNamespaceScope indexNs = ((ICPPNamespace) binding).getNamespaceScope();
+						if (fIndexNamespaceForLookup == null) {
+							IIndexBinding binding = index.findBinding(ns.getName());
+							if (binding instanceof ICPPNamespace) {
+								fIndexNamespaceForLookup = (ICPPNamespace) binding;
+							}
+						}
+						if (fIndexNamespaceForLookup != null) {
+							ICPPNamespaceScope indexNs = fIndexNamespaceForLookup.getNamespaceScope();
 							IBinding[] bindings = indexNs.getBindings(lookup);
 							result = ArrayUtil.addAll(IBinding.class, result, bindings);
 						}
@@ -222,6 +230,44 @@ abstract public class CPPScope implements ICPPASTInternalScope {
 		return ArrayUtil.trim(IBinding.class, result);
 	}
 
+	/**
+	 * Searches the index for bindings with the given name. The index does not change during the
+	 * lifetime of the AST, therefore the results are kept with the scope. The file-set of the
+	 * lookup is applied by the callers, so the results do not depend on the point of the lookup.
+	 */
+	private IBinding[] findIndexBindings(IIndex index, char[] name) throws CoreException {
+		fIndexLookups++;
+		if (fIndexBindings == null) {
+			fIndexBindings= new CharArrayObjectMap<IBinding[]>(16);
+		}
+		IBinding[] bindings= fIndexBindings.get(name);
+		if (bindings == null) {
+			bindings= index.findBindings(name, IndexFilter.CPP_DECLARED_OR_IMPLICIT_NO_INSTANCE, NPM);
+			if (bindings == null)
+				bindings= IBinding.EMPTY_BINDING_ARRAY;
+			fIndexBindings.put(name, bindings);
+		} else {
+			fIndexLookupCacheHits++;
+		}
+		// Callers may modify the array.
+		return bindings.clone();
+	}
+
+	/**
+	 * Returns the number of lookups in the index performed for names of this scope.
+	 */
+	public int getIndexLookupCount() {
+		return fIndexLookups;
+	}
+
+	/**
+	 * Returns the number of lookups in the index that have been answered from the results kept
+	 * with this scope.
+	 */
+	public int getIndexLookupCacheHits() {
+		return fIndexLookupCacheHits;
+	}
+
 	public IBinding[] getBindingsInAST(ScopeLookupData lookup) {
 		populateCache();
 	    final char[] c = lookup.getLookupKey();
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.index;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.eclipse.cdt.internal.core.parser.scanner.AbstractCharArray;
+import org.eclipse.cdt.internal.core.parser.scanner.ByteCharArray;
+import org.eclipse.cdt.internal.core.parser.scanner.CharArray;
+import org.eclipse.cdt.internal.core.parser.scanner.InternalFileContent;
+import org.eclipse.cdt.internal.core.parser.scanner.InternalFileContent.InclusionKind;
+
+/**
+ * Bounded cache for the content of header files that have to be parsed in more than one
+ * translation unit of an indexer task. The content is kept as decoded characters, such that
+ * the header is neither read from disk nor decoded nor hashed again. The size of the cache is
+ * limited by the total number of cached characters, the least recently used content is evicted
+ * first.
+ */
+public final class HeaderContentCache {
+	private static final class Entry {
+		final AbstractCharArray fSource;
+		final long fTimestamp;
+		final long fFileSize;
+		final long fReadTime;
+
+		Entry(AbstractCharArray source, long timestamp, long fileSize, long readTime) {
+			fSource= source;
+			fTimestamp= timestamp;
+			fFileSize= fileSize;
+			fReadTime= readTime;
+		}
+	}
+
+	private final LinkedHashMap<String, Entry> fEntries= new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private final long fMaxChars;
+	private long fCachedChars;
+	private int fHits;
+	private int fMisses;
+
+	/**
+	 * @param maxChars the maximum number of characters held by the cache.
+	 */
+	public HeaderContentCache(long maxChars) {
+		fMaxChars= maxChars;
+	}
+
+	/**
+	 * Returns a new file content for the given path created from the cached characters, or
+	 * <code>null</code> if the content of the file is not cached.
+	 */
+	public InternalFileContent get(String path) {
+		Entry entry= fEntries.get(path);
+		if (entry == null) {
+			fMisses++;
+			return null;
+		}
+		fHits++;
+		return new InternalFileContent(path, entry.fSource, entry.fTimestamp, entry.fFileSize,
+				entry.fReadTime);
+	}
+
+	/**
+	 * Stores the characters of the given file content, provided they have been read completely
+	 * and fit into the cache.
+	 */
+	public void put(String path, InternalFileContent fc) {
+		if (fc.getKind() != InclusionKind.USE_SOURCE)
+			return;
+		AbstractCharArray source= fc.getSource();
+		if (!(source instanceof CharArray || source instanceof ByteCharArray) || source.hasError())
+			return;
+		final int length= source.getLength();
+		if (length > fMaxChars / 4)
+			return;
+
+		Entry old= fEntries.put(path, new Entry(source, fc.getTimestamp(),
+				fc.getFileSize(), fc.getReadTime()));
+		if (old != null) {
+			fCachedChars-= old.fSource.getLength();
+		}
+		fCachedChars+= length;
+		for (Iterator<Entry> it= fEntries.values().iterator(); fCachedChars > fMaxChars && it.hasNext();) {
+			fCachedChars-= it.next().fSource.getLength();
+			it.remove();
+		}
+	}
+
+	public void clear() {
+		fEntries.clear();
+		fCachedChars= 0;
+	}
+
+	public int getHits() {
+		return fHits;
+	}
+
+	public int getMisses() {
+		return fMisses;
+	}
+}
@@ -58,6 +58,8 @@ public final class IndexBasedFileContentProvider extends InternalFileContentProv
 	private long fFileSizeLimit= 0;
 	private IIndexFile[] fContextToHeaderGap;
 	private final Map<IIndexFileLocation, IFileNomination> fPragmaOnce= new HashMap<IIndexFileLocation, IFileNomination>();
+	/** Content of headers that are parsed in multiple translation units, used by the indexer only */
+	private final HeaderContentCache fHeaderContentCache;
 
 	public IndexBasedFileContentProvider(IIndex index,
 			ASTFilePathResolver pathResolver, int linkage, IncludeFileContentProvider fallbackFactory) {
@@ -71,6 +73,7 @@ public final class IndexBasedFileContentProvider extends InternalFileContentProv
 		fPathResolver= pathResolver;
 		fRelatedIndexerTask= relatedIndexerTask;
 		fLinkage= linkage;
+		fHeaderContentCache= relatedIndexerTask != null ? new HeaderContentCache(16 * 1024 * 1024) : null;
 	}
 
 	public void setContextToHeaderGap(IIndexFile[] ctxToHeader) {
@@ -147,7 +150,16 @@ public final class IndexBasedFileContentProvider extends InternalFileContentProv
 		}
 
 		if (fFallBackFactory != null) {
-			InternalFileContent ifc= getContentForInclusion(ifl, path);
+			InternalFileContent ifc= null;
+			if (fHeaderContentCache != null) {
+				ifc= fHeaderContentCache.get(path);
+			}
+			if (ifc == null) {
+				ifc= getContentForInclusion(ifl, path);
+				if (ifc != null && fHeaderContentCache != null) {
+					fHeaderContentCache.put(path, ifc);
+				}
+			}
 			if (ifc != null)
 				ifc.setIsSource(fPathResolver.isSource(path));
 			return ifc;
@@ -155,6 +167,20 @@ public final class IndexBasedFileContentProvider extends InternalFileContentProv
 		return null;
 	}
 
+	/**
+	 * Returns the number of header files whose content was taken from the cache.
+	 */
+	public int getHeaderCacheHits() {
+		return fHeaderContentCache != null ? fHeaderContentCache.getHits() : 0;
+	}
+
+	/**
+	 * Returns the number of header files whose content had to be read.
+	 */
+	public int getHeaderCacheMisses() {
+		return fHeaderContentCache != null ? fHeaderContentCache.getMisses() : 0;
+	}
+
 	public List<String> toPathList(Collection<IIndexFileLocation> newPragmaOnce) {
 		List<String> newPragmaOncePaths= new ArrayList<String>(newPragmaOnce.size());
 		for (IIndexFileLocation l : newPragmaOnce) {
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/ 
+package org.eclipse.cdt.internal.core.parser.scanner;
+
+/**
+ * Implementation of {@link AbstractCharArray} for content where every character is represented
+ * by a single byte (ISO-8859-1). Compared to {@link CharArray} it needs half of the memory.
+ */
+public final class ByteCharArray extends AbstractCharArray {
+	private final byte[] fArray;
+	private long hash64;
+
+	/**
+	 * @param array the ISO-8859-1 encoded characters, the array is not copied.
+	 */
+	public ByteCharArray(byte[] array) {
+		fArray= array;
+	}
+
+	@Override
+	public int getLength() {
+		return fArray.length;
+	}
+
+	@Override
+	public int tryGetLength() {
+		return fArray.length;
+	}
+
+	@Override
+	public char get(int pos) {
+		return (char) (fArray[pos] & 0xff);
+	}
+
+	@Override
+	public void arraycopy(int offset, char[] destination, int destPos, int length) {
+		for (int i= 0; i < length; i++) {
+			destination[destPos + i]= (char) (fArray[offset + i] & 0xff);
+		}
+	}
+
+	@Override
+	public boolean isValidOffset(int offset) {
+		return offset < fArray.length;
+	}
+
+	@Override
+	public boolean hasError() {
+		return false;
+	}
+
+	@Override
+	public long getContentsHash() {
+		if (hash64 == 0 && fArray.length != 0) {
+			StreamHasher hasher = new StreamHasher();
+			hasher.addChunk(fArray);
+			hash64 = hasher.computeHash();
+		}
+		return hash64;
+	}
+}
@@ -29,6 +29,8 @@ import org.eclipse.cdt.core.CCorePlugin;
  */
 public class FileCharArray extends LazyCharArray {
 	private static final String UTF8_CHARSET_NAME = "UTF-8"; //$NON-NLS-1$
+	private static final String US_ASCII_CHARSET_NAME = "US-ASCII"; //$NON-NLS-1$
+	private static final String ISO_8859_1_CHARSET_NAME = "ISO-8859-1"; //$NON-NLS-1$
 
 	public static AbstractCharArray create(String fileName, String charSet, InputStream in)
 			throws IOException {
@@ -55,12 +57,36 @@ public class FileCharArray extends LazyCharArray {
 		channel.read(byteBuffer);
 		byteBuffer.flip();
 		skipUTF8ByteOrderMark(byteBuffer, charSet);
-		
+
+		if (isSingleByteContent(byteBuffer, charSet)) {
+			byte[] bytes= new byte[byteBuffer.remaining()];
+			byteBuffer.get(bytes);
+			return new ByteCharArray(bytes);
+		}
 		CharBuffer charBuffer = Charset.forName(charSet).decode(byteBuffer);
 		char[] buf= extractChars(charBuffer);
 		return new CharArray(buf);
 	}
 
+	/**
+	 * Checks whether every byte of the buffer decodes to the character with the same value,
+	 * such that the content can be kept in a {@link ByteCharArray}.
+	 */
+	private static boolean isSingleByteContent(ByteBuffer buf, String charSet) {
+		final String name= Charset.forName(charSet).name();
+		if (ISO_8859_1_CHARSET_NAME.equals(name))
+			return true;
+		if (!UTF8_CHARSET_NAME.equals(name) && !US_ASCII_CHARSET_NAME.equals(name))
+			return false;
+		final byte[] array= buf.array();
+		final int end= buf.arrayOffset() + buf.limit();
+		for (int i= buf.arrayOffset() + buf.position(); i < end; i++) {
+			if (array[i] < 0)
+				return false;
+		}
+		return true;
+	}
+
 	private static void skipUTF8ByteOrderMark(ByteBuffer buf, String charset) {
 		if (charset.equals(UTF8_CHARSET_NAME) && buf.remaining() >= 3) {
 			int pos = buf.position();
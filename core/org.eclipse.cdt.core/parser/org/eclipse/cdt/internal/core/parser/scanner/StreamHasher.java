@@ -108,6 +108,37 @@ public final class StreamHasher {
 		}
 	}
 
+	/**
+	 * Adds a chunk of ISO-8859-1 encoded data to the hasher. The result is the same as for
+	 * adding the corresponding characters.
+	 * @param chunk Contents of the chunk.
+	 */
+	public void addChunk(byte[] chunk) {
+		for (int pos = 0; pos < chunk.length; pos++, hashedOffset++) {
+			char cc = (char) (chunk[pos] & 0xff);
+			switch (state++) {
+			case -1:
+				throw new IllegalStateException("addChunk is called after computeHash."); //$NON-NLS-1$
+			case 0:
+			case 2:
+			case 4:
+				previousCharacter = cc;
+				break;
+			case 1:
+				a += previousCharacter | (cc << 16);
+				break;
+			case 3:
+				b += previousCharacter | (cc << 16);
+				break;
+			case 5:
+				c += previousCharacter | (cc << 16);
+				mix();
+				state = 0;
+				break;
+			}
+		}
+	}
+
 	/**
 	 * Computes and returns the hash value. Must be called once after the last chunk.
 	 * @return The hash value of the character stream.
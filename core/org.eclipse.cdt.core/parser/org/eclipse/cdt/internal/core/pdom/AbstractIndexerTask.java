@@ -306,6 +306,7 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 	private long fFileSizeLimit= 0;
 	private InternalFileContentProvider fCodeReaderFactory;
 	private int fSwallowOutOfMemoryError= 5;
+	private SourceFilePrefetcher fPrefetcher;
 	/**
 	 * A queue of urgent indexing tasks that contribute additional files to this task.
 	 * The files from the urgent tasks are indexed before all not yet processed files.
@@ -322,6 +323,7 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 		Collections.addAll(fFilesToRemove, filesToRemove);
 		incrementRequestedFilesCount(fFilesToUpdate.length + fFilesToRemove.size());
 		fUrgentTasks = new LinkedList<AbstractIndexerTask>();
+		fPrefetcher= new SourceFilePrefetcher(resolver);
 	}
 
 	public final void setIndexHeadersWithoutContext(UnusedHeaderStrategy mode) {
@@ -575,6 +577,12 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 				fIndex.releaseReadLock();
 			}
 		} finally {
+			if (fCodeReaderFactory instanceof IndexBasedFileContentProvider) {
+				IndexBasedFileContentProvider ibfcp = (IndexBasedFileContentProvider) fCodeReaderFactory;
+				fStatistics.fHeaderCacheHits= ibfcp.getHeaderCacheHits();
+				fStatistics.fHeaderCacheMisses= ibfcp.getHeaderCacheMisses();
+			}
+			fPrefetcher.dispose();
 			synchronized (this) {
 				fTaskCompleted = true;
 			}
@@ -824,18 +832,35 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 			return;
 
 		// First parse the required sources
+		List<LocationTask> requiredSources= new ArrayList<LocationTask>();
+		List<IIndexFileLocation> requiredSourceLocations= new ArrayList<IIndexFileLocation>();
 		for (Iterator<IIndexFileLocation> it= files.iterator(); it.hasNext();) {
 			IIndexFileLocation ifl= it.next();
 			LocationTask locTask = map.find(ifl);
 			if (locTask == null || locTask.isCompleted()) {
 				it.remove();
 			} else if (locTask.fKind == UpdateKind.REQUIRED_SOURCE) {
+				requiredSources.add(locTask);
+				requiredSourceLocations.add(ifl);
+			}
+		}
+		try {
+			for (int i= 0; i < requiredSources.size(); i++) {
+				LocationTask locTask = requiredSources.get(i);
+				if (locTask.isCompleted())
+					continue;
 				if (monitor.isCanceled() || hasUrgentTasks())
 					return;
+				// Read the next source while this one is parsed and written to the index.
+				if (i + 1 < requiredSources.size()) {
+					fPrefetcher.prefetch(requiredSources.get(i + 1).fTu);
+				}
 				final Object tu = locTask.fTu;
 				final IScannerInfo scannerInfo = getScannerInfo(linkageID, tu);
-				parseFile(tu, getLanguage(tu, linkageID), ifl, scannerInfo, null, monitor);
+				parseFile(tu, getLanguage(tu, linkageID), requiredSourceLocations.get(i), scannerInfo, null, monitor);
 			}
+		} finally {
+			fPrefetcher.cancel();
 		}
 
 		// Files with context
@@ -1014,7 +1039,9 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 			}
 			pm.subTask(getMessage(MessageKind.parsingFileTask,
 					path.lastSegment(), path.removeLastSegments(1).toString()));
-			FileContent codeReader= fResolver.getCodeReader(tu);
+			FileContent codeReader= fPrefetcher.take(tu);
+			if (codeReader == null)
+				codeReader= fResolver.getCodeReader(tu);
 			final boolean isSource = fResolver.isSourceUnit(tu);
 
 			long start= System.currentTimeMillis();
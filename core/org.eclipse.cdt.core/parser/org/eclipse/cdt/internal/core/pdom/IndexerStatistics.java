@@ -22,4 +22,6 @@ public class IndexerStatistics {
 	public int fUnresolvedIncludesCount= 0;
 	public int fPreprocessorProblemCount= 0;
 	public int fSyntaxProblemsCount= 0;
+	public int fHeaderCacheHits= 0;
+	public int fHeaderCacheMisses= 0;
 }
@@ -26,6 +26,7 @@ public class Messages extends NLS {
 	public static String PDOMWriter_errorWhileParsing;
 	public static String TeamPDOMExportOperation_errorCreateArchive;
 	public static String TeamPDOMExportOperation_errorCreatingTempFile;
+	public static String TeamPDOMExportOperation_errorNoChunksInBase;
 	public static String TeamPDOMExportOperation_errorWriteTempFile;
 	public static String TeamPDOMExportOperation_taskExportIndex;
 	public static String AbstractIndexerTask_parsingFileTask;
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Cheap pre-check for matching names against a regular expression. The filter consists of the
+ * literal character sequences that every match of the pattern has to contain. Names that do not
+ * contain all of them are rejected without creating a string and running the regular expression.
+ * <p>
+ * The analysis of the pattern is conservative, whenever a construct is not understood the filter
+ * accepts more names than the pattern.
+ */
+public final class NamePatternFilter {
+	private static final char[][] NO_LITERALS = {};
+
+	private final char[][] fLiterals;
+	private final boolean fIgnoreCase;
+
+	private NamePatternFilter(char[][] literals, boolean ignoreCase) {
+		fLiterals= literals;
+		fIgnoreCase= ignoreCase;
+	}
+
+	public static NamePatternFilter create(Pattern pattern) {
+		final int flags= pattern.flags();
+		if (flags != 0 && flags != Pattern.CASE_INSENSITIVE)
+			return new NamePatternFilter(NO_LITERALS, false);
+
+		final boolean ignoreCase= flags == Pattern.CASE_INSENSITIVE;
+		final String p= pattern.pattern();
+		if (p.indexOf('|') >= 0)
+			return new NamePatternFilter(NO_LITERALS, ignoreCase);
+
+		List<char[]> literals= new ArrayList<char[]>();
+		StringBuilder run= new StringBuilder();
+		loop: for (int i= 0; i < p.length(); i++) {
+			final char c= p.charAt(i);
+			if (Character.isLetterOrDigit(c) || c == '_') {
+				run.append(ignoreCase ? Character.toLowerCase(c) : c);
+				continue;
+			}
+			switch (c) {
+			case '*':
+			case '?':
+				// The preceding character is optional.
+				if (run.length() > 0)
+					run.setLength(run.length() - 1);
+				break;
+			case '{':
+				// The preceding character may be repeated zero times, skip the bounds.
+				if (run.length() > 0)
+					run.setLength(run.length() - 1);
+				addLiteral(literals, run);
+				i= p.indexOf('}', i);
+				if (i < 0)
+					break loop;
+				continue;
+			case '\\':
+				// Escaped special characters are skipped, anything else (character classes,
+				// quoting, octal or unicode escapes) ends the analysis.
+				if (i + 1 < p.length() && !Character.isLetterOrDigit(p.charAt(i + 1))) {
+					addLiteral(literals, run);
+					i++;
+					continue;
+				}
+				break loop;
+			case '(':
+			case '[':
+				break loop;
+			}
+			addLiteral(literals, run);
+		}
+		addLiteral(literals, run);
+		return new NamePatternFilter(literals.toArray(new char[literals.size()][]), ignoreCase);
+	}
+
+	private static void addLiteral(List<char[]> literals, StringBuilder run) {
+		if (run.length() > 0) {
+			char[] literal= new char[run.length()];
+			run.getChars(0, literal.length, literal, 0);
+			literals.add(literal);
+			run.setLength(0);
+		}
+	}
+
+	/**
+	 * Returns <code>false</code> if the name cannot match the pattern.
+	 */
+	public boolean mayMatch(char[] name) {
+		for (char[] literal : fLiterals) {
+			if (!contains(name, literal))
+				return false;
+		}
+		return true;
+	}
+
+	private boolean contains(char[] name, char[] literal) {
+		final int last= name.length - literal.length;
+		outer: for (int i= 0; i <= last; i++) {
+			for (int j= 0; j < literal.length; j++) {
+				char c= name[i + j];
+				if (fIgnoreCase)
+					c= Character.toLowerCase(c);
+				if (c != literal[j])
+					continue outer;
+			}
+			return true;
+		}
+		return false;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2012 QNX Software Systems and others.
+ * Copyright (c) 2005, 2013 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,7 @@
  *     Anton Leherbauer (Wind River Systems)
  *     Sergey Prigogin (Google)
  *     Jens Elmenthaler - http://bugs.eclipse.org/173458 (camel case completion)
+ *     agent - pre-filter of pattern searches
  *******************************************************************************/
 package org.eclipse.cdt.internal.core.pdom;
 
@@ -24,6 +25,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -104,6 +106,7 @@ public class PDOM extends PlatformObject implements IPDOM {
 	private static final int BLOCKED_WRITE_LOCK_OUTPUT_INTERVAL = 30000;
 	private static final int LONG_WRITE_LOCK_REPORT_THRESHOLD = 1000;
 	private static final int LONG_READ_LOCK_WAIT_REPORT_THRESHOLD = 1000;
+	private static final int MAX_INDEX_RESULTS = 5000;
 	static boolean sDEBUG_LOCKS= false; // Initialized in the PDOMManager, because IBM needs PDOM independent of runtime plugin.
 
 	/**
@@ -352,6 +355,12 @@ public class PDOM extends PlatformObject implements IPDOM {
 	private final IIndexLocationConverter locationConverter;
 	private final Map<String, IPDOMLinkageFactory> fPDOMLinkageFactoryCache;
 	private final HashMap<Object, Object> fResultCache= new HashMap<Object, Object>();
+	private final LinkedHashMap<Object, Object> fIndexResultCache= new LinkedHashMap<Object, Object>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+			return size() > MAX_INDEX_RESULTS;
+		}
+	};
 	private List<IListener> listeners;
 	protected ChangeEvent fEvent= new ChangeEvent();
 
@@ -636,6 +645,7 @@ public class PDOM extends PlatformObject implements IPDOM {
 
 	private static class BindingFinder implements IPDOMVisitor {
 		private final Pattern[] pattern;
+		private final NamePatternFilter[] patternFilter;
 		private final IProgressMonitor monitor;
 
 		private final ArrayList<PDOMNamedNode> currentPath= new ArrayList<PDOMNamedNode>();
@@ -647,6 +657,10 @@ public class PDOM extends PlatformObject implements IPDOM {
 
 		public BindingFinder(Pattern[] pattern, boolean isFullyQualified, IndexFilter filter, IProgressMonitor monitor) {
 			this.pattern = pattern;
+			this.patternFilter = new NamePatternFilter[pattern.length];
+			for (int i = 0; i < pattern.length; i++) {
+				patternFilter[i] = NamePatternFilter.create(pattern[i]);
+			}
 			this.monitor = monitor;
 			this.isFullyQualified= isFullyQualified;
 			this.filter= filter;
@@ -662,11 +676,15 @@ public class PDOM extends PlatformObject implements IPDOM {
 
 			if (node instanceof PDOMNamedNode) {
 				PDOMNamedNode nnode = (PDOMNamedNode) node;
-				String name = new String(nnode.getNameCharArray());
+				final char[] nameChars = nnode.getNameCharArray();
+				String name = null;
 
 				// check if we have a complete match.
 				final int lastIdx = pattern.length-1;
-				if (matchesUpToLevel.get(lastIdx) && pattern[lastIdx].matcher(name).matches()) {
+				if (matchesUpToLevel.get(lastIdx) && patternFilter[lastIdx].mayMatch(nameChars)) {
+					name = new String(nameChars);
+				}
+				if (name != null && pattern[lastIdx].matcher(name).matches()) {
 					if (nnode instanceof IBinding && filter.acceptBinding((IBinding) nnode)) {
 						bindings.add(nnode);
 					}
@@ -686,7 +704,11 @@ public class PDOM extends PlatformObject implements IPDOM {
 						visitNextLevel= true;
 					}
 					for (int i=0; i < lastIdx; i++) {
-						if (matchesUpToLevel.get(i) && pattern[i].matcher(name).matches()) {
+						if (matchesUpToLevel.get(i) && patternFilter[i].mayMatch(nameChars)) {
+							if (name == null)
+								name = new String(nameChars);
+							if (!pattern[i].matcher(name).matches())
+								continue;
 							updatedMatchesUpToLevel.set(i+1);
 							visitNextLevel= true;
 						}
@@ -1034,6 +1056,7 @@ public class PDOM extends PlatformObject implements IPDOM {
 		if (establishReadLocks == 0) {
 			clearResultCache();
 		}
+		clearIndexResultCache();
 		try {
 			db.giveUpExclusiveLock(flush);
 		} catch (CoreException e) {
@@ -1380,6 +1403,7 @@ public class PDOM extends PlatformObject implements IPDOM {
 		indexOfFiledWithUnresolvedIncludes= null;
 		fLinkageIDCache.clear();
 		clearResultCache();
+		clearIndexResultCache();
 	}
 
 	@Override
@@ -1437,6 +1461,42 @@ public class PDOM extends PlatformObject implements IPDOM {
 		}
 	}
 
+	/**
+	 * Returns a result that has been computed from the content of the index, only. Other than
+	 * the results of {@link #getCachedResult(Object)} these are kept when all locks are released,
+	 * they are discarded when the index is modified. The cache is bypassed while the write-lock
+	 * is held.
+	 */
+	public Object getIndexCachedResult(Object key) {
+		synchronized (mutex) {
+			if (lockCount < 0)
+				return null;
+		}
+		synchronized (fIndexResultCache) {
+			return fIndexResultCache.get(key);
+		}
+	}
+
+	/**
+	 * Stores a result that depends on nothing but the content of the index, see
+	 * {@link #getIndexCachedResult(Object)}. The result must not reference any AST.
+	 */
+	public void putIndexCachedResult(Object key, Object result) {
+		synchronized (mutex) {
+			if (lockCount < 0)
+				return;
+		}
+		synchronized (fIndexResultCache) {
+			fIndexResultCache.put(key, result);
+		}
+	}
+
+	private void clearIndexResultCache() {
+		synchronized (fIndexResultCache) {
+			fIndexResultCache.clear();
+		}
+	}
+
 	public String createKeyForCache(long record, char[] name) {
 		return new StringBuilder(name.length + 2).append((char) (record >> 16)).append((char) record).append(name).toString();
 	}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.cdt.core.parser.FileContent;
+
+/**
+ * Reads the content of the next source file on a background thread, while the indexer
+ * parses the current file and writes it to the index.
+ */
+public final class SourceFilePrefetcher {
+	/**
+	 * Number of prefetched contents that are kept. The indexer prefetches the next file
+	 * before it takes the current one, so two are needed.
+	 */
+	private static final int MAX_PREFETCHED = 2;
+
+	private final IndexerInputAdapter fResolver;
+	private ExecutorService fExecutor;
+	private final Map<Object, Future<FileContent>> fContents= new LinkedHashMap<Object, Future<FileContent>>();
+
+	public SourceFilePrefetcher(IndexerInputAdapter resolver) {
+		fResolver= resolver;
+	}
+
+	/**
+	 * Starts reading the content of the given translation unit. If too many contents
+	 * have not been taken, the oldest one is discarded.
+	 */
+	public void prefetch(final Object tu) {
+		if (fContents.containsKey(tu))
+			return;
+		if (fContents.size() >= MAX_PREFETCHED) {
+			Iterator<Future<FileContent>> it= fContents.values().iterator();
+			it.next().cancel(false);
+			it.remove();
+		}
+		if (fExecutor == null) {
+			fExecutor= Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread= new Thread(r, "Indexer Source Prefetcher"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		fContents.put(tu, fExecutor.submit(new Callable<FileContent>() {
+			@Override
+			public FileContent call() {
+				return fResolver.getCodeReader(tu);
+			}
+		}));
+	}
+
+	/**
+	 * Returns the prefetched content for the given translation unit, or <code>null</code>
+	 * if it was not prefetched or could not be read. In the latter case the caller reads the
+	 * content itself, such that errors are reported on the indexer thread.
+	 */
+	public FileContent take(Object tu) {
+		final Future<FileContent> content= fContents.remove(tu);
+		if (content == null)
+			return null;
+
+		try {
+			return content.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+		}
+		return null;
+	}
+
+	public void cancel() {
+		for (Future<FileContent> content : fContents.values()) {
+			content.cancel(false);
+		}
+		fContents.clear();
+	}
+
+	public void dispose() {
+		cancel();
+		if (fExecutor != null) {
+			fExecutor.shutdown();
+			fExecutor= null;
+		}
+	}
+}
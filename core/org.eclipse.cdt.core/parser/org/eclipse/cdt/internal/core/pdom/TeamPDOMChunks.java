@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.eclipse.cdt.internal.core.pdom.db.Database;
+
+/**
+ * Table of the hashes of the chunks of a database file. It is used to export and import team
+ * shared indexes incrementally: A delta between two versions of a database consists of the
+ * chunks whose hashes differ from the ones of the base version.
+ */
+public final class TeamPDOMChunks {
+	private static final int CHUNKS_MAGIC= 0x43484b53;  // CHKS
+	private static final int DELTA_MAGIC= 0x444c5441;  // DLTA
+	private static final String ALGORITHM= "MD5"; //$NON-NLS-1$
+	private static final int CHUNK_SIZE= Database.CHUNK_SIZE;
+
+	private final long fLength;
+	private final int fHashLength;
+	private final byte[] fHashes;
+
+	private TeamPDOMChunks(long length, int hashLength, byte[] hashes) {
+		fLength= length;
+		fHashLength= hashLength;
+		fHashes= hashes;
+	}
+
+	/**
+	 * Computes the hashes for the chunks of the given database file.
+	 */
+	public static TeamPDOMChunks compute(File dbFile) throws IOException {
+		final MessageDigest md= getDigest();
+		final long length= dbFile.length();
+		final int count= chunkCount(length);
+		final int hashLength= md.getDigestLength();
+		final byte[] hashes= new byte[count * hashLength];
+		final byte[] buffer= new byte[CHUNK_SIZE];
+		RandomAccessFile raf= new RandomAccessFile(dbFile, "r"); //$NON-NLS-1$
+		try {
+			for (int i= 0; i < count; i++) {
+				final int len= chunkLength(length, i);
+				raf.readFully(buffer, 0, len);
+				md.reset();
+				md.update(buffer, 0, len);
+				System.arraycopy(md.digest(), 0, hashes, i * hashLength, hashLength);
+			}
+		} finally {
+			raf.close();
+		}
+		return new TeamPDOMChunks(length, hashLength, hashes);
+	}
+
+	/**
+	 * Reads a table stored with {@link #write(OutputStream)}.
+	 */
+	public static TeamPDOMChunks read(InputStream in) throws IOException {
+		DataInputStream din= new DataInputStream(in);
+		if (din.readInt() != CHUNKS_MAGIC || din.readInt() != CHUNK_SIZE || !ALGORITHM.equals(din.readUTF()))
+			throw new IOException("Unsupported chunk table"); //$NON-NLS-1$
+
+		final long length= din.readLong();
+		final int hashLength= din.readInt();
+		final byte[] hashes= new byte[chunkCount(length) * hashLength];
+		din.readFully(hashes);
+		return new TeamPDOMChunks(length, hashLength, hashes);
+	}
+
+	public void write(OutputStream out) throws IOException {
+		DataOutputStream dout= new DataOutputStream(out);
+		dout.writeInt(CHUNKS_MAGIC);
+		dout.writeInt(CHUNK_SIZE);
+		dout.writeUTF(ALGORITHM);
+		dout.writeLong(fLength);
+		dout.writeInt(fHashLength);
+		dout.write(fHashes);
+		dout.flush();
+	}
+
+	public long getLength() {
+		return fLength;
+	}
+
+	public int getChunkCount() {
+		return chunkCount(fLength);
+	}
+
+	/**
+	 * Returns a hash identifying the version of the database described by this table.
+	 */
+	public byte[] getIdentity() throws IOException {
+		final MessageDigest md= getDigest();
+		for (int i= 0; i < 8; i++) {
+			md.update((byte) (fLength >>> (i * 8)));
+		}
+		md.update(fHashes);
+		return md.digest();
+	}
+
+	/**
+	 * Writes the chunks of the database file described by this table that differ from the
+	 * chunks of the base version.
+	 * @return the number of chunks written.
+	 */
+	public int writeDelta(File dbFile, TeamPDOMChunks base, OutputStream out) throws IOException {
+		if (dbFile.length() != fLength)
+			throw new IOException("Database file does not match chunk table"); //$NON-NLS-1$
+
+		final int count= getChunkCount();
+		BitSet changed= new BitSet(count);
+		for (int i= 0; i < count; i++) {
+			if (!base.hasSameChunk(this, i)) {
+				changed.set(i);
+			}
+		}
+
+		DataOutputStream dout= new DataOutputStream(out);
+		dout.writeInt(DELTA_MAGIC);
+		byte[] baseIdentity= base.getIdentity();
+		dout.writeInt(baseIdentity.length);
+		dout.write(baseIdentity);
+		dout.writeLong(fLength);
+		dout.writeInt(changed.cardinality());
+		final byte[] buffer= new byte[CHUNK_SIZE];
+		RandomAccessFile raf= new RandomAccessFile(dbFile, "r"); //$NON-NLS-1$
+		try {
+			for (int i= changed.nextSetBit(0); i >= 0; i= changed.nextSetBit(i + 1)) {
+				final int len= chunkLength(fLength, i);
+				raf.seek((long) i * CHUNK_SIZE);
+				raf.readFully(buffer, 0, len);
+				dout.writeInt(i);
+				dout.write(buffer, 0, len);
+			}
+		} finally {
+			raf.close();
+		}
+		dout.flush();
+		return changed.cardinality();
+	}
+
+	/**
+	 * Checks whether the given delta is based on the version described by <code>base</code>
+	 * and results in the version described by this table. Only the header of the delta is read.
+	 */
+	public boolean isDeltaOf(TeamPDOMChunks base, InputStream delta) throws IOException {
+		return readDeltaHeader(base, new DataInputStream(delta)) == null;
+	}
+
+	/**
+	 * Reads the header of a delta and checks it against the base and this table.
+	 * @return <code>null</code> if the delta matches, or the reason for the mismatch.
+	 */
+	private String readDeltaHeader(TeamPDOMChunks base, DataInputStream din) throws IOException {
+		if (din.readInt() != DELTA_MAGIC)
+			return "Unsupported delta"; //$NON-NLS-1$
+		byte[] baseIdentity= new byte[din.readInt()];
+		din.readFully(baseIdentity);
+		if (!Arrays.equals(baseIdentity, base.getIdentity()))
+			return "Delta is based on a different version of the database"; //$NON-NLS-1$
+		if (din.readLong() != fLength)
+			return "Delta does not match chunk table"; //$NON-NLS-1$
+		return null;
+	}
+
+	/**
+	 * Applies a delta written by {@link #writeDelta(File, TeamPDOMChunks, OutputStream)} to the
+	 * base version of the database file, in place. The delta has to be based on the version
+	 * described by <code>base</code>, the result is verified against this table. In case of an
+	 * exception the content of the file is undefined.
+	 * @return the number of chunks that have been replaced.
+	 */
+	public int applyDelta(File dbFile, TeamPDOMChunks base, InputStream delta) throws IOException {
+		if (dbFile.length() != base.fLength)
+			throw new IOException("Database file does not match the base of the delta"); //$NON-NLS-1$
+
+		DataInputStream din= new DataInputStream(delta);
+		String mismatch= readDeltaHeader(base, din);
+		if (mismatch != null)
+			throw new IOException(mismatch);
+
+		final int count= getChunkCount();
+		final int changedCount= din.readInt();
+		final BitSet replaced= new BitSet(count);
+		final MessageDigest md= getDigest();
+		final byte[] buffer= new byte[CHUNK_SIZE];
+		RandomAccessFile raf= new RandomAccessFile(dbFile, "rw"); //$NON-NLS-1$
+		try {
+			raf.setLength(fLength);
+			for (int j= 0; j < changedCount; j++) {
+				final int i= din.readInt();
+				if (i < 0 || i >= count)
+					throw new IOException("Invalid chunk in delta"); //$NON-NLS-1$
+				final int len= chunkLength(fLength, i);
+				din.readFully(buffer, 0, len);
+				md.reset();
+				md.update(buffer, 0, len);
+				if (!hasHash(i, md.digest()))
+					throw new IOException("Corrupted chunk in delta"); //$NON-NLS-1$
+				raf.seek((long) i * CHUNK_SIZE);
+				raf.write(buffer, 0, len);
+				replaced.set(i);
+			}
+		} finally {
+			raf.close();
+		}
+		// The chunks that are not part of the delta must be the same in base and target.
+		for (int i= 0; i < count; i++) {
+			if (!replaced.get(i) && !base.hasSameChunk(this, i))
+				throw new IOException("Delta is incomplete"); //$NON-NLS-1$
+		}
+		return changedCount;
+	}
+
+	private boolean hasSameChunk(TeamPDOMChunks other, int i) {
+		if (i >= getChunkCount() || fHashLength != other.fHashLength
+				|| chunkLength(fLength, i) != chunkLength(other.fLength, i)) {
+			return false;
+		}
+		final int offset= i * fHashLength;
+		for (int k= 0; k < fHashLength; k++) {
+			if (fHashes[offset + k] != other.fHashes[offset + k])
+				return false;
+		}
+		return true;
+	}
+
+	private boolean hasHash(int i, byte[] hash) {
+		final int offset= i * fHashLength;
+		for (int k= 0; k < fHashLength; k++) {
+			if (fHashes[offset + k] != hash[k])
+				return false;
+		}
+		return true;
+	}
+
+	private static int chunkCount(long length) {
+		return (int) ((length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+	}
+
+	private static int chunkLength(long length, int i) {
+		return (int) Math.min(CHUNK_SIZE, length - (long) i * CHUNK_SIZE);
+	}
+
+	private static MessageDigest getDigest() throws IOException {
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e.getMessage());
+		}
+	}
+}
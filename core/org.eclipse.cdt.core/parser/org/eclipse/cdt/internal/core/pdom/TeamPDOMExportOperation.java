@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2013 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -24,6 +24,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
 import org.eclipse.cdt.core.CCorePlugin;
@@ -48,6 +49,7 @@ import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.osgi.util.NLS;
 
 public class TeamPDOMExportOperation implements IWorkspaceRunnable {
 	/**
@@ -66,6 +68,7 @@ public class TeamPDOMExportOperation implements IWorkspaceRunnable {
 	private File fTargetLocationFile;
 	private MessageDigest fMessageDigest;
 	private int fOptions;
+	private String fDeltaBaseLocation;
 	
 	public TeamPDOMExportOperation(ICProject project) {
 		fProject= project;
@@ -83,6 +86,18 @@ public class TeamPDOMExportOperation implements IWorkspaceRunnable {
 		fMessageDigest= md;
 	}
 
+	/**
+	 * Causes the export to store only the chunks of the database that differ from the ones of
+	 * the index in the given archive, which has to be the result of a previous export. The
+	 * delta can be imported on top of the index from the base archive, only. When there is no
+	 * archive at the location, the entire index is exported.
+	 * @param location the location of the base archive, or <code>null</code> to export the
+	 * entire index. It may be the same as the target location.
+	 */
+	public void setDeltaBase(String location) {
+		fDeltaBaseLocation= location;
+	}
+
 	@Override
 	public void run(IProgressMonitor monitor) throws CoreException {
 		getMessageDigest();
@@ -125,7 +140,7 @@ public class TeamPDOMExportOperation implements IWorkspaceRunnable {
 			}
 			
 			// create archive
-			createArchive(tmpPDOM, tmpChecksums);
+			createArchive(tmpPDOM, tmpChecksums, TeamPDOMChunks.compute(tmpPDOM));
 			
 			// store preferences
 			monitor.setTaskName(Messages.TeamPDOMExportOperation_taskExportIndex);
@@ -141,6 +156,8 @@ public class TeamPDOMExportOperation implements IWorkspaceRunnable {
 		} catch (InterruptedException e) {
 			Thread.currentThread().interrupt();
 			return;
+		} catch (IOException e) {
+			throw new CoreException(CCorePlugin.createStatus(Messages.TeamPDOMExportOperation_errorCreateArchive, e));
 		}
 		finally {
 			if (tmpPDOM != null) {
@@ -237,14 +254,25 @@ public class TeamPDOMExportOperation implements IWorkspaceRunnable {
 		}
 	} 
 
-	private void createArchive(File tmpPDOM, File tmpChecksums) throws CoreException {
+	private void createArchive(File tmpPDOM, File tmpChecksums, TeamPDOMChunks chunks) throws CoreException {
+		// Read the base before the target is deleted, it may be the same file.
+		TeamPDOMChunks baseChunks= getDeltaBaseChunks();
 		fTargetLocationFile.delete();
 		ZipOutputStream out= null;
 		try {
 			fTargetLocationFile.getParentFile().mkdirs();
 			out= new ZipOutputStream(new FileOutputStream(fTargetLocationFile));
 			out.setLevel(Deflater.BEST_COMPRESSION);
-			writeEntry(out, TeamPDOMImportOperation.INDEX_NAME, tmpPDOM);
+			if (baseChunks != null) {
+				out.putNextEntry(new ZipEntry(TeamPDOMImportOperation.INDEX_DELTA_NAME));
+				chunks.writeDelta(tmpPDOM, baseChunks, out);
+				out.closeEntry();
+			} else {
+				writeEntry(out, TeamPDOMImportOperation.INDEX_NAME, tmpPDOM);
+			}
+			out.putNextEntry(new ZipEntry(TeamPDOMImportOperation.CHUNKS_NAME));
+			chunks.write(out);
+			out.closeEntry();
 			writeEntry(out, TeamPDOMImportOperation.CHECKSUMS_NAME, tmpChecksums);
 		}
 		catch (IOException e) {
@@ -259,6 +287,36 @@ public class TeamPDOMExportOperation implements IWorkspaceRunnable {
 		}
 	}
 
+	private TeamPDOMChunks getDeltaBaseChunks() throws CoreException {
+		if (fDeltaBaseLocation == null)
+			return null;
+
+		File baseFile= TeamPDOMImportOperation.expandLocation(fProject.getProject(), fDeltaBaseLocation);
+		if (!baseFile.exists())
+			return null;
+		try {
+			ZipFile zip= new ZipFile(baseFile);
+			try {
+				ZipEntry entry= zip.getEntry(TeamPDOMImportOperation.CHUNKS_NAME);
+				if (entry == null) {
+					throw new CoreException(CCorePlugin.createStatus(
+							NLS.bind(Messages.TeamPDOMExportOperation_errorNoChunksInBase, baseFile)));
+				}
+				InputStream in= zip.getInputStream(entry);
+				try {
+					return TeamPDOMChunks.read(in);
+				} finally {
+					close(in);
+				}
+			} finally {
+				zip.close();
+			}
+		} catch (IOException e) {
+			throw new CoreException(CCorePlugin.createStatus(
+					NLS.bind(Messages.TeamPDOMExportOperation_errorNoChunksInBase, baseFile), e));
+		}
+	}
+
 	private void writeEntry(ZipOutputStream out, String name, File input) throws IOException {
 		ZipEntry e= new ZipEntry(name);
 		out.putNextEntry(e);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2013 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,10 +10,15 @@
  *******************************************************************************/ 
 package org.eclipse.cdt.internal.core.pdom;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
+import java.io.OutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
@@ -56,6 +61,10 @@ import org.eclipse.osgi.util.NLS;
 public class TeamPDOMImportOperation implements IWorkspaceRunnable {
 	static final String CHECKSUMS_NAME = "checksums.dat"; //$NON-NLS-1$
 	static final String INDEX_NAME = "cdt-index.pdom"; //$NON-NLS-1$
+	static final String INDEX_DELTA_NAME = "cdt-index.delta"; //$NON-NLS-1$
+	static final String CHUNKS_NAME = "chunks.dat"; //$NON-NLS-1$
+	private static final String BASE_EXTENSION = ".teambase"; //$NON-NLS-1$
+	private static final String BASE_CHUNKS_EXTENSION = ".teambase.chunks"; //$NON-NLS-1$
 	private static final Pattern PROJECT_VAR_PATTERN= Pattern.compile("\\$\\{(project_[a-zA-Z0-9]*)\\}"); //$NON-NLS-1$
 	private static final String PROJECT_VAR_REPLACEMENT_BEGIN = "\\${$1:"; //$NON-NLS-1$
 	private static final String PROJECT_VAR_REPLACEMENT_END = "}"; //$NON-NLS-1$
@@ -147,7 +156,11 @@ public class TeamPDOMImportOperation implements IWorkspaceRunnable {
 		ZipFile zip= new ZipFile(importFile);
 		Map<?, ?> checksums= null;
 		try {
-			importIndex(zip, monitor);
+			if (zip.getEntry(INDEX_DELTA_NAME) != null) {
+				importIndexDelta(zip, monitor);
+			} else {
+				importIndex(zip, monitor);
+			}
 			checksums= getChecksums(zip);
 		}
 		finally {
@@ -167,8 +180,141 @@ public class TeamPDOMImportOperation implements IWorkspaceRunnable {
 			throw new CoreException(CCorePlugin.createStatus(
 					NLS.bind(Messages.PDOMImportTask_errorInvalidArchive, zip.getName())));
 		}
-		InputStream stream= zip.getInputStream(indexEntry);
-		CCoreInternals.getPDOMManager().importProjectPDOM(fProject, stream);
+		final File baseFile= getBaseFile(BASE_EXTENSION);
+		final File baseChunksFile= getBaseFile(BASE_CHUNKS_EXTENSION);
+		baseChunksFile.delete();
+		baseFile.delete();
+		TeamPDOMChunks chunks= readChunks(zip);
+		if (chunks == null) {
+			// The archive cannot be the base of a delta, import it directly.
+			InputStream stream= zip.getInputStream(indexEntry);
+			try {
+				CCoreInternals.getPDOMManager().importProjectPDOM(fProject, stream);
+			} finally {
+				stream.close();
+			}
+			return;
+		}
+
+		// Keep an unmodified copy of the index as the base for future deltas.
+		copy(zip.getInputStream(indexEntry), baseFile);
+		if (baseFile.length() != chunks.getLength()) {
+			baseFile.delete();
+			throw new CoreException(CCorePlugin.createStatus(
+					NLS.bind(Messages.PDOMImportTask_errorInvalidArchive, zip.getName())));
+		}
+		writeChunks(chunks, baseChunksFile);
+		importFromBase(baseFile);
+	}
+
+	/**
+	 * Applies the chunks stored in the archive to the copy of the previously imported index.
+	 * Only the changed chunks are read from the archive.
+	 */
+	private void importIndexDelta(ZipFile zip, IProgressMonitor monitor) throws CoreException, IOException {
+		final File baseFile= getBaseFile(BASE_EXTENSION);
+		final File baseChunksFile= getBaseFile(BASE_CHUNKS_EXTENSION);
+		TeamPDOMChunks chunks= readChunks(zip);
+		if (chunks == null) {
+			throw new CoreException(CCorePlugin.createStatus(
+					NLS.bind(Messages.PDOMImportTask_errorInvalidArchive, zip.getName())));
+		}
+		if (!baseFile.isFile() || !baseChunksFile.isFile()) {
+			throw new CoreException(CCorePlugin.createStatus(
+					NLS.bind(Messages.PDOMImportTask_errorNoDeltaBase, zip.getName())));
+		}
+
+		TeamPDOMChunks baseChunks;
+		InputStream in= new FileInputStream(baseChunksFile);
+		try {
+			baseChunks= TeamPDOMChunks.read(in);
+		} finally {
+			in.close();
+		}
+
+		// Check that the delta applies to the base before the base is touched, a delta for a
+		// different base leaves it intact.
+		final ZipEntry deltaEntry= zip.getEntry(INDEX_DELTA_NAME);
+		boolean matches= baseFile.length() == baseChunks.getLength();
+		if (matches) {
+			in= zip.getInputStream(deltaEntry);
+			try {
+				matches= chunks.isDeltaOf(baseChunks, new BufferedInputStream(in));
+			} finally {
+				in.close();
+			}
+		}
+		if (!matches) {
+			throw new CoreException(CCorePlugin.createStatus(
+					NLS.bind(Messages.PDOMImportTask_errorNoDeltaBase, zip.getName())));
+		}
+
+		// The base is modified in place, it becomes valid again after the delta has been applied.
+		baseChunksFile.delete();
+		in= zip.getInputStream(deltaEntry);
+		try {
+			int replaced= chunks.applyDelta(baseFile, baseChunks, new BufferedInputStream(in));
+			if (fShowActivity) {
+				System.out.println("Indexer: PDOMImporter replaced " + replaced + " of " //$NON-NLS-1$ //$NON-NLS-2$
+						+ chunks.getChunkCount() + " chunks"); //$NON-NLS-1$
+			}
+		} catch (IOException e) {
+			// The content of the base is undefined.
+			baseFile.delete();
+			throw e;
+		} finally {
+			in.close();
+		}
+		writeChunks(chunks, baseChunksFile);
+		importFromBase(baseFile);
+	}
+
+	private void importFromBase(File baseFile) throws CoreException, IOException {
+		InputStream stream= new BufferedInputStream(new FileInputStream(baseFile));
+		try {
+			CCoreInternals.getPDOMManager().importProjectPDOM(fProject, stream);
+		} finally {
+			stream.close();
+		}
+	}
+
+	private File getBaseFile(String extension) {
+		return CCorePlugin.getDefault().getStateLocation().append(fProject.getElementName() + extension).toFile();
+	}
+
+	private TeamPDOMChunks readChunks(ZipFile zip) throws IOException {
+		ZipEntry entry= zip.getEntry(CHUNKS_NAME);
+		if (entry == null)
+			return null;
+		InputStream in= zip.getInputStream(entry);
+		try {
+			return TeamPDOMChunks.read(new BufferedInputStream(in));
+		} finally {
+			in.close();
+		}
+	}
+
+	private void writeChunks(TeamPDOMChunks chunks, File target) throws IOException {
+		OutputStream out= new BufferedOutputStream(new FileOutputStream(target));
+		try {
+			chunks.write(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	private void copy(InputStream in, File target) throws IOException {
+		OutputStream out= new FileOutputStream(target);
+		try {
+			byte[] buffer= new byte[65536];
+			int read;
+			while ((read= in.read(buffer)) >= 0) {
+				out.write(buffer, 0, read);
+			}
+		} finally {
+			out.close();
+			in.close();
+		}
 	}
 
 	private Map<?, ?> getChecksums(ZipFile zip) {
@@ -92,7 +92,7 @@ public class Database {
 
 	private final File fLocation;
 	private final boolean fReadOnly;
-	private RandomAccessFile fFile;
+	private volatile RandomAccessFile fFile;
 	private boolean fExclusiveLock;	 // Necessary for any write operation.
 	private boolean fLocked;		 // Necessary for any operation.
 	private boolean fIsMarkedIncomplete;
@@ -149,12 +149,13 @@ public class Database {
 	void read(ByteBuffer buf, long position) throws IOException {
 		int retries= 0;
 		do {
+			final RandomAccessFile file= fFile;
 			try {
-				fFile.getChannel().read(buf, position);
+				file.getChannel().read(buf, position);
 				return;
 			} catch (ClosedChannelException e) {
 				// Bug 219834 file may have be closed by interrupting a thread during an I/O operation.
-				reopen(e, ++retries);
+				reopen(file, e, ++retries);
 			}
 		} while (true);
 	}
@@ -162,22 +163,31 @@ public class Database {
 	void write(ByteBuffer buf, long position) throws IOException {
 		int retries= 0;
 		while (true) {
+			final RandomAccessFile file= fFile;
 			try {
-				fFile.getChannel().write(buf, position);
+				file.getChannel().write(buf, position);
 				return;
 			} catch (ClosedChannelException e) {
 				// Bug 219834 file may have be closed by interrupting a thread during an I/O operation.
-				reopen(e, ++retries);
+				reopen(file, e, ++retries);
 			}
 		}
 	}
 
-	private void reopen(ClosedChannelException e, int attempt) throws ClosedChannelException, FileNotFoundException {
+	/**
+	 * Reopens the file after its channel was closed. Chunks are read outside of the cache lock,
+	 * so several readers may find the channel closed at the same time; only the first one
+	 * opens the file again.
+	 */
+	private synchronized void reopen(RandomAccessFile closedFile, ClosedChannelException e, int attempt)
+			throws ClosedChannelException, FileNotFoundException {
 		// Only if the current thread was not interrupted we try to reopen the file.
 		if (e instanceof ClosedByInterruptException || attempt >= 20) {
 			throw e;
 		}
-		openFile();
+		if (fFile == closedFile && !closedFile.getChannel().isOpen()) {
+			openFile();
+		}
 	}
 
 	public void transferTo(FileChannel target) throws IOException {
@@ -267,19 +277,43 @@ public class Database {
 		long long_index = offset / CHUNK_SIZE;
 		assert long_index < Integer.MAX_VALUE;
 
+		final int index = (int) long_index;
 		synchronized (fCache) {
 			assert fLocked;
-			final int index = (int) long_index;
 			if (index < 0 || index >= fChunks.length) {
 				databaseCorruptionDetected();
 			}
 			Chunk chunk= fChunks[index];
 			if (chunk == null) {
 				cacheMisses++;
-				chunk = fChunks[index] = new Chunk(this, index);
-				chunk.read();
+				if (fExclusiveLock) {
+					chunk = fChunks[index] = new Chunk(this, index);
+					chunk.read();
+					fCache.add(chunk, true);
+					return chunk;
+				}
 			} else {
 				cacheHits++;
+				fCache.add(chunk, fExclusiveLock);
+				return chunk;
+			}
+		}
+		return readChunkUnlocked(index);
+	}
+
+	/**
+	 * Reads a chunk that is not in memory without holding the lock of the cache, such that
+	 * concurrent readers missing different chunks do not serialize on the disk access. Without
+	 * the exclusive lock no chunk can be modified, so the content on disk is current. If another
+	 * reader loaded the same chunk in the meantime, its instance is used instead.
+	 */
+	private Chunk readChunkUnlocked(final int index) throws CoreException {
+		final Chunk newChunk= new Chunk(this, index);
+		newChunk.read();
+		synchronized (fCache) {
+			Chunk chunk= fChunks[index];
+			if (chunk == null) {
+				chunk= fChunks[index]= newChunk;
 			}
 			fCache.add(chunk, fExclusiveLock);
 			return chunk;
@@ -11,6 +11,7 @@
 package org.eclipse.cdt.internal.core.pdom.dom.cpp;
 
 import java.util.HashMap;
+import java.util.Map;
 
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.dom.ast.DOMException;
@@ -75,7 +76,36 @@ public class PDOMInstanceCache {
 		return null;
 	}
 	
+	/**
+	 * Keys and records of the instances stored in the index. The bindings themselves are not
+	 * kept beyond the lifetime of the cache, because they may reference AST specific data.
+	 */
+	private static final class IndexInstances {
+		final String[] fKeys;
+		final long[] fRecords;
+
+		IndexInstances(String[] keys, long[] records) {
+			fKeys= keys;
+			fRecords= records;
+		}
+	}
+
 	private void populate(PDOMBinding binding) throws CoreException {
+		// The result of the search is kept until the index is changed.
+		final PDOM pdom= binding.getPDOM();
+		final Long key= binding.getRecord() + PDOMCPPLinkage.CACHE_INSTANCES;
+		Object cached= pdom.getIndexCachedResult(key);
+		if (cached instanceof IndexInstances) {
+			IndexInstances indexInstances= (IndexInstances) cached;
+			for (int i= 0; i < indexInstances.fKeys.length; i++) {
+				PDOMBinding inst= binding.getLinkage().getBinding(indexInstances.fRecords[i]);
+				if (inst instanceof ICPPTemplateInstance) {
+					fMap.put(indexInstances.fKeys[i], (ICPPTemplateInstance) inst);
+				}
+			}
+			return;
+		}
+
 		PDOMNode parent= binding.getParentNode();
 		if (parent == null) {
 			parent= binding.getLinkage();
@@ -92,6 +122,15 @@ public class PDOMInstanceCache {
 				}
 			}
 		}
+
+		String[] keys= new String[fMap.size()];
+		long[] records= new long[keys.length];
+		int i= 0;
+		for (Map.Entry<String, ICPPTemplateInstance> entry : fMap.entrySet()) {
+			keys[i]= entry.getKey();
+			records[i++]= ((PDOMNode) entry.getValue()).getRecord();
+		}
+		pdom.putIndexCachedResult(key, new IndexInstances(keys, records));
 	}
 
 	synchronized public ICPPTemplateInstance[] getAllInstances() {
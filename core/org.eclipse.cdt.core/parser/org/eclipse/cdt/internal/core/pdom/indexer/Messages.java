@@ -17,6 +17,7 @@ public class Messages extends NLS {
 	private static final String BUNDLE_NAME = "org.eclipse.cdt.internal.core.pdom.indexer.messages"; //$NON-NLS-1$
 	public static String PDOMImportTask_errorInvalidArchive;
 	public static String PDOMImportTask_errorInvalidPDOMVersion;
+	public static String PDOMImportTask_errorNoDeltaBase;
 	public static String PDOMIndexerTask_collectingFilesTask;
 	public static String PDOMIndexerTask_indexerInfo;
 	public static String TodoTaskUpdater_DeleteJob;
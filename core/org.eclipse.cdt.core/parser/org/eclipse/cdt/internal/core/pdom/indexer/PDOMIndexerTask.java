@@ -277,6 +277,10 @@ public abstract class PDOMIndexerTask extends AbstractIndexerTask implements IPD
 					+ fStatistics.fReferenceCount + " references, "    //$NON-NLS-1$
 					+ fStatistics.fProblemBindingCount + "(" + nfPercent.format(problemPct) + ") unresolved.");     //$NON-NLS-1$ //$NON-NLS-2$
 
+			System.out.println(ident + " Header contents: "    //$NON-NLS-1$
+					+ fStatistics.fHeaderCacheHits + " reused, "    //$NON-NLS-1$
+					+ fStatistics.fHeaderCacheMisses + " read.");    //$NON-NLS-1$
+
 			long misses= index.getCacheMisses();
 			long hits= index.getCacheHits();
 			long tries= misses + hits;
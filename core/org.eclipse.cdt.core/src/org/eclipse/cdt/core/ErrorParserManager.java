@@ -671,26 +671,27 @@ outer:
 	// parsers (processLine method).
 	// If flush is true rest of line is checked by error parsers.
 	private void checkLine(boolean flush) {
-		String buffer = currentLine.toString();
-		int i = 0;
-		while ((i = buffer.indexOf('\n')) != -1) {
-			String line = buffer.substring(0, i);
+		int start = 0;
+		int i;
+		while ((i = currentLine.indexOf("\n", start)) != -1) { //$NON-NLS-1$
+			int end = i;
 			// get rid of any trailing '\r'
-			if (line.endsWith("\r")) { //$NON-NLS-1$
-				line=line.substring(0,line.length()-1);
+			if (end > start && currentLine.charAt(end - 1) == '\r') {
+				end--;
 			}
+			String line = currentLine.substring(start, end);
 			processLine(line);
 			previousLine = line;
-			buffer = buffer.substring(i + 1); // skip the \n and advance
+			start = i + 1; // skip the \n and advance
 		}
-		currentLine.setLength(0);
+		currentLine.delete(0, start);
 		if (flush) {
-			if (buffer.length() > 0) {
-				processLine(buffer);
-				previousLine = buffer;
+			if (currentLine.length() > 0) {
+				String line = currentLine.toString();
+				processLine(line);
+				previousLine = line;
 			}
-		} else {
-			currentLine.append(buffer);
+			currentLine.setLength(0);
 		}
 	}
 
@@ -62,11 +62,17 @@ public class BuildRunnerHelper implements Closeable {
 	private static final int TICKS_STREAM_PROGRESS_MONITOR = 1 * PROGRESS_MONITOR_SCALE;
 	private static final int TICKS_EXECUTE_PROGRAM = 1 * PROGRESS_MONITOR_SCALE;
 	private static final int TICKS_PARSE_OUTPUT = 1 * PROGRESS_MONITOR_SCALE;
+	/**
+	 * System property to let a separate thread parse the build output, see
+	 * {@link ConsoleOutputSniffer#setPipelined(boolean)}.
+	 */
+	private static final boolean PIPELINED_PARSING = Boolean.getBoolean("org.eclipse.cdt.core.pipelinedBuildOutputParsing"); //$NON-NLS-1$
 
 	private IProject project;
 
 	private IConsole console = null;
 	private ErrorParserManager errorParserManager = null;
+	private ConsoleOutputSniffer sniffer = null;
 	private StreamProgressMonitor streamProgressMonitor = null;
 	private OutputStream stdout = null;
 	private OutputStream stderr = null;
@@ -160,7 +166,8 @@ public class BuildRunnerHelper implements Closeable {
 		}
 
 		streamProgressMonitor = new StreamProgressMonitor(monitor, null, lastWork.intValue());
-		ConsoleOutputSniffer sniffer = new ConsoleOutputSniffer(streamProgressMonitor, streamProgressMonitor, parsers.toArray(new IConsoleParser[parsers.size()]));
+		sniffer = new ConsoleOutputSniffer(streamProgressMonitor, streamProgressMonitor, parsers.toArray(new IConsoleParser[parsers.size()]));
+		sniffer.setPipelined(PIPELINED_PARSING);
 		stdout = sniffer.getOutputStream();
 		stderr = sniffer.getErrorStream();
 	}
@@ -308,6 +315,7 @@ public class BuildRunnerHelper implements Closeable {
 				}
 			}
 		}
+		sniffer = null;
 		isStreamsOpen = false;
 	}
 
@@ -451,6 +459,10 @@ public class BuildRunnerHelper implements Closeable {
 	 */
 	public void printLine(String msg) {
 		Assert.isNotNull(errorParserManager, "Streams must be created and connected before calling this method"); //$NON-NLS-1$
+		if (sniffer != null) {
+			// Keep the order with the output of the build that is still being parsed.
+			sniffer.waitForPendingLines();
+		}
 		errorParserManager.processLine(msg);
 	}
 
@@ -12,6 +12,7 @@ package org.eclipse.cdt.internal.core;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.LinkedList;
 
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.IConsoleParser;
@@ -87,35 +88,74 @@ public class ConsoleOutputSniffer {
 				return;
 			}
 
-			String buffer = currentLine.toString();
-			int i = 0;
-			while ((i = buffer.indexOf('\n')) != -1) {
+			int start = 0;
+			int i;
+			while ((i = currentLine.indexOf("\n", start)) != -1) { //$NON-NLS-1$
 				int eol = i;
-				if (i > 0 && buffer.charAt(i-1) == '\r') {
+				if (i > start && currentLine.charAt(i-1) == '\r') {
 					// also get rid of trailing \r in case of Windows line delimiter "\r\n"
 					eol = i - 1;
 				}
-				String line = buffer.substring(0, eol);
-				processLine(line);
-
-				buffer = buffer.substring(i + 1); // skip the \n and advance
+				processLine(currentLine.substring(start, eol));
+				start = i + 1; // skip the \n and advance
 			}
-			currentLine.setLength(0);
-			if (flush) {
-				if (buffer.length() > 0) {
-					processLine(buffer);
-				}
-			} else {
-				currentLine.append(buffer);
+			currentLine.delete(0, start);
+			if (flush && currentLine.length() > 0) {
+				processLine(currentLine.toString());
+				currentLine.setLength(0);
 			}
 		}
 
 	} // end ConsoleOutputStream class
 
+	/**
+	 * Thread passing the lines to the parsers in pipelined mode.
+	 */
+	private class LineProcessor extends Thread {
+		// Guarded by pendingLines.
+		boolean stopped;
+
+		public LineProcessor() {
+			super("Build Output Parser"); //$NON-NLS-1$
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				String line;
+				synchronized (pendingLines) {
+					while (pendingLines.isEmpty()) {
+						processorBusy = false;
+						pendingLines.notifyAll();
+						if (stopped)
+							return;
+						try {
+							pendingLines.wait();
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+					processorBusy = true;
+					line = pendingLines.removeFirst();
+					if (pendingLines.size() == MAX_PENDING_LINES - 1) {
+						pendingLines.notifyAll();
+					}
+				}
+				passToParsers(line);
+			}
+		}
+	}
+
+	private static final int MAX_PENDING_LINES = 100000;
+
 	private int nOpens = 0;
 	private OutputStream consoleOutputStream;
 	private OutputStream consoleErrorStream;
 	private IConsoleParser[] parsers;
+	private final LinkedList<String> pendingLines = new LinkedList<String>();
+	private LineProcessor lineProcessor;
+	private boolean processorBusy;
 
 	public ConsoleOutputSniffer(IConsoleParser[] parsers) {
 		this.parsers = parsers;
@@ -147,6 +187,51 @@ public class ConsoleOutputSniffer {
 		return new ConsoleOutputStream(consoleErrorStream);
 	}
 
+	/**
+	 * In pipelined mode the lines are passed to the parsers by a separate thread, such that
+	 * the threads writing the output of the build process are not blocked by the parsers. The
+	 * lines are still passed to all parsers in order. Must be called before the output streams
+	 * are used, the mode ends when the last of the streams is closed.
+	 */
+	public void setPipelined(boolean pipelined) {
+		synchronized (pendingLines) {
+			if (pipelined && lineProcessor == null) {
+				lineProcessor = new LineProcessor();
+				lineProcessor.start();
+			} else if (!pipelined && lineProcessor != null) {
+				stopLineProcessor();
+			}
+		}
+	}
+
+	/**
+	 * Waits until the parsers have processed all lines that have been written to the streams so
+	 * far. Does nothing if the sniffer is not in pipelined mode.
+	 */
+	public void waitForPendingLines() {
+		synchronized (pendingLines) {
+			while (lineProcessor != null && (processorBusy || !pendingLines.isEmpty())) {
+				try {
+					pendingLines.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	private void stopLineProcessor() {
+		waitForPendingLines();
+		synchronized (pendingLines) {
+			if (lineProcessor != null) {
+				lineProcessor.stopped = true;
+				lineProcessor = null;
+				pendingLines.notifyAll();
+			}
+		}
+	}
+
 	private synchronized void incNOpens() {
 		nOpens++;
 	}
@@ -155,6 +240,7 @@ public class ConsoleOutputSniffer {
 	 */
 	public synchronized void closeConsoleOutputStream() throws IOException {
 		if (nOpens > 0 && --nOpens == 0) {
+			stopLineProcessor();
 			for (int i = 0; i < parsers.length; ++i) {
 				try {
 					parsers[i].shutdown();
@@ -171,7 +257,28 @@ public class ConsoleOutputSniffer {
 	 *
 	 * @param line
 	 */
-	private synchronized void processLine(String line) {
+	private void processLine(String line) {
+		synchronized (pendingLines) {
+			if (lineProcessor != null) {
+				while (pendingLines.size() >= MAX_PENDING_LINES && lineProcessor != null) {
+					try {
+						pendingLines.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						break;
+					}
+				}
+				pendingLines.addLast(line);
+				pendingLines.notifyAll();
+				return;
+			}
+		}
+		synchronized (this) {
+			passToParsers(line);
+		}
+	}
+
+	private void passToParsers(String line) {
 		for (IConsoleParser parser : parsers) {
 			try {
 				// Report exception if any but let all the parsers a chance to process the line.
@@ -316,7 +316,7 @@ public class Coff {
 		 * @since 5.1
 		 */
 		public ByteBuffer mapSectionData() throws IOException {
-			return sfile.getChannel().map(MapMode.READ_ONLY, s_scnptr, s_paddr).load().asReadOnlyBuffer();
+			return sfile.getChannel().map(MapMode.READ_ONLY, s_scnptr, s_paddr).asReadOnlyBuffer();
 		}
 	}
 
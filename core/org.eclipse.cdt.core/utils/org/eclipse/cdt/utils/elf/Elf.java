@@ -19,6 +19,7 @@ import static org.eclipse.cdt.internal.core.ByteUtils.makeLong;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -40,6 +41,7 @@ public class Elf {
 	public final static int ELF32_OFF_SIZE = 4;
 	public final static int ELF64_ADDR_SIZE = 8;
 	public final static int ELF64_OFF_SIZE = 8;
+	private final static int SYMBOL_BLOCK_SIZE = 64 * 1024;
 
 	protected ERandomAccessFile efile;
 
@@ -318,7 +320,8 @@ public class Elf {
 		 */
 		public ByteBuffer mapSectionData() throws IOException {
 			sections_mapped = true;
-			return efile.getChannel().map(MapMode.READ_ONLY, sh_offset, sh_size).load().asReadOnlyBuffer();
+			// Pages are read on demand, loading large debug sections up front stalls the caller.
+			return efile.getChannel().map(MapMode.READ_ONLY, sh_offset, sh_size).asReadOnlyBuffer();
 		}
 
 		public byte[] loadSectionData() throws IOException {
@@ -1056,49 +1059,84 @@ public class Elf {
 		if (section.sh_entsize != 0) {
 			numSyms = (int)section.sh_size / (int)section.sh_entsize;
 		}
-		ArrayList<Symbol> symList = new ArrayList<Symbol>(numSyms);
-		long offset = section.sh_offset;
-		for (int c = 0; c < numSyms; offset += section.sh_entsize, c++) {
-			efile.seek(offset);
-			Symbol symbol = new Symbol(section);
-			switch (ehdr.e_ident[ELFhdr.EI_CLASS]) {
-				case ELFhdr.ELFCLASS32 : {
-					byte[] addrArray = new byte[ELF32_ADDR_SIZE];
+		final boolean isle = ehdr.e_ident[ELFhdr.EI_DATA] == ELFhdr.ELFDATA2LSB;
+		final int addrSize;
+		switch (ehdr.e_ident[ELFhdr.EI_CLASS]) {
+			case ELFhdr.ELFCLASS32 :
+				addrSize = ELF32_ADDR_SIZE;
+				break;
+			case ELFhdr.ELFCLASS64 :
+				addrSize = ELF64_ADDR_SIZE;
+				break;
+			case ELFhdr.ELFCLASSNONE :
+			default :
+				throw new IOException("Unknown ELF class " + ehdr.e_ident[ELFhdr.EI_CLASS]); //$NON-NLS-1$
+		}
+		final int entsize = section.sh_entsize != 0 ? (int)section.sh_entsize : 2 * addrSize + 8;
+		if (entsize < 2 * addrSize + 8) {
+			throw new IOException("Invalid symbol entry size " + entsize); //$NON-NLS-1$
+		}
 
-					symbol.st_name = efile.readIntE();
-					efile.readFullyE(addrArray);
+		// Read the symbol table in blocks rather than field by field, every field read
+		// from the file is a separate system call.
+		ArrayList<Symbol> symList = new ArrayList<Symbol>(numSyms);
+		final int symsPerBlock = Math.max(1, SYMBOL_BLOCK_SIZE / entsize);
+		byte[] block = new byte[Math.min(numSyms, symsPerBlock) * entsize];
+		ByteBuffer buf = ByteBuffer.wrap(block);
+		buf.order(isle ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+		byte[] addrArray = new byte[addrSize];
+		efile.seek(section.sh_offset);
+		for (int c = 0; c < numSyms;) {
+			final int n = Math.min(numSyms - c, symsPerBlock);
+			efile.readFully(block, 0, n * entsize);
+			for (int i = 0; i < n; i++, c++) {
+				buf.position(i * entsize);
+				Symbol symbol = new Symbol(section);
+				if (addrSize == ELF32_ADDR_SIZE) {
+					symbol.st_name = buf.getInt();
+					getAddress(buf, addrArray, isle);
 					symbol.st_value = new Addr32(addrArray);
-					symbol.st_size = efile.readIntE();
-					symbol.st_info = efile.readByte();
-					symbol.st_other = efile.readByte();
-					symbol.st_shndx = efile.readShortE();
-				}
-					break;
-				case ELFhdr.ELFCLASS64 : {
-					byte[] addrArray = new byte[ELF64_ADDR_SIZE];
-
-					symbol.st_name = efile.readIntE();
-					symbol.st_info = efile.readByte();
-					symbol.st_other = efile.readByte();
-					symbol.st_shndx = efile.readShortE();
-					efile.readFullyE(addrArray);
+					symbol.st_size = buf.getInt();
+					symbol.st_info = buf.get();
+					symbol.st_other = buf.get();
+					symbol.st_shndx = buf.getShort();
+				} else {
+					symbol.st_name = buf.getInt();
+					symbol.st_info = buf.get();
+					symbol.st_other = buf.get();
+					symbol.st_shndx = buf.getShort();
+					getAddress(buf, addrArray, isle);
 					symbol.st_value = new Addr64(addrArray);
-					symbol.st_size = readUnsignedLong(efile);
+					symbol.st_size = buf.getLong();
+					if (symbol.st_size < 0) {
+						throw new IOException("Maximal file offset is " + Long.toHexString(Long.MAX_VALUE) + //$NON-NLS-1$
+								" given offset is " + Long.toHexString(symbol.st_size)); //$NON-NLS-1$
+					}
 				}
-					break;
-				case ELFhdr.ELFCLASSNONE :
-				default :
-					throw new IOException("Unknown ELF class " + ehdr.e_ident[ELFhdr.EI_CLASS]); //$NON-NLS-1$
+				if (symbol.st_info == 0)
+					continue;
+				symList.add(symbol);
 			}
-			if (symbol.st_info == 0)
-				continue;
-			symList.add(symbol);
 		}
 		Symbol[] results = symList.toArray(new Symbol[0]);
 		Arrays.sort(results);
 		return results;
 	}
 
+	/**
+	 * Reads an address in big endian order, the way {@link ERandomAccessFile#readFullyE(byte[])} does.
+	 */
+	private static void getAddress(ByteBuffer buf, byte[] addrArray, boolean isle) {
+		buf.get(addrArray);
+		if (isle) {
+			for (int i = 0; i < addrArray.length / 2; i++) {
+				byte tmp = addrArray[i];
+				addrArray[i] = addrArray[addrArray.length - i - 1];
+				addrArray[addrArray.length - i - 1] = tmp;
+			}
+		}
+	}
+
 	public void loadSymbols() throws IOException {
 		if (symbols == null) {
 			Section section[] = getSections(Section.SHT_SYMTAB);
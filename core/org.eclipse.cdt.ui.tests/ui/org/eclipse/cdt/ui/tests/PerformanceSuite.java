@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.ui.tests;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.cdt.ui.tests.refactoring.rename.RenamePerformanceTests;
+import org.eclipse.cdt.ui.tests.text.SemanticHighlightingPerformanceTest;
+
+/**
+ * Benchmarks of the UI, they take too long to be part of the {@link AutomatedSuite}.
+ */
+public class PerformanceSuite extends TestSuite {
+
+	public static Test suite() throws Exception {
+		return new PerformanceSuite();
+	}
+
+	public PerformanceSuite() throws Exception {
+		super(PerformanceSuite.class.getName());
+
+		addTest(SemanticHighlightingPerformanceTest.suite());
+		addTest(RenamePerformanceTests.suite());
+	}
+}
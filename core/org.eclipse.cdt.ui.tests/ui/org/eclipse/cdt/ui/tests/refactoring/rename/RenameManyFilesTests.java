@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.ui.tests.refactoring.rename;
+
+import java.io.ByteArrayInputStream;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.ltk.core.refactoring.Change;
+
+import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.index.IIndex;
+
+import org.eclipse.cdt.internal.ui.refactoring.rename.CRenameProcessor;
+import org.eclipse.cdt.internal.ui.refactoring.rename.CRenameRefactoring;
+
+/**
+ * Tests renaming a name that appears in enough files to classify the matches with the index
+ * and to analyze the remaining files on several threads.
+ */
+public class RenameManyFilesTests extends RenameTests {
+	/** Enough files for the parallel analysis */
+	private static final int FILES= 8;
+	private static final String HEADER= "int target(int x);\n" +
+			"struct Other { int target; };\n";
+	private static final String CALLER= "#include \"target.h\"\n" +
+			"int caller$() {\n" +
+			"  return target($);\n" +
+			"}\n";
+	private static final String USER= "#include \"target.h\"\n" +
+			"int user$(Other& o) {\n" +
+			"  return o.target;\n" +
+			"}\n";
+	/** Refers to the function at the offset of the field in {@link #USER} */
+	private static final String CHANGED_USER= "#include \"target.h\"\n" +
+			"int user$(Other& o) {\n" +
+			"  return +(target(0));\n" +
+			"}\n";
+
+	public RenameManyFilesTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return suite(true);
+	}
+
+	public static Test suite(boolean cleanup) {
+		TestSuite suite= new TestSuite(RenameManyFilesTests.class);
+		if (cleanup) {
+			suite.addTest(new RefactoringTests("cleanupProject"));
+		}
+		return suite;
+	}
+
+	private IFile createFiles() throws Exception {
+		IFile header= importFile("target.h", HEADER);
+		for (int i = 0; i < FILES; i++) {
+			super.importFile("caller" + i + ".cpp", CALLER.replace("$", String.valueOf(i)));
+			super.importFile("user" + i + ".cpp", USER.replace("$", String.valueOf(i)));
+		}
+		waitForIndexer();
+		return header;
+	}
+
+	private static boolean isAnalyzerThreadAlive() {
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.isAlive() && thread.getName().equals("Rename Refactoring Analyzer"))
+				return true;
+		}
+		return false;
+	}
+
+	public void testFieldWithSameNameIsNotRenamed() throws Exception {
+		IFile header= createFiles();
+		Change changes= getRefactorChanges(header, HEADER.indexOf("target"), "renamed");
+		// The declaration and the calls, but not the field or its uses.
+		assertTotalChanges(FILES + 1, changes);
+		for (int i = 0; i < FILES; i++) {
+			IFile caller= project.getFile("caller" + i + ".cpp");
+			assertChange(changes, caller, CALLER.replace("$", String.valueOf(i)).indexOf("target"), 6, "renamed");
+		}
+		assertFalse(isAnalyzerThreadAlive());
+	}
+
+	public void testFileChangedSinceIndexing() throws Exception {
+		IFile header= createFiles();
+		IFile user= project.getFile("user0.cpp");
+		String contents= CHANGED_USER.replace("$", "0");
+		assertEquals(USER.replace("$", "0").indexOf("target"), contents.indexOf("target"));
+
+		// Keep the indexer from updating the changed file.
+		IIndex index= CCorePlugin.getIndexManager().getIndex(cproject);
+		index.acquireReadLock();
+		try {
+			long timestamp= user.getLocalTimeStamp();
+			user.setContents(new ByteArrayInputStream(contents.getBytes()), true, false, new NullProgressMonitor());
+			if (user.getLocalTimeStamp() == timestamp) {
+				user.setLocalTimeStamp(timestamp + 1000);
+			}
+
+			// The index still has the field at the offset of the call, the file has to be parsed.
+			Change changes= getRefactorChanges(header, HEADER.indexOf("target"), "renamed");
+			assertTotalChanges(FILES + 2, changes);
+			assertChange(changes, user, contents.indexOf("target"), 6, "renamed");
+		} finally {
+			index.releaseReadLock();
+		}
+	}
+
+	public void testCancelParallelAnalysis() throws Exception {
+		if (Runtime.getRuntime().availableProcessors() < 2) {
+			// The files are analyzed on the calling thread.
+			return;
+		}
+		IFile header= createFiles();
+		CRenameRefactoring refactoring= createRefactoring(header, HEADER.indexOf("target"), "renamed");
+		CRenameProcessor processor= (CRenameProcessor) refactoring.getProcessor();
+		processor.lockIndex();
+		try {
+			assertFalse(refactoring.checkInitialConditions(new NullProgressMonitor()).hasError());
+			try {
+				refactoring.checkFinalConditions(new NullProgressMonitor() {
+					@Override
+					public boolean isCanceled() {
+						// Cancel as soon as the workers have been started.
+						return isAnalyzerThreadAlive();
+					}
+				});
+				fail("Expected the refactoring to be canceled");
+			} catch (OperationCanceledException e) {
+			}
+		} finally {
+			processor.unlockIndex();
+		}
+		// The workers are stopped before the refactoring returns.
+		assertFalse(isAnalyzerThreadAlive());
+
+		// A new attempt is not affected.
+		Change changes= getRefactorChanges(header, HEADER.indexOf("target"), "renamed");
+		assertTotalChanges(FILES + 1, changes);
+	}
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.ui.tests.refactoring.rename;
+
+import java.io.ByteArrayInputStream;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.ltk.core.refactoring.Change;
+
+/**
+ * Measures the time of a rename refactoring that touches a large number of files.
+ */
+public class RenamePerformanceTests extends RenameTests {
+	private static final boolean PRINT_TIMING= false;
+
+	/** Number of files referencing the renamed function */
+	private static final int REFERENCING_FILES= 2000;
+	/** Number of files that contain the name, but do not reference the renamed function */
+	private static final int OTHER_FILES= 1000;
+
+	public RenamePerformanceTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return suite(true);
+	}
+
+	public static Test suite(boolean cleanup) {
+		TestSuite suite= new TestSuite(RenamePerformanceTests.class);
+		if (cleanup) {
+			suite.addTest(new RefactoringTests("cleanupProject"));
+		}
+		return suite;
+	}
+
+	private void createFiles(final String prefix, final String contents, final int count) throws CoreException {
+		ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+			@Override
+			public void run(IProgressMonitor monitor) throws CoreException {
+				for (int i = 0; i < count; i++) {
+					IFile file= project.getFile(prefix + i + ".cpp");
+					String code= contents.replace("$", String.valueOf(i));
+					file.create(new ByteArrayInputStream(code.getBytes()), true, monitor);
+				}
+			}
+		}, null);
+	}
+
+	public void testRenameFunctionInManyFiles() throws Exception {
+		String header= "int target(int x);\n" +
+				"struct Other { int target; };\n";
+		IFile h= importFile("target.h", header);
+		createFiles("caller", "#include \"target.h\"\n" +
+				"int caller$() {\n" +
+				"  return target($);\n" +
+				"}\n", REFERENCING_FILES);
+		createFiles("user", "#include \"target.h\"\n" +
+				"int user$(Other& o) {\n" +
+				"  return o.target + $;\n" +
+				"}\n", OTHER_FILES);
+		waitForIndexer();
+
+		long time= System.currentTimeMillis();
+		Change changes= getRefactorChanges(h, header.indexOf("target"), "renamed");
+		time= System.currentTimeMillis() - time;
+		assertTotalChanges(REFERENCING_FILES + 1, changes);
+
+		if (PRINT_TIMING) {
+			System.out.println("rename in " + (REFERENCING_FILES + OTHER_FILES) + " files = " + time + "ms");
+		}
+	}
+}
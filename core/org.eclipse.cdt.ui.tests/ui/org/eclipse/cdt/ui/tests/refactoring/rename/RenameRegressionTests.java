@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2010 IBM Corporation and others.
+ * Copyright (c) 2004, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -49,6 +49,7 @@ public class RenameRegressionTests extends RenameTests {
         suite.addTest(RenameTypeTests.suite(false));
         suite.addTest(RenameMacroTests.suite(false));
         suite.addTest(RenameTemplatesTests.suite(false));
+        suite.addTest(RenameManyFilesTests.suite(false));
         
         if (cleanup)
             suite.addTest(new RenameRegressionTests("cleanupProject"));    //$NON-NLS-1$
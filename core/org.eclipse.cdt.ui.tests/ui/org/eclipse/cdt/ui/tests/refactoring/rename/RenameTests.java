@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2010 Wind River Systems, Inc.
+ * Copyright (c) 2005, 2013 Wind River Systems, Inc.
  * All rights reserved. This program and the accompanying materials 
  * are made available under the terms of the Eclipse Public License v1.0 
  * which accompanies this distribution, and is available at 
@@ -65,7 +65,7 @@ public class RenameTests extends RefactoringTests {
         }
     }
 
-    private CRenameRefactoring createRefactoring(IFile file, int offset, String newName) {
+    protected CRenameRefactoring createRefactoring(IFile file, int offset, String newName) {
     	CRefactoringArgument arg= new CRefactoringArgument(file, offset, 0);
         CRenameProcessor proc= new CRenameProcessor(CRefactory.getInstance(), arg);
         proc.setReplacementText( newName );
@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.ui.tests.text;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jface.preference.IPreferenceStore;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.source.SourceViewer;
+
+import org.eclipse.cdt.core.dom.IPDOMManager;
+import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
+import org.eclipse.cdt.core.model.ICProject;
+import org.eclipse.cdt.core.model.ILanguage;
+import org.eclipse.cdt.core.testplugin.CProjectHelper;
+import org.eclipse.cdt.ui.CUIPlugin;
+import org.eclipse.cdt.ui.PreferenceConstants;
+import org.eclipse.cdt.ui.testplugin.Accessor;
+import org.eclipse.cdt.ui.testplugin.EditorTestHelper;
+
+import org.eclipse.cdt.internal.core.model.ASTCache;
+
+import org.eclipse.cdt.internal.ui.editor.ASTProvider;
+import org.eclipse.cdt.internal.ui.editor.CEditor;
+import org.eclipse.cdt.internal.ui.editor.SemanticHighlighting;
+import org.eclipse.cdt.internal.ui.editor.SemanticHighlightingManager;
+import org.eclipse.cdt.internal.ui.editor.SemanticHighlightingManager.HighlightedPosition;
+import org.eclipse.cdt.internal.ui.editor.SemanticHighlightingPresenter;
+import org.eclipse.cdt.internal.ui.editor.SemanticHighlightingReconciler;
+import org.eclipse.cdt.internal.ui.editor.SemanticHighlightings;
+
+/**
+ * Measures the latency of the semantic highlighting reconciler on a large file, for
+ * reconciling the entire file and for reconciling a function body after it has been changed.
+ */
+public class SemanticHighlightingPerformanceTest extends TestCase {
+	private static final boolean PRINT_TIMING= false;
+
+	private static final String PROJECT= "SHPerformanceTest";
+	private static final String FILE= "large.cpp";
+	/** Number of code blocks in the file, each of them has 14 lines */
+	private static final int BLOCKS= 1500;
+	private static final int COUNT= 5;
+
+	public static Test suite() {
+		return new TestSuite(SemanticHighlightingPerformanceTest.class);
+	}
+
+	private ICProject fCProject;
+	private CEditor fEditor;
+	private SourceViewer fSourceViewer;
+	private SemanticHighlightingReconciler fReconciler;
+	private SemanticHighlightingPresenter fPresenter;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		setAllSemanticHighlightingsEnabled(true);
+		fCProject= CProjectHelper.createCCProject(PROJECT, "bin", IPDOMManager.ID_NO_INDEXER);
+		IFile file= EditorTestHelper.createFile(fCProject.getProject(), FILE, createLargeFile(), new NullProgressMonitor());
+		fEditor= (CEditor) EditorTestHelper.openInEditor(file, true);
+		fSourceViewer= EditorTestHelper.getSourceViewer(fEditor);
+		assertTrue(EditorTestHelper.joinReconciler(fSourceViewer, 500, 60000, 100));
+		EditorTestHelper.joinBackgroundActivities();
+
+		SemanticHighlightingManager manager= (SemanticHighlightingManager) new Accessor(fEditor, CEditor.class).get("fSemanticManager");
+		Accessor accessor= new Accessor(manager, manager.getClass());
+		fReconciler= (SemanticHighlightingReconciler) accessor.get("fReconciler");
+		fPresenter= (SemanticHighlightingPresenter) accessor.get("fPresenter");
+		assertNotNull(fReconciler);
+		// The reconciles are triggered by the test.
+		fEditor.removeReconcileListener(fReconciler);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		EditorTestHelper.closeEditor(fEditor);
+		fEditor= null;
+		if (fCProject != null) {
+			CProjectHelper.delete(fCProject);
+			fCProject= null;
+		}
+		setAllSemanticHighlightingsEnabled(false);
+		super.tearDown();
+	}
+
+	private static void setAllSemanticHighlightingsEnabled(boolean enable) {
+		IPreferenceStore store= CUIPlugin.getDefault().getPreferenceStore();
+		for (SemanticHighlighting highlighting : SemanticHighlightings.getSemanticHighlightings()) {
+			String key= SemanticHighlightings.getEnabledPreferenceKey(highlighting);
+			if (enable) {
+				store.setValue(key, true);
+			} else {
+				store.setToDefault(key);
+			}
+		}
+		if (!enable)
+			store.setToDefault(PreferenceConstants.EDITOR_SEMANTIC_HIGHLIGHTING_ENABLED);
+	}
+
+	private static String createLargeFile() {
+		StringBuilder buf= new StringBuilder();
+		buf.append("#define CHECK(x) if (!(x)) return -1\n");
+		for (int i= 0; i < BLOCKS; i++) {
+			buf.append("namespace ns").append(i).append(" {\n");
+			buf.append("enum Enum { e1, e2 };\n");
+			buf.append("typedef int Int;\n");
+			buf.append("class Class { public: Int field; static Enum sfield; int method(int p); };\n");
+			buf.append("int global;\n");
+			buf.append("int Class::method(int p) {\n");
+			buf.append("\tint local= p + field + sfield + global;\n");
+			buf.append("\tCHECK(local > 0);\n");
+			buf.append("\tfor (int i= 0; i < 10; i++) {\n");
+			buf.append("\t\tlocal+= method(i) + e2;\n");
+			buf.append("\t}\n");
+			buf.append("\treturn local;\n");
+			buf.append("}\n");
+			buf.append("}\n");
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * Inserts a statement into a function body in the middle of the file and waits
+	 * for the AST of the editor to be updated.
+	 */
+	private void changeFunctionBody(int count) throws Exception {
+		IDocument document= fSourceViewer.getDocument();
+		String content= document.get();
+		int offset= content.indexOf("\treturn local;", content.length() / 2);
+		assertTrue(offset > 0);
+		document.replace(offset, 0, "\tlocal+= field * " + count + ";\n");
+		assertTrue(EditorTestHelper.joinReconciler(fSourceViewer, 500, 60000, 100));
+	}
+
+	/**
+	 * Runs the semantic highlighting reconciler on the current AST of the editor and
+	 * returns the time it took.
+	 */
+	private long reconcile(final boolean force) throws Exception {
+		final long[] time= new long[1];
+		if (!force) {
+			// Like the reconciler of the editor, which has already created the AST.
+			fReconciler.aboutToBeReconciled();
+		}
+		IStatus status= CUIPlugin.getDefault().getASTProvider().runOnAST(fEditor.getInputCElement(),
+				ASTProvider.WAIT_IF_OPEN, new NullProgressMonitor(), new ASTCache.ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) {
+				assertNotNull(ast);
+				long start= System.currentTimeMillis();
+				fReconciler.reconciled(ast, force, new NullProgressMonitor());
+				time[0]= System.currentTimeMillis() - start;
+				return Status.OK_STATUS;
+			}
+		});
+		assertTrue(status.isOK());
+		// Let the UI thread apply the new positions.
+		EditorTestHelper.runEventQueue(100);
+		return time[0];
+	}
+
+	private boolean reconciledChangedBody() throws Exception {
+		Accessor accessor= new Accessor(fReconciler, SemanticHighlightingReconciler.class);
+		return ((Boolean) accessor.get("fReconciledChangedBody")).booleanValue();
+	}
+
+	private String getPositions() {
+		List<HighlightedPosition> positions= new ArrayList<HighlightedPosition>();
+		fPresenter.addAllPositions(positions);
+		StringBuilder buf= new StringBuilder();
+		for (HighlightedPosition position : positions) {
+			buf.append(position.getOffset()).append(',').append(position.getLength()).append(',');
+			buf.append(System.identityHashCode(position.getHighlighting())).append('\n');
+		}
+		return buf.toString();
+	}
+
+	public void testReconcileLatency() throws Exception {
+		reconcile(true);
+		long fullTime= 0;
+		for (int i= 0; i < COUNT; i++) {
+			fullTime+= reconcile(true);
+		}
+
+		// The first reconcile after a forced one covers the entire file.
+		changeFunctionBody(0);
+		reconcile(false);
+		assertFalse(reconciledChangedBody());
+		long incrementalTime= 0;
+		for (int i= 1; i <= COUNT; i++) {
+			changeFunctionBody(i);
+			incrementalTime+= reconcile(false);
+			assertTrue(reconciledChangedBody());
+
+			// The positions have to be the same as for reconciling the entire file.
+			String positions= getPositions();
+			reconcile(true);
+			assertEquals(positions, getPositions());
+			changeFunctionBody(-i);
+			reconcile(false);
+		}
+
+		if (PRINT_TIMING) {
+			System.out.println("complete reconcile = " + fullTime / COUNT + "ms");
+			System.out.println("incremental reconcile = " + incrementalTime / COUNT + "ms");
+		}
+
+		// dangerous: assert no regression in performance
+		// assertTrue(incrementalTime <= fullTime);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2010 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2013 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,7 +12,9 @@ package org.eclipse.cdt.internal.ui.callhierarchy;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -24,11 +26,15 @@ import org.eclipse.cdt.core.dom.ast.cpp.ICPPMethod;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPSpecialization;
 import org.eclipse.cdt.core.index.IIndex;
 import org.eclipse.cdt.core.index.IIndexBinding;
+import org.eclipse.cdt.core.index.IIndexFile;
+import org.eclipse.cdt.core.index.IIndexFileLocation;
 import org.eclipse.cdt.core.index.IIndexName;
+import org.eclipse.cdt.core.model.CoreModelUtil;
 import org.eclipse.cdt.core.model.ICElement;
 import org.eclipse.cdt.core.model.ICProject;
 import org.eclipse.cdt.core.model.ISourceReference;
 import org.eclipse.cdt.core.model.ITranslationUnit;
+import org.eclipse.cdt.ui.CUIPlugin;
 
 import org.eclipse.cdt.internal.core.dom.parser.cpp.ClassTypeHelper;
 import org.eclipse.cdt.internal.core.model.ext.ICElementHandle;
@@ -42,6 +48,85 @@ import org.eclipse.cdt.internal.ui.viewsupport.IndexUI;
 public class CHQueries {
 	private static final CHNode[] EMPTY_NODES= new CHNode[0];
 	
+	/**
+	 * Identifies the definition of a caller within one query.
+	 */
+	private static final class CallerKey {
+		private final IIndexFileLocation fLocation;
+		private final int fLinkageID;
+		private final int fOffset;
+
+		CallerKey(IIndexName caller) throws CoreException {
+			IIndexFile file= caller.getFile();
+			fLocation= file.getLocation();
+			fLinkageID= file.getLinkageID();
+			fOffset= caller.getNodeOffset();
+		}
+
+		@Override
+		public int hashCode() {
+			return (fLocation.hashCode() * 31 + fLinkageID) * 31 + fOffset;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof CallerKey))
+				return false;
+			CallerKey other= (CallerKey) obj;
+			return fOffset == other.fOffset && fLinkageID == other.fLinkageID && fLocation.equals(other.fLocation);
+		}
+	}
+
+	/**
+	 * Converts the definitions enclosing the references to elements. A popular function
+	 * has many references in few callers and few files, therefore each caller and each
+	 * translation unit is looked up once per query, only.
+	 */
+	private static final class CallerCache {
+		private final ICProject fProject;
+		private final IIndex fIndex;
+		private final Map<IIndexFileLocation, ITranslationUnit> fTranslationUnits= new HashMap<IIndexFileLocation, ITranslationUnit>();
+		private final Map<CallerKey, ICElement> fCallers= new HashMap<CallerKey, ICElement>();
+
+		CallerCache(ICProject project, IIndex index) {
+			fProject= project;
+			fIndex= index;
+		}
+
+		ICElement getCaller(IIndexName caller) throws CoreException {
+			CallerKey key;
+			try {
+				key= new CallerKey(caller);
+			} catch (CoreException e) {
+				CUIPlugin.log(e);
+				return null;
+			}
+			ICElement elem= fCallers.get(key);
+			if (elem == null && !fCallers.containsKey(key)) {
+				ITranslationUnit tu= getTranslationUnit(key.fLocation);
+				if (tu != null) {
+					elem= IndexUI.getCElementForName(tu, fIndex, caller);
+				}
+				fCallers.put(key, elem);
+			}
+			return elem;
+		}
+
+		private ITranslationUnit getTranslationUnit(IIndexFileLocation location) {
+			ITranslationUnit tu= fTranslationUnits.get(location);
+			if (tu == null && !fTranslationUnits.containsKey(location)) {
+				try {
+					tu= CoreModelUtil.findTranslationUnitForLocation(location, fProject);
+				} catch (CoreException e) {
+					// The callers in this file are skipped.
+					CUIPlugin.log(e);
+				}
+				fTranslationUnits.put(location, tu);
+			}
+			return tu;
+		}
+	}
+
     private CHQueries() {}
     
 	/**
@@ -77,36 +162,36 @@ public class CHQueries {
 
 	private static void findCalledBy(ICElement callee, int linkageID, IIndex index, CalledByResult result) 
 			throws CoreException {
-		final ICProject project = callee.getCProject();
+		final CallerCache callers= new CallerCache(callee.getCProject(), index);
 		IIndexBinding calleeBinding= IndexUI.elementToBinding(index, callee, linkageID);
 		if (calleeBinding != null) {
-			findCalledBy1(index, calleeBinding, true, project, result);
+			findCalledBy1(index, calleeBinding, true, callers, result);
 			if (calleeBinding instanceof ICPPMethod) {
 				IBinding[] overriddenBindings= ClassTypeHelper.findOverridden((ICPPMethod) calleeBinding, null);
 				for (IBinding overriddenBinding : overriddenBindings) {
-					findCalledBy1(index, overriddenBinding, false, project, result);
+					findCalledBy1(index, overriddenBinding, false, callers, result);
 				}
 			}
 		}
 	}
 
 	private static void findCalledBy1(IIndex index, IBinding callee, boolean includeOrdinaryCalls,
-			ICProject project, CalledByResult result) throws CoreException {
-		findCalledBy2(index, callee, includeOrdinaryCalls, project, result);
+			CallerCache callers, CalledByResult result) throws CoreException {
+		findCalledBy2(index, callee, includeOrdinaryCalls, callers, result);
 		List<? extends IBinding> specializations = IndexUI.findSpecializations(index, callee);
 		for (IBinding spec : specializations) {
-			findCalledBy2(index, spec, includeOrdinaryCalls, project, result);
+			findCalledBy2(index, spec, includeOrdinaryCalls, callers, result);
 		}
 	}
 
 	private static void findCalledBy2(IIndex index, IBinding callee, boolean includeOrdinaryCalls,
-			ICProject project, CalledByResult result) throws CoreException {
+			CallerCache callers, CalledByResult result) throws CoreException {
 		IIndexName[] names= index.findNames(callee, IIndex.FIND_REFERENCES | IIndex.SEARCH_ACROSS_LANGUAGE_BOUNDARIES);
 		for (IIndexName rname : names) {
 			if (includeOrdinaryCalls || rname.couldBePolymorphicMethodCall()) {
 				IIndexName caller= rname.getEnclosingDefinition();
 				if (caller != null) {
-					ICElement elem= IndexUI.getCElementForName(project, index, caller);
+					ICElement elem= callers.getCaller(caller);
 					if (elem != null) {
 						result.add(elem, rname);
 					} 
@@ -91,6 +91,18 @@ public abstract class SemanticHighlighting {
 		return false;
 	}
 
+	/**
+	 * Returns the types of the bindings the highlighting can consume tokens for, or
+	 * <code>null</code> if the highlighting needs to be asked for tokens with any binding,
+	 * or without a binding. The reconciler does not ask the highlighting whether it
+	 * consumes a token for a binding that is not an instance of one of the types.
+	 *
+	 * @return the binding types or <code>null</code>
+	 */
+	public Class<?>[] getBindingTypes() {
+		return null;
+	}
+
 	/**
 	 * Returns <code>true</code> iff the semantic highlighting consumes the semantic token.
 	 * <p>
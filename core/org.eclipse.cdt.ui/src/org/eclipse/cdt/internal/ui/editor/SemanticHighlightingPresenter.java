@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -8,6 +8,7 @@
  * Contributors:
  *     IBM Corporation - initial API and implementation
  *     Anton Leherbauer (Wind River Systems) - Adapted for CDT
+ *     agent
  *******************************************************************************/
 package org.eclipse.cdt.internal.ui.editor;
 
@@ -43,6 +44,26 @@ import org.eclipse.cdt.internal.ui.text.CPresentationReconciler;
  * @since 4.0
  */
 public class SemanticHighlightingPresenter implements ITextPresentationListener, ITextInputListener, IDocumentListener {
+	/**
+	 * The region of the document that has been changed, in the coordinates of the current
+	 * document, together with the change of the length of the document.
+	 */
+	public static final class ChangedRegion extends Region {
+		private final int fLengthDelta;
+
+		ChangedRegion(int offset, int length, int lengthDelta) {
+			super(offset, length);
+			fLengthDelta= lengthDelta;
+		}
+
+		/**
+		 * @return the difference between the current and the previous length of the document
+		 */
+		public int getLengthDelta() {
+			return fLengthDelta;
+		}
+	}
+
 	/**
 	 * Semantic highlighting position updater.
 	 */
@@ -239,6 +260,16 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 	/** <code>true</code> iff the current reconcile is canceled. */
 	private boolean fIsCanceled= false;
 
+	/** Lock for the changed region */
+	private final Object fChangeLock= new Object();
+	/** Start and end of the changed region, <code>-1</code> if the document is unchanged */
+	private int fChangedStart= -1;
+	private int fChangedEnd= -1;
+	/** Change of the length of the document */
+	private int fLengthDelta;
+	/** <code>true</code> iff the changes of the document have not been tracked */
+	private boolean fChangesUnknown= true;
+
 	/**
 	 * Creates and returns a new highlighted position with the given offset, length and highlighting.
 	 * <p>
@@ -369,8 +400,13 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 
 		// TODO: double-check consistency with document.getPositions(...)
 		// TODO: reuse removed positions
-		if (isCanceled())
+		if (isCanceled()) {
+			// The positions are outdated, the next reconcile cannot be limited to the changed region.
+			synchronized (fChangeLock) {
+				fChangesUnknown= true;
+			}
 			return;
+		}
 
 		IDocument document= fSourceViewer.getDocument();
 		if (document == null)
@@ -581,6 +617,44 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 
 	@Override
 	public void documentChanged(DocumentEvent event) {
+		String text= event.getText();
+		int newLength= text != null ? text.length() : 0;
+		int offset= event.getOffset();
+		int oldEnd= offset + event.getLength();
+		int delta= newLength - event.getLength();
+		synchronized (fChangeLock) {
+			if (fChangedStart < 0) {
+				fChangedStart= offset;
+				fChangedEnd= offset + newLength;
+			} else {
+				fChangedEnd= fChangedEnd > oldEnd ? fChangedEnd + delta : offset + newLength;
+				fChangedStart= Math.min(fChangedStart, offset);
+			}
+			fLengthDelta+= delta;
+		}
+	}
+
+	/**
+	 * Returns the region of the document that has been changed since the previous call
+	 * and starts tracking the changes anew.
+	 * <p>
+	 * NOTE: Called from background thread.
+	 * </p>
+	 *
+	 * @return the changed region, or <code>null</code> if the document is unchanged or
+	 *     the changes are not known.
+	 */
+	public ChangedRegion takeChangedRegion() {
+		synchronized (fChangeLock) {
+			ChangedRegion result= null;
+			if (fChangedStart >= 0 && !fChangesUnknown) {
+				result= new ChangedRegion(fChangedStart, fChangedEnd - fChangedStart, fLengthDelta);
+			}
+			fChangedStart= fChangedEnd= -1;
+			fLengthDelta= 0;
+			fChangesUnknown= false;
+			return result;
+		}
 	}
 
 	/**
@@ -727,6 +801,9 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 		synchronized (fPositionLock) {
 			fPositions.clear();
 		}
+		synchronized (fChangeLock) {
+			fChangesUnknown= true;
+		}
 	}
 
 	/**
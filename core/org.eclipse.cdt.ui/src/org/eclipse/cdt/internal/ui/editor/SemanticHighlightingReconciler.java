@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,9 +13,12 @@
 package org.eclipse.cdt.internal.ui.editor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -30,7 +33,10 @@ import org.eclipse.ui.IWorkbenchPartSite;
 
 import org.eclipse.cdt.core.dom.ast.ASTVisitor;
 import org.eclipse.cdt.core.dom.ast.IASTDeclaration;
+import org.eclipse.cdt.core.dom.ast.IASTDeclSpecifier;
 import org.eclipse.cdt.core.dom.ast.IASTDeclarator;
+import org.eclipse.cdt.core.dom.ast.IASTFileLocation;
+import org.eclipse.cdt.core.dom.ast.IASTFunctionDefinition;
 import org.eclipse.cdt.core.dom.ast.IASTImageLocation;
 import org.eclipse.cdt.core.dom.ast.IASTMacroExpansionLocation;
 import org.eclipse.cdt.core.dom.ast.IASTName;
@@ -38,8 +44,11 @@ import org.eclipse.cdt.core.dom.ast.IASTNode;
 import org.eclipse.cdt.core.dom.ast.IASTNodeLocation;
 import org.eclipse.cdt.core.dom.ast.IASTPreprocessorMacroDefinition;
 import org.eclipse.cdt.core.dom.ast.IASTPreprocessorMacroExpansion;
+import org.eclipse.cdt.core.dom.ast.IASTPreprocessorStatement;
 import org.eclipse.cdt.core.dom.ast.IASTStatement;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPASTDeclSpecifier;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPASTNamespaceDefinition;
 import org.eclipse.cdt.core.model.ICElement;
 import org.eclipse.cdt.core.model.ILanguage;
@@ -49,6 +58,7 @@ import org.eclipse.cdt.internal.core.model.ASTCache;
 
 import org.eclipse.cdt.internal.ui.editor.SemanticHighlightingManager.HighlightedPosition;
 import org.eclipse.cdt.internal.ui.editor.SemanticHighlightingManager.HighlightingStyle;
+import org.eclipse.cdt.internal.ui.editor.SemanticHighlightingPresenter.ChangedRegion;
 import org.eclipse.cdt.internal.ui.text.ICReconcilingListener;
 
 /**
@@ -65,8 +75,23 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 		/** The semantic token */
 		private SemanticToken fToken= new SemanticToken();
 		private int fMinLocation;
+		/** Indices of the enabled highlightings */
+		private final int[] fEnabledHighlightings;
+		/**
+		 * Indices of the enabled highlightings that can consume a token, by the class of the
+		 * binding of the token.
+		 */
+		private final Map<Class<?>, int[]> fCandidates= new HashMap<Class<?>, int[]>();
 		
 		public PositionCollector(boolean visitImplicitNames) {
+			int n= 0;
+			int[] enabled= new int[fJobHighlightings.length];
+			for (int i= 0; i < fJobHighlightings.length; i++) {
+				if (fJobHighlightings[i].isEnabled())
+					enabled[n++]= i;
+			}
+			fEnabledHighlightings= new int[n];
+			System.arraycopy(enabled, 0, fEnabledHighlightings, 0, n);
 			fMinLocation= -1;
 			shouldVisitTranslationUnit= true;
 			shouldVisitNames= true;
@@ -91,9 +116,35 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 			fMinLocation= -1;
 
 			// Visit macro expansions.
+			visitMacroExpansions(tu, null);
+
+			// Visit ordinary code.
+			return super.visit(tu);
+		}
+
+		/**
+		 * Visits the names within the given function body, only.
+		 */
+		public void visitFunctionBody(IASTTranslationUnit tu, IASTStatement body) {
+			visitMacroExpansions(tu, body.getFileLocation());
+			body.accept(this);
+		}
+
+		/**
+		 * Visits the macro expansions of the file, or the ones that start in the given range.
+		 */
+		private void visitMacroExpansions(IASTTranslationUnit tu, IASTFileLocation range) {
 			IASTPreprocessorMacroExpansion[] macroExps= tu.getMacroExpansions();
 			for (IASTPreprocessorMacroExpansion macroExp : macroExps) {
 				if (macroExp.isPartOfTranslationUnitFile()) {
+					if (range != null) {
+						IASTFileLocation location= macroExp.getFileLocation();
+						if (location == null)
+							continue;
+						int offset= location.getNodeOffset();
+						if (offset < range.getNodeOffset() || offset >= range.getNodeOffset() + range.getNodeLength())
+							continue;
+					}
 					IASTName macroRef= macroExp.getMacroReference();
 					visitNode(macroRef);
 					IASTName[] nestedMacroRefs= macroExp.getNestedMacroReferences();
@@ -103,9 +154,6 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 				}
 			}
 			fMinLocation= -1;
-
-			// Visit ordinary code.
-			return super.visit(tu);
 		}
 
 		@Override
@@ -165,9 +213,9 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 		private boolean visitNode(IASTNode node) {
 			boolean consumed= false;
 			fToken.update(node);
-			for (int i= 0, n= fJobSemanticHighlightings.length; i < n; ++i) {
+			for (int i : getCandidates(fToken.getBinding())) {
 				SemanticHighlighting semanticHighlighting= fJobSemanticHighlightings[i];
-				if (fJobHighlightings[i].isEnabled() && semanticHighlighting.consumes(fToken)) {
+				if (semanticHighlighting.consumes(fToken)) {
 					if (node instanceof IASTName) {
 						addNameLocation((IASTName) node, fJobHighlightings[i]);
 					} else {
@@ -181,6 +229,39 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 			return consumed;
 		}
 
+		/**
+		 * Returns the indices of the enabled highlightings that can consume a token for
+		 * the given binding, in the order of their precedence.
+		 */
+		private int[] getCandidates(IBinding binding) {
+			Class<?> bindingClass= binding != null ? binding.getClass() : null;
+			int[] candidates= fCandidates.get(bindingClass);
+			if (candidates == null) {
+				int n= 0;
+				int[] indices= new int[fEnabledHighlightings.length];
+				for (int i : fEnabledHighlightings) {
+					if (canConsume(fJobSemanticHighlightings[i].getBindingTypes(), bindingClass))
+						indices[n++]= i;
+				}
+				candidates= new int[n];
+				System.arraycopy(indices, 0, candidates, 0, n);
+				fCandidates.put(bindingClass, candidates);
+			}
+			return candidates;
+		}
+
+		private boolean canConsume(Class<?>[] bindingTypes, Class<?> bindingClass) {
+			if (bindingTypes == null)
+				return true;
+			if (bindingClass != null) {
+				for (Class<?> type : bindingTypes) {
+					if (type.isAssignableFrom(bindingClass))
+						return true;
+				}
+			}
+			return false;
+		}
+
 		/**
 		 * Add the a location range for the given name.
 		 * 
@@ -238,8 +319,7 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 		 */
 		private void addPosition(int offset, int length, HighlightingStyle highlighting) {
 			boolean isExisting= false;
-			// TODO: use binary search
-			for (int i= 0, n= fRemovedPositions.size(); i < n; i++) {
+			for (int i= findRemovedPosition(offset), n= fRemovedPositions.size(); i < n && fRemovedOffsets[i] == offset; i++) {
 				HighlightedPosition position= fRemovedPositions.get(i);
 				if (position == null)
 					continue;
@@ -257,6 +337,113 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 			}
 		}
 
+		/**
+		 * Returns the index of the first removed position with the given offset or a larger one.
+		 */
+		private int findRemovedPosition(int offset) {
+			int low= 0;
+			int high= fRemovedPositions.size();
+			while (low < high) {
+				int mid= (low + high) >>> 1;
+				if (fRemovedOffsets[mid] < offset) {
+					low= mid + 1;
+				} else {
+					high= mid;
+				}
+			}
+			return low;
+		}
+	}
+
+	/**
+	 * Collects the bodies of the function definitions of the file that do not contain
+	 * preprocessor directives. A change within such a body does not affect the names
+	 * outside of the body, such that the reconcile can be limited to the body.
+	 */
+	private static class FunctionBodyCollector extends ASTVisitor {
+		private final int[] fDirectiveOffsets;
+		private final List<IASTStatement> fBodies= new ArrayList<IASTStatement>();
+
+		public FunctionBodyCollector(IASTTranslationUnit tu) {
+			shouldVisitDeclarations= true;
+			shouldVisitNamespaces= true;
+			IASTPreprocessorStatement[] directives= tu.getAllPreprocessorStatements();
+			int n= 0;
+			int[] offsets= new int[directives.length];
+			for (IASTPreprocessorStatement directive : directives) {
+				if (directive.isPartOfTranslationUnitFile()) {
+					IASTFileLocation location= directive.getFileLocation();
+					if (location != null)
+						offsets[n++]= location.getNodeOffset();
+				}
+			}
+			fDirectiveOffsets= new int[n];
+			System.arraycopy(offsets, 0, fDirectiveOffsets, 0, n);
+			Arrays.sort(fDirectiveOffsets);
+		}
+
+		@Override
+		public int visit(IASTDeclaration declaration) {
+			if (!declaration.isPartOfTranslationUnitFile()) {
+				return PROCESS_SKIP;
+			}
+			if (declaration instanceof IASTFunctionDefinition) {
+				IASTFunctionDefinition functionDefinition= (IASTFunctionDefinition) declaration;
+				IASTStatement body= functionDefinition.getBody();
+				// The body of a constexpr function can be relevant for other declarations.
+				IASTDeclSpecifier declSpec= functionDefinition.getDeclSpecifier();
+				if (body != null && !(declSpec instanceof ICPPASTDeclSpecifier && ((ICPPASTDeclSpecifier) declSpec).isConstexpr())) {
+					IASTFileLocation location= body.getFileLocation();
+					if (location != null && !containsDirective(location))
+						fBodies.add(body);
+				}
+				return PROCESS_SKIP;
+			}
+			return PROCESS_CONTINUE;
+		}
+
+		@Override
+		public int visit(ICPPASTNamespaceDefinition namespace) {
+			if (!namespace.isPartOfTranslationUnitFile()) {
+				return PROCESS_SKIP;
+			}
+			return PROCESS_CONTINUE;
+		}
+
+		private boolean containsDirective(IASTFileLocation location) {
+			int idx= Arrays.binarySearch(fDirectiveOffsets, location.getNodeOffset());
+			if (idx < 0)
+				idx= -idx - 1;
+			return idx < fDirectiveOffsets.length
+					&& fDirectiveOffsets[idx] < location.getNodeOffset() + location.getNodeLength();
+		}
+
+		/**
+		 * Returns the body that strictly contains the given region, or <code>null</code>.
+		 */
+		public IASTStatement findBody(int offset, int end) {
+			for (IASTStatement body : fBodies) {
+				IASTFileLocation location= body.getFileLocation();
+				int bodyOffset= location.getNodeOffset();
+				if (bodyOffset < offset && end < bodyOffset + location.getNodeLength())
+					return body;
+			}
+			return null;
+		}
+
+		/**
+		 * Returns the offsets and ends of the bodies.
+		 */
+		public int[] getRanges() {
+			int[] ranges= new int[2 * fBodies.size()];
+			int i= 0;
+			for (IASTStatement body : fBodies) {
+				IASTFileLocation location= body.getFileLocation();
+				ranges[i++]= location.getNodeOffset();
+				ranges[i++]= location.getNodeOffset() + location.getNodeLength();
+			}
+			return ranges;
+		}
 	}
 
 	/** The C editor this semantic highlighting reconciler is installed on */
@@ -274,6 +461,25 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 	protected List<HighlightedPosition> fRemovedPositions= new ArrayList<HighlightedPosition>();
 	/** Number of removed positions */
 	protected int fNOfRemovedPositions;
+	/** Offsets of the removed positions */
+	private int[] fRemovedOffsets;
+
+	/**
+	 * Offsets and ends of the function bodies of the previous reconcile, <code>null</code> if
+	 * the next reconcile cannot be limited to the changed function body.
+	 */
+	private int[] fFunctionBodies;
+	/** Whether the AST of the previous reconcile was based on an incomplete index */
+	private boolean fIncompleteIndex;
+	/**
+	 * The region changed before the AST of the next reconcile was created, <code>null</code>
+	 * if it is not known.
+	 */
+	private ChangedRegion fChangedRegion;
+	/** Whether the changed region has been taken for a reconcile that did not happen yet */
+	private boolean fChangedRegionPending;
+	/** Whether the previous reconcile was limited to the changed function body */
+	private boolean fReconciledChangedBody;
 
 	/** Background job */
 	private Job fJob;
@@ -305,20 +511,37 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 
 	@Override
 	public void aboutToBeReconciled() {
-		// Do nothing
+		// The AST of the next reconcile reflects the changes made until now, changes made
+		// later are left for the reconcile after it.
+		SemanticHighlightingPresenter presenter= fPresenter;
+		ChangedRegion changedRegion= presenter != null ? presenter.takeChangedRegion() : null;
+		synchronized (fReconcileLock) {
+			// Changes taken for a reconcile that did not happen are lost, the entire file
+			// has to be reconciled.
+			fChangedRegion= fChangedRegionPending ? null : changedRegion;
+			fChangedRegionPending= true;
+		}
 	}
 
 	@Override
 	public void reconciled(IASTTranslationUnit ast, boolean force, IProgressMonitor progressMonitor) {
+		ChangedRegion changedRegion= null;
 		// Ensure at most one thread can be reconciling at any time.
 		synchronized (fReconcileLock) {
 			if (fIsReconciling)
 				return;
 			fIsReconciling= true;
+			if (!force) {
+				changedRegion= fChangedRegion;
+				fChangedRegion= null;
+				fChangedRegionPending= false;
+			}
 		}
 		fJobPresenter= fPresenter;
 		fJobSemanticHighlightings= fSemanticHighlightings;
 		fJobHighlightings= fHighlightings;
+		int[] previousBodies= fFunctionBodies;
+		fFunctionBodies= null;
 		
 		try {
 			if (fJobPresenter == null || fJobSemanticHighlightings == null || fJobHighlightings == null)
@@ -330,11 +553,20 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 				return;
 			
 			PositionCollector collector= new PositionCollector(requiresImplicitNames());
+			FunctionBodyCollector bodyCollector= new FunctionBodyCollector(ast);
+			ast.accept(bodyCollector);
+			IASTStatement changedBody= null;
+			if (!force && ast.isBasedOnIncompleteIndex() == fIncompleteIndex) {
+				changedBody= findChangedBody(bodyCollector, previousBodies, changedRegion);
+			}
+			fReconciledChangedBody= changedBody != null;
 
 			startReconcilingPositions();
+			if (changedBody != null)
+				retainPositions(changedBody.getFileLocation());
 			
 			if (!fJobPresenter.isCanceled())
-				reconcilePositions(ast, collector);
+				reconcilePositions(ast, changedBody, collector);
 			
 			TextPresentation textPresentation= null;
 			if (!fJobPresenter.isCanceled())
@@ -344,6 +576,12 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 				updatePresentation(textPresentation, fAddedPositions, fRemovedPositions);
 			
 			stopReconcilingPositions();
+
+			// A forced reconcile may use an AST that does not reflect all of the changes.
+			if (!force && !fJobPresenter.isCanceled()) {
+				fFunctionBodies= bodyCollector.getRanges();
+				fIncompleteIndex= ast.isBasedOnIncompleteIndex();
+			}
 		} finally {
 			fJobPresenter= null;
 			fJobSemanticHighlightings= null;
@@ -364,22 +602,81 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 		return false;
 	}
 
+	/**
+	 * Returns the function body the changes of the document are limited to, or <code>null</code>
+	 * if the entire AST needs to be reconciled. This is the case when the changes are not
+	 * known, or when they are not strictly inside of a function body that has kept its place
+	 * in the file.
+	 */
+	private IASTStatement findChangedBody(FunctionBodyCollector bodyCollector, int[] previousBodies,
+			ChangedRegion changedRegion) {
+		if (previousBodies == null || changedRegion == null)
+			return null;
+
+		int offset= changedRegion.getOffset();
+		IASTStatement body= bodyCollector.findBody(offset, offset + changedRegion.getLength());
+		if (body == null)
+			return null;
+
+		// The text before the body is unchanged, the end of the body has to be moved by the changes.
+		IASTFileLocation location= body.getFileLocation();
+		int bodyOffset= location.getNodeOffset();
+		int previousEnd= bodyOffset + location.getNodeLength() - changedRegion.getLengthDelta();
+		for (int i= 0; i < previousBodies.length; i += 2) {
+			if (previousBodies[i] == bodyOffset)
+				return previousBodies[i + 1] == previousEnd ? body : null;
+		}
+		return null;
+	}
+
 	/**
 	 * Starts reconciling positions.
 	 */
 	protected void startReconcilingPositions() {
 		fJobPresenter.addAllPositions(fRemovedPositions);
 		fNOfRemovedPositions= fRemovedPositions.size();
+		computeRemovedOffsets();
+	}
+
+	/**
+	 * Keeps the positions outside of the given range, they are not reconciled.
+	 */
+	private void retainPositions(IASTFileLocation range) {
+		int start= range.getNodeOffset();
+		int end= start + range.getNodeLength();
+		List<HighlightedPosition> positions= new ArrayList<HighlightedPosition>();
+		for (HighlightedPosition position : fRemovedPositions) {
+			int offset= position.getOffset();
+			if (position.isDeleted() || (offset >= start && offset < end))
+				positions.add(position);
+		}
+		fRemovedPositions= positions;
+		fNOfRemovedPositions= positions.size();
+		computeRemovedOffsets();
+	}
+
+	private void computeRemovedOffsets() {
+		int n= fRemovedPositions.size();
+		fRemovedOffsets= new int[n];
+		for (int i= 0; i < n; i++) {
+			fRemovedOffsets[i]= fRemovedPositions.get(i).getOffset();
+		}
 	}
 
 	/**
 	 * Reconciles positions based on the AST.
 	 *
 	 * @param ast the AST
+	 * @param changedBody the function body to reconcile, or <code>null</code> to reconcile
+	 *     the entire AST
 	 * @param visitor the AST visitor
 	 */
-	private void reconcilePositions(IASTTranslationUnit ast, PositionCollector visitor) {
-		ast.accept(visitor);
+	private void reconcilePositions(IASTTranslationUnit ast, IASTStatement changedBody, PositionCollector visitor) {
+		if (changedBody != null) {
+			visitor.visitFunctionBody(ast, changedBody);
+		} else {
+			ast.accept(visitor);
+		}
 		List<HighlightedPosition> oldPositions= fRemovedPositions;
 		List<HighlightedPosition> newPositions= new ArrayList<HighlightedPosition>(fNOfRemovedPositions);
 		for (int i= 0, n= oldPositions.size(); i < n; i ++) {
@@ -434,6 +731,7 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 	protected void stopReconcilingPositions() {
 		fRemovedPositions.clear();
 		fNOfRemovedPositions= 0;
+		fRemovedOffsets= null;
 		fAddedPositions.clear();
 	}
 
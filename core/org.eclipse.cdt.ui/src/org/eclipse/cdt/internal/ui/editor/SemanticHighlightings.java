@@ -234,6 +234,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_staticField;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { IField.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IASTNode node= token.getNode();
@@ -285,6 +290,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_field;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { IField.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IASTNode node= token.getNode();
@@ -336,6 +346,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_methodDeclaration;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { ICPPMethod.class, IProblemBinding.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IASTNode node= token.getNode();
@@ -413,6 +428,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_staticMethodInvocation;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { ICPPMethod.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IASTNode node= token.getNode();
@@ -467,6 +487,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_method;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { ICPPMethod.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IASTNode node= token.getNode();
@@ -520,6 +545,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_functionDeclaration;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { IFunction.class, IProblemBinding.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IASTNode node= token.getNode();
@@ -591,6 +621,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_function;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { IFunction.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IASTNode node= token.getNode();
@@ -644,6 +679,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_localVariableDeclaration;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { IVariable.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IASTNode node= token.getNode();
@@ -704,6 +744,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_localVariable;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { IVariable.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IASTNode node= token.getNode();
@@ -780,6 +825,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_globalVariable;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { IVariable.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IASTNode node= token.getNode();
@@ -842,6 +892,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_parameterVariable;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { IParameter.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IBinding binding= token.getBinding();
@@ -886,6 +941,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_templateParameter;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { ICPPTemplateParameter.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IASTNode node= token.getNode();
@@ -933,6 +993,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_classes;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { ICPPClassType.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IASTNode node= token.getNode();
@@ -983,6 +1048,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_enums;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { IEnumeration.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IASTNode node= token.getNode();
@@ -1030,6 +1100,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_macroSubstitution;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { IMacroBinding.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IBinding binding= token.getBinding();
@@ -1077,6 +1152,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_macroDefintion;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { IMacroBinding.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IBinding binding= token.getBinding();
@@ -1124,6 +1204,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_typeDef;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { ITypedef.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IASTNode node= token.getNode();
@@ -1175,6 +1260,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_namespace;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { ICPPNamespace.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IBinding binding= token.getBinding();
@@ -1219,6 +1309,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_label;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { ILabel.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IBinding binding= token.getBinding();
@@ -1263,6 +1358,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_enumerator;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { IEnumerator.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IASTNode node= token.getNode();
@@ -1319,6 +1419,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_problem;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { IProblemBinding.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IASTNode node= token.getNode();
@@ -1381,6 +1486,11 @@ public class SemanticHighlightings {
 			return CEditorMessages.SemanticHighlighting_externalSDK;
 		}
 
+		@Override
+		public Class<?>[] getBindingTypes() {
+			return new Class<?>[] { IFunction.class };
+		}
+
 		@Override
 		public boolean consumes(ISemanticToken token) {
 			IASTNode node= token.getNode();
@@ -1,5 +1,5 @@
 /******************************************************************************* 
- * Copyright (c) 2005, 2012 Wind River Systems, Inc. and others.
+ * Copyright (c) 2005, 2013 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials 
  * are made available under the terms of the Eclipse Public License v1.0 
  * which accompanies this distribution, and is available at 
@@ -15,12 +15,24 @@ package org.eclipse.cdt.internal.ui.refactoring.rename;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.Assert;
@@ -101,7 +113,10 @@ import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateTypeParameter;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPUsingDeclaration;
 import org.eclipse.cdt.core.index.IIndex;
 import org.eclipse.cdt.core.index.IIndexBinding;
+import org.eclipse.cdt.core.index.IIndexFile;
 import org.eclipse.cdt.core.index.IIndexName;
+import org.eclipse.cdt.core.index.IndexFilter;
+import org.eclipse.cdt.core.index.IndexLocationFactory;
 import org.eclipse.cdt.core.model.CoreModel;
 import org.eclipse.cdt.core.model.ICElement;
 import org.eclipse.cdt.core.model.ITranslationUnit;
@@ -128,6 +143,9 @@ public class ASTManager implements IDisposable {
 			| ITranslationUnit.AST_SKIP_TRIVIAL_EXPRESSIONS_IN_AGGREGATE_INITIALIZERS
 			| ITranslationUnit.AST_PARSE_INACTIVE_CODE;
 
+	private static final int MAX_ANALYSIS_THREADS= 4;
+	private static final int MIN_FILES_FOR_PARALLEL_ANALYSIS= 8;
+
 	public final static int TRUE= 1;
     public final static int FALSE= 0;
     public final static int UNKNOWN= -1;
@@ -957,8 +975,30 @@ public class ASTManager implements IDisposable {
         monitor.beginTask(taskName, 2 * count);
         monitor.setTaskName(taskName);
 
-        List<IFile> files= store.getFileList();
-        int cc= 0;
+        // Files that need to be parsed, matches of other files are classified by the index.
+        List<IFile> files= new ArrayList<IFile>();
+        IIndexBinding[] indexBindings= adaptValidBindings(index);
+        boolean useIndex= indexBindings != null && canClassifyMatchesByIndex(index);
+        for (IFile file : store.getFileList()) {
+            Collection<CRefactoringMatch> fm= store.getMatchesForFile(file);
+            if (needsParsing(fm) && !(useIndex && classifyMatchesByIndex(index, indexBindings, file, fm))) {
+                files.add(file);
+            } else {
+                monitor.worked(2);
+            }
+        }
+
+        int threads= Math.min(Runtime.getRuntime().availableProcessors(), MAX_ANALYSIS_THREADS);
+        if (indexBindings != null && threads > 1 && files.size() >= MIN_FILES_FOR_PARALLEL_ANALYSIS) {
+            analyzeFilesInParallel(index, indexBindings, store, files, threads, count, monitor, status);
+        } else {
+            analyzeFiles(index, store, files, count - files.size(), count, monitor, status);
+        }
+        monitor.done();
+    }
+
+    private void analyzeFiles(IIndex index, CRefactoringMatchStore store, List<IFile> files, int cc,
+    		int count, IProgressMonitor monitor, RefactoringStatus status) {
         long now= System.currentTimeMillis();
         long update= now;
         for (IFile file : files) {
@@ -970,31 +1010,15 @@ public class ASTManager implements IDisposable {
                     monitor.subTask(taskname); 
                     update= now + 1000;
                 }
-                boolean doParse= false;
-                Collection<CRefactoringMatch> fm= store.getMatchesForFile(file);
-                for (Iterator<CRefactoringMatch> iterator = fm.iterator(); !doParse && iterator.hasNext();) {
-                    CRefactoringMatch match = iterator.next();
-                    switch (match.getLocation()) {
-                    case CRefactory.OPTION_IN_COMMENT:
-                    case CRefactory.OPTION_IN_INCLUDE_DIRECTIVE:
-                    case CRefactory.OPTION_IN_STRING_LITERAL:
-                        break;
-                    default:
-                        doParse= true;
-                    }
-                }
-
-                if (doParse) {
-                    IASTTranslationUnit tu= getTranslationUnit(index, file, false, status);
-                    monitor.worked(1);
+                IASTTranslationUnit tu= getTranslationUnit(index, file, false, status);
+                monitor.worked(1);
+                if (tu != null) {
                     analyzeTextMatchesOfTranslationUnit(tu, store, status);
                     if (status.hasFatalError()) {
                         return;
                     }
-                    monitor.worked(1);
-                } else {
-                    monitor.worked(2);
                 }
+                monitor.worked(1);
                 if (monitor.isCanceled()) {
                     throw new OperationCanceledException();
                 }
@@ -1002,7 +1026,268 @@ public class ASTManager implements IDisposable {
                 monitor.worked(2);
             }
         }
-        monitor.done();
+    }
+
+    /**
+     * Analyzes the files with a pool of workers, each of them parsing one file at a time.
+     * A worker uses an ASTManager of its own, such that the bindings found in a translation unit
+     * and the conflicts are not shared between the threads. The bindings to be renamed are
+     * compared in their index representation, the index is shared by all workers and has to be
+     * read-locked by the caller. Progress is reported and cancellation is checked on the calling
+     * thread, since progress monitors are not thread-safe.
+     */
+    private void analyzeFilesInParallel(final IIndex index, IIndexBinding[] indexBindings,
+    		CRefactoringMatchStore store, List<IFile> files, int threads, int count,
+    		IProgressMonitor monitor, RefactoringStatus status) {
+        // The ASTs that are held by this manager must not be acquired by a worker.
+        List<IFile> parallelFiles= new ArrayList<IFile>(files.size());
+        List<IFile> ownFiles= new ArrayList<IFile>();
+        for (IFile file : files) {
+            if (holdsTranslationUnit(file)) {
+                ownFiles.add(file);
+            } else {
+                parallelFiles.add(file);
+            }
+        }
+        int cc= count - files.size();
+        analyzeFiles(index, store, ownFiles, cc, count, monitor, status);
+        if (status.hasFatalError()) {
+            return;
+        }
+
+        final BlockingQueue<ASTManager> managers= new ArrayBlockingQueue<ASTManager>(threads);
+        for (int i = 0; i < threads; i++) {
+            ASTManager manager= new ASTManager(fArgument);
+            manager.setValidBindings(indexBindings);
+            manager.setRenameTo(fRenameTo);
+            managers.add(manager);
+        }
+        final AtomicBoolean canceled= new AtomicBoolean();
+        ExecutorService executor= Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread= new Thread(r, "Rename Refactoring Analyzer"); //$NON-NLS-1$
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        CompletionService<RefactoringStatus> completion= new ExecutorCompletionService<RefactoringStatus>(executor);
+        List<Future<RefactoringStatus>> futures= new ArrayList<Future<RefactoringStatus>>(parallelFiles.size());
+        try {
+            cc+= ownFiles.size();
+            for (final IFile file : parallelFiles) {
+                if (!store.contains(file)) {
+                    // Already analyzed with one of the own files.
+                    cc++;
+                    monitor.worked(2);
+                    continue;
+                }
+                // Each worker classifies the matches of its file, only.
+                final CRefactoringMatchStore fileStore= new CRefactoringMatchStore();
+                for (CRefactoringMatch match : store.getMatchesForFile(file)) {
+                    fileStore.addMatch(match);
+                }
+                futures.add(completion.submit(new Callable<RefactoringStatus>() {
+                    @Override
+                    public RefactoringStatus call() throws InterruptedException {
+                        RefactoringStatus fileStatus= new RefactoringStatus();
+                        if (!canceled.get()) {
+                            ASTManager manager= managers.take();
+                            try {
+                                IASTTranslationUnit tu= manager.getTranslationUnit(index, file, false, fileStatus);
+                                if (tu != null && !canceled.get()) {
+                                    manager.analyzeTextMatchesOfTranslationUnit(tu, fileStore, fileStatus);
+                                }
+                            } finally {
+                                managers.put(manager);
+                            }
+                        }
+                        return fileStatus;
+                    }
+                }));
+            }
+
+            long update= System.currentTimeMillis();
+            for (int done= 0; done < futures.size();) {
+                Future<RefactoringStatus> future= completion.poll(100, TimeUnit.MILLISECONDS);
+                if (monitor.isCanceled()) {
+                    canceled.set(true);
+                    throw new OperationCanceledException();
+                }
+                if (future == null) {
+                    continue;
+                }
+                done++;
+                cc++;
+                try {
+                    status.merge(future.get());
+                } catch (ExecutionException e) {
+                    Throwable cause= e.getCause();
+                    if (cause instanceof OperationCanceledException) {
+                        canceled.set(true);
+                        throw (OperationCanceledException) cause;
+                    }
+                    CUIPlugin.log(cause);
+                }
+                if (status.hasFatalError()) {
+                    canceled.set(true);
+                    return;
+                }
+                monitor.worked(2);
+                long now= System.currentTimeMillis();
+                if (now > update) {
+                    String nofm= nth_of_m(cc, count);
+                    monitor.subTask(NLS.bind(RenameMessages.ASTManager_subtask_analyzingInParallel, nofm, threads));
+                    update= now + 1000;
+                }
+            }
+        } catch (InterruptedException e) {
+            canceled.set(true);
+            Thread.currentThread().interrupt();
+            throw new OperationCanceledException();
+        } finally {
+            for (Future<RefactoringStatus> future : futures) {
+                future.cancel(false);
+            }
+            executor.shutdown();
+            try {
+                // The workers must not use their managers after disposal.
+                while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (ASTManager manager : managers) {
+                manager.dispose();
+            }
+        }
+    }
+
+    private boolean holdsTranslationUnit(IFile file) {
+        if (fTranslationUnits.containsKey(file))
+            return true;
+        if (fSharedAST != null) {
+            ITranslationUnit tu= fSharedAST.getOriginatingTranslationUnit();
+            return tu != null && file.equals(tu.getResource());
+        }
+        return false;
+    }
+
+    private static boolean needsParsing(Collection<CRefactoringMatch> matches) {
+        for (CRefactoringMatch match : matches) {
+            switch (match.getLocation()) {
+            case CRefactory.OPTION_IN_COMMENT:
+            case CRefactory.OPTION_IN_INCLUDE_DIRECTIVE:
+            case CRefactory.OPTION_IN_STRING_LITERAL:
+                break;
+            default:
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the bindings to be renamed as index bindings, or <code>null</code> if one of
+     * them cannot be found in the index.
+     */
+    private IIndexBinding[] adaptValidBindings(IIndex index) {
+        if (index == null || fValidBindings == null || fValidBindings.length == 0)
+            return null;
+
+        IIndexBinding[] result= new IIndexBinding[fValidBindings.length];
+        for (int i = 0; i < result.length; i++) {
+            if (fValidBindings[i] instanceof IMacroBinding)
+                return null;
+            result[i]= index.adaptBinding(fValidBindings[i]);
+            if (result[i] == null)
+                return null;
+        }
+        return result;
+    }
+
+    /**
+     * The index cannot be used to classify the matches, when renaming a macro or when a macro
+     * with the new name exists. In both cases the macro definitions have to be checked for
+     * conflicts.
+     */
+    private boolean canClassifyMatchesByIndex(IIndex index) {
+        if (fArgument.getArgumentKind() == CRefactory.ARGUMENT_MACRO || fRenameTo == null)
+            return false;
+        try {
+            return index.findMacros(fRenameTo.toCharArray(), IndexFilter.ALL, null).length == 0;
+        } catch (CoreException e) {
+            CUIPlugin.log(e);
+            return false;
+        }
+    }
+
+    /**
+     * Classifies the matches of a file without parsing it. This is possible when the file is
+     * up to date in the index and each match in code is a name in all versions of the file in the
+     * index, that does not refer to any of the bindings being renamed. Such files are common for
+     * popular names, they would be parsed just to find out that they are not affected.
+     *
+     * @return whether the matches have been classified
+     */
+    private boolean classifyMatchesByIndex(IIndex index, IIndexBinding[] indexBindings, IFile file,
+    		Collection<CRefactoringMatch> matches) {
+        try {
+            ICElement celem= CoreModel.getDefault().create(file);
+            if (!(celem instanceof ITranslationUnit))
+                return false;
+            ITranslationUnit tu= CModelUtil.toWorkingCopy((ITranslationUnit) celem);
+            if (tu.hasUnsavedChanges())
+                return false;
+            IIndexFile[] indexFiles= index.getFiles(IndexLocationFactory.getWorkspaceIFL(file));
+            if (indexFiles.length == 0)
+                return false;
+
+            int start= Integer.MAX_VALUE;
+            int end= 0;
+            for (CRefactoringMatch match : matches) {
+                if (match.getLocation() == CRefactory.OPTION_IN_CODE_REFERENCES) {
+                    start= Math.min(start, match.getOffset());
+                    end= Math.max(end, match.getOffset() + match.getLength());
+                } else if (needsParsing(Collections.singleton(match))) {
+                    return false;
+                }
+            }
+            for (IIndexFile indexFile : indexFiles) {
+                if (indexFile.getTimestamp() != file.getLocalTimeStamp())
+                    return false;
+                Map<Integer, IIndexName> names= new HashMap<Integer, IIndexName>();
+                for (IIndexName name : indexFile.findNames(start, end - start)) {
+                    names.put(name.getNodeOffset(), name);
+                }
+                for (CRefactoringMatch match : matches) {
+                    if (match.getLocation() == CRefactory.OPTION_IN_CODE_REFERENCES) {
+                        IIndexName name= names.get(match.getOffset());
+                        if (name == null || name.getNodeLength() != match.getLength())
+                            return false;
+                        IIndexBinding binding= index.findBinding(name);
+                        if (binding == null || binding instanceof IMacroBinding)
+                            return false;
+                        for (IIndexBinding renameBinding : indexBindings) {
+                            if (isSameBinding(index, binding, renameBinding) != FALSE)
+                                return false;
+                        }
+                    }
+                }
+            }
+        } catch (CoreException e) {
+            CUIPlugin.log(e);
+            return false;
+        } catch (DOMException e) {
+            return false;
+        }
+
+        for (CRefactoringMatch match : matches) {
+            if (match.getLocation() == CRefactory.OPTION_IN_CODE_REFERENCES) {
+                match.setASTInformation(CRefactoringMatch.AST_REFERENCE_OTHER);
+            }
+        }
+        return true;
     }
 
     private void analyzeTextMatchesOfTranslationUnit(IASTTranslationUnit tu, 
@@ -1028,7 +1313,11 @@ public class ASTManager implements IDisposable {
                 store.removePath(path);
             }
         }
-        handleConflictingBindings(tu, status);
+        // The conflicts are checked against the AST of the argument, which must not be
+        // accessed by multiple threads.
+        synchronized (fArgument) {
+            handleConflictingBindings(tu, status);
+        }
         fKnownBindings= null;
         fConflictingBinding= null;
     }
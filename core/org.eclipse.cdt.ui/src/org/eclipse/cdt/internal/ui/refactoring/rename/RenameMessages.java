@@ -16,6 +16,7 @@ import org.eclipse.osgi.util.NLS;
 class RenameMessages extends NLS {
     public static String ASTManager_error_macro_name_conflict;
 	public static String ASTManager_subtask_analyzing;
+	public static String ASTManager_subtask_analyzingInParallel;
 	public static String ASTManager_task_analyze;
 	public static String ASTManager_task_generateAst;
 	public static String ASTManager_warning_parsingError_detailed;
@@ -519,14 +519,15 @@ public class IndexUI {
 		IBinding owner = binding.getOwner();
 		if (owner != null) {
 			IASTNode point= null; // Instantiation of dependent expressions may not work.
-			for (IBinding specOwner : findSpecializations(index, owner)) {
+			List<? extends IBinding> specOwners= findSpecializations(index, owner);
+			for (IBinding specOwner : specOwners) {
 				if (specOwner instanceof ICPPClassSpecialization) {
 					// Add the specialized member
 					IBinding specializedMember = ((ICPPClassSpecialization) specOwner).specializeMember(binding, point);
 					specializedMember= index.adaptBinding(specializedMember);
 					if (specializedMember != null) {
 						if (result == null)
-							result= new ArrayList<IBinding>(findSpecializations(index, owner).size());
+							result= new ArrayList<IBinding>(specOwners.size());
 						result.add(specializedMember);
 						// Also add instances of the specialized member
 						if (specializedMember instanceof ICPPInstanceCache) {
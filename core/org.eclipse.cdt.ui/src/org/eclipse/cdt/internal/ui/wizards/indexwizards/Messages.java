@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2013 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -21,6 +21,7 @@ public class Messages extends NLS {
 	public static String StringVariableSelectionDialog_title;
 	public static String TeamProjectIndexExportWizard_title;
 	public static String TeamProjectIndexExportWizardPage_description;
+	public static String TeamProjectIndexExportWizardPage_deltaButton;
 	public static String TeamProjectIndexExportWizardPage_deselectAll;
 	public static String TeamProjectIndexExportWizardPage_destinationLabel;
 	public static String TeamProjectIndexExportWizardPage_destinationMessage;
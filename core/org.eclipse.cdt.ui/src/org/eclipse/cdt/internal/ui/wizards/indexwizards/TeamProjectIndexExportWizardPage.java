@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2013 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -65,6 +65,7 @@ public class TeamProjectIndexExportWizardPage extends WizardPage implements List
 	private CheckboxTableViewer fProjectViewer;
     private Text fDestinationField;
     private Button fResourceSnapshotButton;
+    private Button fDeltaButton;
 
     /**
      *	Create an instance of this class
@@ -291,6 +292,13 @@ public class TeamProjectIndexExportWizardPage extends WizardPage implements List
         fResourceSnapshotButton.setLayoutData(gd= new GridData());
         gd.grabExcessHorizontalSpace= true;
         gd.horizontalAlignment= GridData.FILL;
+
+        fDeltaButton = new Button(resourceSnapshotDestinationGroup, SWT.CHECK);
+        fDeltaButton.setText(Messages.TeamProjectIndexExportWizardPage_deltaButton);
+        fDeltaButton.setFont(font);
+        fDeltaButton.setLayoutData(gd= new GridData());
+        gd.grabExcessHorizontalSpace= true;
+        gd.horizontalAlignment= GridData.FILL;
     }
 
 	protected void onInsertVariable() {
@@ -328,6 +336,7 @@ public class TeamProjectIndexExportWizardPage extends WizardPage implements List
     	final MultiStatus status= new MultiStatus(CUIPlugin.PLUGIN_ID, 
     			0, Messages.TeamProjectIndexExportWizardPage_errorExporting, null); 
     	final boolean exportResourceSnapshot = fResourceSnapshotButton.getSelection();
+    	final boolean exportDelta = fDeltaButton.getSelection();
 
     	IRunnableWithProgress op= new IRunnableWithProgress() {
 			@Override
@@ -339,6 +348,10 @@ public class TeamProjectIndexExportWizardPage extends WizardPage implements List
 					if (exportResourceSnapshot) {
 						op.setOptions(TeamPDOMExportOperation.EXPORT_OPTION_RESOURCE_SNAPSHOT);
 					}
+					if (exportDelta) {
+						// The archive at the destination is the base of the delta.
+						op.setDeltaBase(dest);
+					}
 					try {
 						op.run(new SubProgressMonitor(monitor, 1));
 					} catch (CoreException e) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 Wind River Systems and others.
+ * Copyright (c) 2007, 2013 Wind River Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,14 +13,13 @@
  *     Vladimir Prus (CodeSourcery) - support for -data-read-memory-bytes (bug 322658)
  *     John Dallaway - support for -data-write-memory-bytes (bug 387793)
  *     John Dallaway - memory cache update fix (bug 387688)
+ *     agent - size bounded memory cache with read-ahead
  *******************************************************************************/
 package org.eclipse.cdt.dsf.mi.service;
 
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Hashtable;
-import java.util.LinkedList;
-import java.util.ListIterator;
 import java.util.Map;
 
 import org.eclipse.cdt.core.IAddress;
@@ -536,106 +535,6 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 		}
 	}
 
-	///////////////////////////////////////////////////////////////////////////
-	// SortedLinkedlist
-	///////////////////////////////////////////////////////////////////////////
-
-	// This class is really the equivalent of a C struct (old habits die hard...)
-   	// For simplicity, everything is public.
-   	private class MemoryBlock {
-		public IAddress fAddress;
-		public long fLength;
-		public MemoryByte[] fBlock;
-		public MemoryBlock(IAddress address, long length, MemoryByte[] block) {
-			fAddress = address;
-			fLength = length;
-			fBlock = block;
-		}
-	}
-
-   	// Address-ordered data structure to cache the memory blocks.
-   	// Contiguous blocks are merged if possible.
-	@SuppressWarnings("serial")
-	private class SortedMemoryBlockList extends LinkedList<MemoryBlock> {
-
-		public SortedMemoryBlockList() {
-			super();
-		}
-
-		// Insert the block in the sorted linked list and merge contiguous
-		// blocks if necessary
-		@Override
-		public boolean add(MemoryBlock block) {
-
-			// If the list is empty, just store the block
-			if (isEmpty()) {
-				addFirst(block);
-				return true;
-			}
-
-			// Insert the block at the correct location and then
-			// merge the blocks if possible
-			ListIterator<MemoryBlock> it = listIterator();
-			while (it.hasNext()) {
-				int index = it.nextIndex();
-				MemoryBlock item = it.next();
-				if (block.fAddress.compareTo(item.fAddress) < 0) {
-					add(index, block);
-					compact(index);
-					return true;
-				}
-			}
-
-			// Put at the end of the list and merge if necessary 
-			addLast(block);
-			compact(size() - 1);
-			return true;
-		}
-
-		// Merge this block with its contiguous neighbors (if any)
-		// Note: Merge is not performed if resulting block size would exceed MAXINT
-		private void compact(int index) {
-
-			MemoryBlock newBlock = get(index); 
-
-			// Case where the block is to be merged with the previous block
-			if (index > 0) {
-				MemoryBlock prevBlock = get(index - 1);
-				IAddress endOfPreviousBlock = prevBlock.fAddress.add(prevBlock.fLength);
-				if (endOfPreviousBlock.distanceTo(newBlock.fAddress).longValue() == 0) {
-					long newLength = prevBlock.fLength + newBlock.fLength;
-					if (newLength <= Integer.MAX_VALUE) {
-						MemoryByte[] block = new MemoryByte[(int) newLength] ;
-						System.arraycopy(prevBlock.fBlock, 0, block, 0, (int) prevBlock.fLength);
-						System.arraycopy(newBlock.fBlock, 0, block, (int) prevBlock.fLength, (int) newBlock.fLength);
-						newBlock = new MemoryBlock(prevBlock.fAddress, newLength, block);
-						remove(index);
-						index -= 1;
-						set(index, newBlock);
-					}
-				}
-			}
-
-			// Case where the block is to be merged with the following block
-			int lastIndex = size() - 1;
-			if (index < lastIndex) {
-				MemoryBlock nextBlock = get(index + 1);
-				IAddress endOfNewBlock = newBlock.fAddress.add(newBlock.fLength);
-				if (endOfNewBlock.distanceTo(nextBlock.fAddress).longValue() == 0) {
-					long newLength = newBlock.fLength + nextBlock.fLength;
-					if (newLength <= Integer.MAX_VALUE) {
-						MemoryByte[] block = new MemoryByte[(int) newLength] ;
-						System.arraycopy(newBlock.fBlock, 0, block, 0, (int) newBlock.fLength);
-						System.arraycopy(nextBlock.fBlock, 0, block, (int) newBlock.fLength, (int) nextBlock.fLength);
-						newBlock = new MemoryBlock(newBlock.fAddress, newLength, block);
-						set(index, newBlock);
-						remove(index + 1);
-					}
-				}
-			}
-		}
-	}
-
 	///////////////////////////////////////////////////////////////////////////
 	// MIMemoryCache
 	///////////////////////////////////////////////////////////////////////////
@@ -643,244 +542,38 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 	/** @since 4.2 */
 	protected class MIMemoryCache {
 		// The memory cache data structure
-		private SortedMemoryBlockList fMemoryBlockList;
+		private final MemoryPageCache fPageCache;
 
 		public MIMemoryCache() {
-	    	// Create the memory block cache
-	    	fMemoryBlockList = new SortedMemoryBlockList();
+	    	// Create the memory page cache
+			fPageCache = new MemoryPageCache(getExecutor(), MemoryPageCache.DEFAULT_MAX_PAGES) {
+				@Override
+				protected void readBlock(IDMContext dmc, IAddress address, int count, DataRequestMonitor<MemoryByte[]> drm) {
+					readMemoryBlock(dmc, address, 0, 1, count, drm);
+				}
+			};
 		}
 
 		public void reset() {
 	    	// Clear the memory cache
-	    	fMemoryBlockList.clear();
-		}
-
-	    /**
- 	     *  This function walks the address-sorted memory block list to identify
-	     *  the 'missing' blocks (i.e. the holes) that need to be fetched on the target.
-	     * 
-	     *  The idea is fairly simple but an illustration could perhaps help.
-	     *  Assume the cache holds a number of cached memory blocks with gaps i.e.
-	     *  there is un-cached memory areas between blocks A, B and C:
-	     * 
-	     *        +---------+      +---------+      +---------+
-	     *        +    A    +      +    B    +      +    C    +
-	     *        +---------+      +---------+      +---------+
-	     *        :         :      :         :      :         :
-	     *   [a]  :         :  [b] :         :  [c] :         :  [d]
-	     *        :         :      :         :      :         :
-	     *   [e---+--]      :  [f--+---------+--]   :         :
-	     *   [g---+---------+------+---------+------+---------+----]
-	     *        :         :      :         :      :         :
-	     *        :   [h]   :      :   [i----+--]   :         :
-	     * 
-	     * 
-	     *  We have the following cases to consider.The requested block [a-i] either:
-	     * 
-	     *  [1] Fits entirely before A, in one of the gaps, or after C
-	     *      with no overlap and no contiguousness (e.g. [a], [b], [c] and [d])
-	     *      -> Add the requested block to the list of blocks to fetch
-	     * 
-	     *  [2] Starts before an existing block but overlaps part of it, possibly
-	     *      spilling in the gap following the cached block (e.g. [e], [f] and [g])
-	     *      -> Determine the length of the missing part (< count)
-	     *      -> Add a request to fill the gap before the existing block
-	     *      -> Update the requested block for the next iteration:
-	     *         - Start address to point just after the end of the cached block
-	     *         - Count reduced by cached block length (possibly becoming negative, e.g. [e])
-	     *      At this point, the updated requested block starts just beyond the cached block
-	     *      for the next iteration.
-	     * 
-	     *  [3] Starts at or into an existing block and overlaps part of it ([h] and [i])
-	     *      -> Update the requested block for the next iteration:
-	     *         - Start address to point just after the end of the cached block
-	     *         - Count reduced by length to end of cached block (possibly becoming negative, e.g. [h])
-	     *      At this point, the updated requested block starts just beyond the cached block
-	     *      for the next iteration.
-	     * 
-	     *  We iterate over the cached blocks list until there is no entry left or until
-	     *  the remaining requested block count is <= 0, meaning the result list contains
-	     *  only the sub-blocks needed to fill the gap(s), if any.
-	     * 
-	     *  (As is often the case, it takes much more typing to explain it than to just do it :-)
-	     *
-	     *  What is missing is a parameter that indicates the minimal block size that is worth fetching.
-	     *  This is target-specific and straight in the realm of the coalescing function... 
-	     *  
-	     * @param reqBlockStart The address of the requested block
-	     * @param count Its length
-	     * @return A list of the sub-blocks to fetch in order to fill enough gaps in the memory cache
-	     * to service the request
-	     */
-	    private LinkedList<MemoryBlock> getListOfMissingBlocks(IAddress reqBlockStart, int count) {
-
-			LinkedList<MemoryBlock> list = new LinkedList<MemoryBlock>();
-			ListIterator<MemoryBlock> it = fMemoryBlockList.listIterator();
-
-			// Look for holes in the list of memory blocks
-			while (it.hasNext() && count > 0) {
-				MemoryBlock cachedBlock = it.next();
-				IAddress cachedBlockStart = cachedBlock.fAddress;
-				IAddress cachedBlockEnd   = cachedBlock.fAddress.add(cachedBlock.fLength);
-
-				// Case where we miss a block before the cached block
-				if (reqBlockStart.distanceTo(cachedBlockStart).longValue() >= 0) {
-					int length = (int) Math.min(reqBlockStart.distanceTo(cachedBlockStart).longValue(), count);
-					// If both blocks start at the same location, no need to create a new cached block
-					if (length > 0) {
-						MemoryBlock newBlock = new MemoryBlock(reqBlockStart, length, new MemoryByte[0]);
-						list.add(newBlock);
-					}
-					// Adjust request block start and length for the next iteration
-					reqBlockStart = cachedBlockEnd;
-					count -= length + cachedBlock.fLength;
-				}
-
-				// Case where the requested block starts somewhere in the cached block
-				else if (cachedBlockStart.distanceTo(reqBlockStart).longValue() > 0
-					&&  reqBlockStart.distanceTo(cachedBlockEnd).longValue() >= 0)
-				{
-					// Start of the requested block already in cache
-					// Adjust request block start and length for the next iteration
-					count -= reqBlockStart.distanceTo(cachedBlockEnd).longValue();
-					reqBlockStart = cachedBlockEnd;
-				}
-			}
-
-			// Case where we miss a block at the end of the cache
-			if (count > 0) {
-				MemoryBlock newBlock = new MemoryBlock(reqBlockStart, count, new MemoryByte[0]);
-				list.add(newBlock);
-			}
-			
-			return list;
+			fPageCache.reset();
 		}
 
-	    /**
-	     *  This function walks the address-sorted memory block list to get the
-	     *  cached memory bytes (possibly from multiple contiguous blocks).
-	     *  This function is called *after* the missing blocks have been read from
-	     *  the back end i.e. the requested memory is all cached. 
-	     *
-	     *  Again, this is fairly simple. As we loop over the address-ordered list,
-	     *  There are really only 2 cases:
-	     *
-	     *  [1] The requested block fits entirely in the cached block ([a] or [b])
-	     *  [2] The requested block starts in a cached block and ends in the
-	     *      following (contiguous) one ([c]) in which case it is treated
-	     *      as 2 contiguous requests ([c'] and [c"])
-	     *
-	     *       +--------------+--------------+
-	     *       +       A      +      B       +
-	     *       +--------------+--------------+
-	     *       :  [a----]     :   [b-----]   :
-	     *       :              :              :
-	     *       :       [c-----+------]       :
-	     *       :       [c'---]+[c"---]       :
-		 *
-	     * @param reqBlockStart The address of the requested block
-	     * @param count Its length
-	     * @return The cached memory content
-	     */
-	    private MemoryByte[] getMemoryBlockFromCache(IAddress reqBlockStart, int count) {
-
-			IAddress reqBlockEnd = reqBlockStart.add(count);
-			MemoryByte[] resultBlock = new MemoryByte[count];
-			ListIterator<MemoryBlock> iter = fMemoryBlockList.listIterator();
-
-			while (iter.hasNext()) {
-				MemoryBlock cachedBlock = iter.next();
-				IAddress cachedBlockStart = cachedBlock.fAddress;
-				IAddress cachedBlockEnd   = cachedBlock.fAddress.add(cachedBlock.fLength);
-
-				// Case where the cached block overlaps completely the requested memory block  
-				if (cachedBlockStart.distanceTo(reqBlockStart).longValue() >= 0
-					&& reqBlockEnd.distanceTo(cachedBlockEnd).longValue() >= 0)
-				{
-					int pos = (int) cachedBlockStart.distanceTo(reqBlockStart).longValue();
-					System.arraycopy(cachedBlock.fBlock, pos, resultBlock, 0, count);
-				}
-				
-				// Case where the beginning of the cached block is within the requested memory block  
-				else if (reqBlockStart.distanceTo(cachedBlockStart).longValue() >= 0
-					&& cachedBlockStart.distanceTo(reqBlockEnd).longValue() > 0)
-				{
-					int pos = (int) reqBlockStart.distanceTo(cachedBlockStart).longValue();
-					int length = (int) Math.min(cachedBlock.fLength, count - pos);
-					System.arraycopy(cachedBlock.fBlock, 0, resultBlock, pos, length);
-				}
-				
-				// Case where the end of the cached block is within the requested memory block  
-				else if (cachedBlockStart.distanceTo(reqBlockStart).longValue() >= 0
-					&& reqBlockStart.distanceTo(cachedBlockEnd).longValue() > 0)
-				{
-					int pos = (int) cachedBlockStart.distanceTo(reqBlockStart).longValue();
-					int length = (int) Math.min(cachedBlock.fLength - pos, count);
-					System.arraycopy(cachedBlock.fBlock, pos, resultBlock, 0, length);
-				}
- 			}
-			return resultBlock;
+		/**
+		 * Returns the number of read requests made to this cache.
+		 * @since 4.3
+		 */
+		public int getRequestCount() {
+			return fPageCache.getRequestCount();
 		}
 
 		/**
-	     *  This function walks the address-sorted memory block list and updates
-	     *  the content with the actual memory just read from the target.
-	     * 
-		 * @param modBlockStart
-		 * @param count
-		 * @param modBlock
+		 * Returns the number of read requests that have been served from this cache without
+		 * accessing the target.
+		 * @since 4.3
 		 */
-		private void updateMemoryCache(IAddress modBlockStart, int count, MemoryByte[] modBlock) {
-			
-			IAddress modBlockEnd = modBlockStart.add(count);
-			ListIterator<MemoryBlock> iter = fMemoryBlockList.listIterator();
-
-			while (iter.hasNext()) {
-				MemoryBlock cachedBlock = iter.next();
-				IAddress cachedBlockStart = cachedBlock.fAddress;
-				IAddress cachedBlockEnd   = cachedBlock.fAddress.add(cachedBlock.fLength);
-				
-				// For now, we only bother to update bytes already cached.
-				// Note: In a better implementation (v1.1), we would augment
-				// the cache with the missing memory blocks since we went 
-				// through the pains of reading them in the first place.
-				// (this is left as an exercise to the reader :-)
-
-				// Case where the modified block is completely included in the cached block  
-				if (cachedBlockStart.distanceTo(modBlockStart).longValue() >= 0
-					&& modBlockEnd.distanceTo(cachedBlockEnd).longValue() >= 0)
-				{
-					int pos = (int) cachedBlockStart.distanceTo(modBlockStart).longValue();
-					System.arraycopy(modBlock, 0, cachedBlock.fBlock, pos, count);
-				}
-				
-				// Case where the cached block is completely included in the modified block
-				else if (modBlockStart.distanceTo(cachedBlockStart).longValue() >= 0
-					&& cachedBlockEnd.distanceTo(modBlockEnd).longValue() >= 0)
-				{
-					int pos = (int) modBlockStart.distanceTo(cachedBlockStart).longValue();
-					System.arraycopy(modBlock, pos, cachedBlock.fBlock, 0, (int) cachedBlock.fLength);
-				}
-
-				// Case where the beginning of the modified block is within the cached block  
-				else if (cachedBlockStart.distanceTo(modBlockStart).longValue() >= 0
-					&& modBlockStart.distanceTo(cachedBlockEnd).longValue() > 0)
-				{
-					int pos = (int) cachedBlockStart.distanceTo(modBlockStart).longValue();
-					int length = (int) modBlockStart.distanceTo(cachedBlockEnd).longValue();
-					System.arraycopy(modBlock, 0, cachedBlock.fBlock, pos, length);
-				}
-				
-				// Case where the end of the modified block is within the cached block  
-				else if (cachedBlockStart.distanceTo(modBlockEnd).longValue() > 0
-					&& modBlockEnd.distanceTo(cachedBlockEnd).longValue() >= 0)
-				{
-					int pos = (int) modBlockStart.distanceTo(cachedBlockStart).longValue();
-					int length = (int) cachedBlockStart.distanceTo(modBlockEnd).longValue();
-					System.arraycopy(modBlock, pos, cachedBlock.fBlock, 0, length);
-				}
- 			}
-			return;
+		public int getHitCount() {
+			return fPageCache.getHitCount();
 		}
 
 	    /**
@@ -893,40 +586,7 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 	    public void getMemory(IMemoryDMContext memoryDMC, final IAddress address, final int word_size, 
 	    		final int count, final DataRequestMonitor<MemoryByte[]> drm)
 	    {
-	    	// Determine the number of read requests to issue 
-	    	LinkedList<MemoryBlock> missingBlocks = getListOfMissingBlocks(address, count);
-	    	int numberOfRequests = missingBlocks.size();
-
-	    	// A read request will be issued for each block needed
-	    	// so we need to keep track of the count
-	        final CountingRequestMonitor countingRM =
-	        	new CountingRequestMonitor(getExecutor(), drm) { 
-	                @Override
-	                protected void handleSuccess() {
-	                	// We received everything so read the result from the memory cache
-	                	drm.setData(getMemoryBlockFromCache(address, count));
-	                    drm.done();
-	                }
-	            };
-	       	countingRM.setDoneCount(numberOfRequests);
-
-	        // Issue the read requests
-	        for (int i = 0; i < numberOfRequests; i++) {
-	        	MemoryBlock block = missingBlocks.get(i);
-	        	final IAddress startAddress = block.fAddress;
-	        	final int length = (int) block.fLength;
-		        readMemoryBlock(memoryDMC, startAddress, 0, word_size, length,
-					    new DataRequestMonitor<MemoryByte[]>(getSession().getExecutor(), drm) {
-					    	@Override
-					    	protected void handleSuccess() {
-					    		MemoryByte[] block = new MemoryByte[count];
-					    		block = getData();
-					    		MemoryBlock memoryBlock = new MemoryBlock(startAddress, length, block);
-					    		fMemoryBlockList.add(memoryBlock);
-					    		countingRM.done();
-					    	}
-					    });
-	        }
+	    	fPageCache.getMemory(memoryDMC, address, count, drm);
 	    }
 
 	    /**
@@ -956,7 +616,7 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 					        new DataRequestMonitor<MemoryByte[]>(getExecutor(), rm) { 
 					        	@Override
 	                            protected void handleSuccess() {
-									updateMemoryCache(address.add(offset), count, getData());
+									fPageCache.update(address.add(offset), getData());
 									// Send the MemoryChangedEvent
 									IAddress[] addresses = new IAddress[count];
 									for (int i = 0; i < count; i++) {
@@ -986,14 +646,8 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 	   {
 		   // Check if we already cache part of this memory area (which means it
 		   // is used by a memory service client that will have to be updated)
-		   LinkedList<MemoryBlock> list = getListOfMissingBlocks(address, count);
-		   int sizeToRead = 0;
-		   for (MemoryBlock block : list) {
-			   sizeToRead += block.fLength;
-		   }
-
 		   // If none of the requested memory is in cache, just get out
-		   if (sizeToRead == count) {
+		   if (!fPageCache.isCached(address.add(offset), count)) {
 			   rm.done();
 			   return;
 		   }
@@ -1004,25 +658,14 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 				   new DataRequestMonitor<MemoryByte[]>(getExecutor(), rm) {
 					   @Override
 					   protected void handleSuccess() {
-						   MemoryByte[] oldBlock = getMemoryBlockFromCache(address, count);
-						   MemoryByte[] newBlock = getData();
-						   boolean blocksDiffer = false;
-						   for (int i = 0; i < oldBlock.length; i++) {
-						       if (oldBlock[i].getValue() != newBlock[i].getValue()) {
-						          blocksDiffer = true;
-						          break;
-						       }
-						   }
-						   if (blocksDiffer) {
-							   updateMemoryCache(address.add(offset), count, newBlock);
-							   if (sendMemoryEvent) {
-								   // Send the MemoryChangedEvent
-								   final IAddress[] addresses = new IAddress[count];
-								   for (int i = 0; i < count; i++) {
-									   addresses[i] = address.add(offset + i);
-								   }
-								   getSession().dispatchEvent(new MemoryChangedEvent(memoryDMC, addresses), getProperties());
+						   // Only the cached bytes are updated and compared
+						   if (fPageCache.update(address.add(offset), getData()) && sendMemoryEvent) {
+							   // Send the MemoryChangedEvent
+							   final IAddress[] addresses = new IAddress[count];
+							   for (int i = 0; i < count; i++) {
+								   addresses[i] = address.add(offset + i);
 							   }
+							   getSession().dispatchEvent(new MemoryChangedEvent(memoryDMC, addresses), getProperties());
 						   }
 						   rm.done();
 					   }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2012 Monta Vista and others.
+ * Copyright (c) 2008, 2013 Monta Vista and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,6 +14,7 @@
  *     Jens Elmenthaler (Verigy) - Added Full GDB pretty-printing support (bug 302121)
  *     Axel Mueller - Workaround for GDB bug where -var-info-path-expression gives invalid result (Bug 320277)
  *     Anton Gorenkov - DSF-GDB should properly handle variable type change (based on RTTI) (Bug 376901)
+ *     agent - Update all out-of-date roots with a single -var-update
  *******************************************************************************/
 package org.eclipse.cdt.dsf.mi.service;
 
@@ -21,9 +22,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.cdt.dsf.concurrent.CountingRequestMonitor;
 import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
@@ -51,6 +54,7 @@ import org.eclipse.cdt.dsf.debug.service.command.ICommandToken;
 import org.eclipse.cdt.dsf.debug.service.command.IEventListener;
 import org.eclipse.cdt.dsf.gdb.GDBTypeParser;
 import org.eclipse.cdt.dsf.gdb.GDBTypeParser.GDBType;
+import org.eclipse.cdt.dsf.gdb.internal.GdbDebugOptions;
 import org.eclipse.cdt.dsf.gdb.internal.GdbPlugin;
 import org.eclipse.cdt.dsf.gdb.service.IGDBTraceControl.ITraceRecordSelectedChangedDMEvent;
 import org.eclipse.cdt.dsf.mi.service.MIExpressions.ExpressionInfo;
@@ -61,6 +65,7 @@ import org.eclipse.cdt.dsf.mi.service.command.commands.ExprMetaGetChildCount;
 import org.eclipse.cdt.dsf.mi.service.command.commands.ExprMetaGetChildren;
 import org.eclipse.cdt.dsf.mi.service.command.commands.ExprMetaGetValue;
 import org.eclipse.cdt.dsf.mi.service.command.commands.ExprMetaGetVar;
+import org.eclipse.cdt.dsf.mi.service.command.commands.MICommand;
 import org.eclipse.cdt.dsf.mi.service.command.commands.MIDataEvaluateExpression;
 import org.eclipse.cdt.dsf.mi.service.command.output.ExprMetaGetAttributesInfo;
 import org.eclipse.cdt.dsf.mi.service.command.output.ExprMetaGetChildCountInfo;
@@ -2218,85 +2223,112 @@ public class MIVariableManager implements ICommandControl {
 				// The simplest way to do this is that whenever we change the format
 				// of a variable object, we immediately set it back to natural with a second
 				// var-set-format command.  This is done in the getValue() method
-				fCommandControl.queueCommand(
-						fCommandFactory.createMIVarUpdate(getRootToUpdate().getControlDMContext(), getGdbName()),
-						new DataRequestMonitor<MIVarUpdateInfo>(fSession.getExecutor(), rm) {
-							@Override
-							protected void handleCompleted() {
-								if (isSuccess()) {
-									setOutOfDate(false);
-									
-									MIVarChange[] changes = getData().getMIVarChanges();
-									if (changes.length > 0 && changes[0].isInScope() == false) {
-										// Object is out-of-scope
-										currentState = STATE_READY;
+				if (useBatchedVarUpdate()) {
+					updateRootsInBackEnd(this, rm);
+				} else {
+					updateInBackEnd(rm);
+				}
+		    }
+		}
 
-										outOfScope = true;
-										
-										// We can delete this root in GDB right away.  This is safe, even
-									 	// if the root has children, because they are also out-of-scope.
-										// We -must- also remove this entry from our LRU.  If we don't
-										// we can end-up with a race condition that create this object
-										// twice, or have an infinite loop while never re-creating the object.
-										// The can happen if we update a child first then we request 
-										// the root later,
-										lruVariableList.remove(getInternalId());
-
-										rm.setData(true);
-										rm.done();
-										
-										while (updatesPending.size() > 0) {
-											DataRequestMonitor<Boolean> pendingRm = updatesPending.poll();
-											pendingRm.setData(false);
-											pendingRm.done();
-										}
-									} else {
-										// The root object is now up-to-date, we must parse the changes, if any.
-										processChanges(changes, new RequestMonitor(fSession.getExecutor(), rm) {
-											@Override
-											protected void handleCompleted() {
-												currentState = STATE_READY;
-
-												// We only mark this root as updated in our list if it is in-scope.
-												// For out-of-scope object, we don't ever need to re-update them so
-												// we don't need to add them to this list.
-												rootVariableUpdated(MIRootVariableObject.this);
-
-												if (isSuccess()) {
-													rm.setData(false);
-												} else {
-													rm.setStatus(getStatus());
-												}
-												rm.done();
-
-												while (updatesPending.size() > 0) {
-													DataRequestMonitor<Boolean> pendingRm = updatesPending.poll();
-													if (isSuccess()) {
-														pendingRm.setData(false);
-													} else {
-														pendingRm.setStatus(getStatus());
-													}
-													pendingRm.done();
-												}
-											};
-										});
-									}									
-								} else {
-									// We were not able to update for some reason
-									currentState = STATE_READY;
+		/**
+		 * Updates this root on its own with -var-update.
+		 * The object must be in the updating state.
+		 */
+		private void updateInBackEnd(final DataRequestMonitor<Boolean> rm) {
+			fCommandControl.queueCommand(
+					fCommandFactory.createMIVarUpdate(getRootToUpdate().getControlDMContext(), getGdbName()),
+					new DataRequestMonitor<MIVarUpdateInfo>(fSession.getExecutor(), rm) {
+						@Override
+						protected void handleCompleted() {
+							if (isSuccess()) {
+								updateCompleted(getData().getMIVarChanges(), rm);
+							} else {
+								updateFailed(getStatus(), rm);
+							}
+						}
+					});
+		}
 
-									rm.setData(false);
-									rm.done();
+		/**
+		 * Processes the changes reported by -var-update for this root and its descendants.
+		 * The object must be in the updating state.
+		 */
+		private void updateCompleted(MIVarChange[] changes, final DataRequestMonitor<Boolean> rm) {
+			changes = withDeferredChanges(this, changes);
+			setOutOfDate(false);
 
-									while (updatesPending.size() > 0) {
-										DataRequestMonitor<Boolean> pendingRm = updatesPending.poll();
-										pendingRm.setStatus(getStatus());
-										pendingRm.done();
-									}
-								}
+			if (changes.length > 0 && changes[0].isInScope() == false) {
+				// Object is out-of-scope
+				currentState = STATE_READY;
+
+				outOfScope = true;
+
+				// We can delete this root in GDB right away.  This is safe, even
+				// if the root has children, because they are also out-of-scope.
+				// We -must- also remove this entry from our LRU.  If we don't
+				// we can end-up with a race condition that create this object
+				// twice, or have an infinite loop while never re-creating the object.
+				// The can happen if we update a child first then we request 
+				// the root later,
+				lruVariableList.remove(getInternalId());
+
+				rm.setData(true);
+				rm.done();
+
+				while (updatesPending.size() > 0) {
+					DataRequestMonitor<Boolean> pendingRm = updatesPending.poll();
+					pendingRm.setData(false);
+					pendingRm.done();
+				}
+			} else {
+				// The root object is now up-to-date, we must parse the changes, if any.
+				processChanges(changes, new RequestMonitor(fSession.getExecutor(), rm) {
+					@Override
+					protected void handleCompleted() {
+						currentState = STATE_READY;
+
+						// We only mark this root as updated in our list if it is in-scope.
+						// For out-of-scope object, we don't ever need to re-update them so
+						// we don't need to add them to this list.
+						rootVariableUpdated(MIRootVariableObject.this);
+
+						if (isSuccess()) {
+							rm.setData(false);
+						} else {
+							rm.setStatus(getStatus());
+						}
+						rm.done();
+
+						while (updatesPending.size() > 0) {
+							DataRequestMonitor<Boolean> pendingRm = updatesPending.poll();
+							if (isSuccess()) {
+								pendingRm.setData(false);
+							} else {
+								pendingRm.setStatus(getStatus());
 							}
-						});
-		    }
+							pendingRm.done();
+						}
+					};
+				});
+			}
+		}
+
+		/**
+		 * Completes an update of this root that failed in the back-end.
+		 */
+		private void updateFailed(IStatus status, DataRequestMonitor<Boolean> rm) {
+			// We were not able to update for some reason
+			currentState = STATE_READY;
+
+			rm.setData(false);
+			rm.done();
+
+			while (updatesPending.size() > 0) {
+				DataRequestMonitor<Boolean> pendingRm = updatesPending.poll();
+				pendingRm.setStatus(status);
+				pendingRm.done();
+			}
 		}
 
 		/**
@@ -2532,6 +2564,51 @@ public class MIVariableManager implements ICommandControl {
 	/** The list of root variable objects that have been updated */
 	private final LinkedList<MIRootVariableObject> updatedRootList = new LinkedList<MIRootVariableObject>();
 
+	/** The root variable objects that are out-of-date, they are updated together */
+	private final Set<MIRootVariableObject> outOfDateRoots = new LinkedHashSet<MIRootVariableObject>();
+
+	/**
+	 * Changes that a -var-update of all variable objects reported for roots that were busy,
+	 * they are processed by the next update of the root.
+	 */
+	private final Map<MIRootVariableObject, MIVarChange[]> deferredRootChanges =
+			new HashMap<MIRootVariableObject, MIVarChange[]>();
+
+	/** The roots waiting for the next -var-update of all variable objects */
+	private final Map<MIRootVariableObject, DataRequestMonitor<Boolean>> pendingRootUpdates =
+			new LinkedHashMap<MIRootVariableObject, DataRequestMonitor<Boolean>>();
+
+	/** Whether a -var-update of all variable objects is in progress */
+	private boolean updateAllInProgress = false;
+
+	/** Statistics about the variable object commands of the current stop, for tracing */
+	private final ICommandListener fVarCommandCounter = new ICommandListener() {
+		@Override
+		public void commandQueued(ICommandToken token) {
+			if (GdbDebugOptions.DEBUG_VAROBJS && isVarCommand(token)) {
+				fStopCommandCount++;
+			}
+		}
+		@Override
+		public void commandSent(ICommandToken token) {}
+		@Override
+		public void commandRemoved(ICommandToken token) {}
+		@Override
+		public void commandDone(ICommandToken token, ICommandResult result) {
+			if (GdbDebugOptions.DEBUG_VAROBJS && isVarCommand(token)) {
+				fStopLastCommandDone = System.currentTimeMillis();
+			}
+		}
+		private boolean isVarCommand(ICommandToken token) {
+			ICommand<?> command = token.getCommand();
+			return command instanceof MICommand<?>
+					&& ((MICommand<?>) command).getOperation().startsWith("-var-"); //$NON-NLS-1$
+		}
+	};
+	private long fStopTime;
+	private long fStopLastCommandDone;
+	private int fStopCommandCount;
+
 	/**
 	 * MIVariableManager constructor
 	 * 
@@ -2550,10 +2627,12 @@ public class MIVariableManager implements ICommandControl {
 
 		// Register to receive service events for this session.
         fSession.addServiceEventListener(this, null);
+        fCommandControl.addCommandListener(fVarCommandCounter);
 	}
 
 	public void dispose() {
     	fSession.removeServiceEventListener(this);
+    	fCommandControl.removeCommandListener(fVarCommandCounter);
 	}
 
     /**
@@ -3064,10 +3143,148 @@ public class MIVariableManager implements ICommandControl {
      * @since 1.1
      */
     public void markAllOutOfDate() {
+    	boolean batched = useBatchedVarUpdate();
     	MIRootVariableObject root;
     	while ((root = updatedRootList.poll()) != null) {
     		root.setOutOfDate(true);
-    	}       
+    		if (batched) {
+    			outOfDateRoots.add(root);
+    		}
+    	}
+    	if (!batched) {
+    		// Roots are only collected for a -var-update of all variable objects
+    		outOfDateRoots.clear();
+    	}
+    }
+
+    /**
+     * Returns whether all out-of-date root variable objects are updated with a single
+     * -var-update command. Otherwise each root is updated on its own, when it is accessed.
+     * 
+     * @since 4.3
+     */
+    protected boolean useBatchedVarUpdate() {
+    	return true;
+    }
+
+    /**
+     * Updates the given root, which must be in the updating state, together with all other
+     * out-of-date roots using a single -var-update command. A -var-update of all variable objects
+     * reports the changes of all roots, therefore the changes of every root that is out-of-date
+     * must be processed, whether it has been requested or not.
+     */
+    private void updateRootsInBackEnd(MIRootVariableObject root, DataRequestMonitor<Boolean> rm) {
+    	pendingRootUpdates.put(root, rm);
+    	if (!updateAllInProgress) {
+    		updateAllRoots(root.getControlDMContext());
+    	}
+    }
+
+    private void updateAllRoots(ICommandControlDMContext controlDmc) {
+    	updateAllInProgress = true;
+
+    	final Map<MIRootVariableObject, DataRequestMonitor<Boolean>> requests =
+    			new HashMap<MIRootVariableObject, DataRequestMonitor<Boolean>>(pendingRootUpdates);
+    	pendingRootUpdates.clear();
+    	final Map<String, MIRootVariableObject> roots = new HashMap<String, MIRootVariableObject>();
+    	for (MIRootVariableObject root : outOfDateRoots) {
+    		if (root.getGdbName() != null && !root.isOutOfScope() && root.getOutOfDate()) {
+    			roots.put(root.getGdbName(), root);
+    		} else {
+    			// Deleted or out-of-scope roots are not updated anymore
+    			deferredRootChanges.remove(root);
+    		}
+    	}
+    	outOfDateRoots.clear();
+    	for (MIRootVariableObject root : requests.keySet()) {
+    		roots.put(root.getGdbName(), root);
+    	}
+
+    	fCommandControl.queueCommand(
+    			fCommandFactory.createMIVarUpdate(controlDmc, "*"), //$NON-NLS-1$
+    			new DataRequestMonitor<MIVarUpdateInfo>(fSession.getExecutor(), null) {
+    				@Override
+    				protected void handleCompleted() {
+    					updateAllInProgress = false;
+
+    					// Changes are reported per root, the name of a child starts with the name
+    					// of its root followed by a dot.
+    					Map<String, List<MIVarChange>> changesPerRoot = new HashMap<String, List<MIVarChange>>();
+    					if (isSuccess()) {
+    						for (MIVarChange change : getData().getMIVarChanges()) {
+    							String name = change.getVarName();
+    							int dot = name.indexOf('.');
+    							String rootName = dot < 0 ? name : name.substring(0, dot);
+    							List<MIVarChange> changes = changesPerRoot.get(rootName);
+    							if (changes == null) {
+    								changes = new ArrayList<MIVarChange>();
+    								changesPerRoot.put(rootName, changes);
+    							}
+    							changes.add(change);
+    						}
+    					}
+
+    					for (Map.Entry<String, MIRootVariableObject> entry : roots.entrySet()) {
+    						MIRootVariableObject root = entry.getValue();
+    						DataRequestMonitor<Boolean> rm = requests.remove(root);
+    						if (rm == null) {
+    							// The root may have been requested while the command was in progress
+    							rm = pendingRootUpdates.remove(root);
+    						}
+
+    						if (!isSuccess()) {
+    							// Fall back to updating each requested root on its own, so that
+    							// only the roots that really cannot be updated fail.  The others
+    							// stay out-of-date until they are requested.
+    							if (rm != null) {
+    								root.updateInBackEnd(rm);
+    							} else {
+    								outOfDateRoots.add(root);
+    							}
+    							continue;
+    						}
+
+    						List<MIVarChange> changeList = changesPerRoot.get(entry.getKey());
+    						MIVarChange[] changes = changeList == null ? new MIVarChange[0] 
+    								: changeList.toArray(new MIVarChange[changeList.size()]);
+    						if (rm == null) {
+    							if (root.currentState != MIVariableObject.STATE_READY) {
+    								// The changes were consumed by this command, keep them for
+    								// the next update of the root so that they are not lost.
+    								if (changes.length > 0) {
+    									deferredRootChanges.put(root, withDeferredChanges(root, changes));
+    									root.setOutOfDate(true);
+    									outOfDateRoots.add(root);
+    								}
+    								continue;
+    							}
+    							root.currentState = MIVariableObject.STATE_UPDATING;
+    							rm = new DataRequestMonitor<Boolean>(fSession.getExecutor(), null);
+    						}
+    						root.updateCompleted(changes, rm);
+    					}
+
+    					// Roots that became out-of-date while the command was in progress
+    					if (!pendingRootUpdates.isEmpty()) {
+    						updateAllRoots(pendingRootUpdates.keySet().iterator().next().getControlDMContext());
+    					}
+    				}
+    			});
+    }
+
+    /**
+     * Returns the given changes of a root preceded by the changes that were kept for it
+     * by an earlier -var-update of all variable objects.
+     */
+    private MIVarChange[] withDeferredChanges(MIRootVariableObject root, MIVarChange[] changes) {
+    	MIVarChange[] deferred = deferredRootChanges.remove(root);
+    	if (deferred == null || (changes.length > 0 && !changes[0].isInScope())) {
+    		return changes;
+    	}
+    	MIVarChange[] merged = new MIVarChange[deferred.length + changes.length];
+    	System.arraycopy(deferred, 0, merged, 0, deferred.length);
+    	System.arraycopy(changes, 0, merged, deferred.length, changes.length);
+    	return merged;
     }
 
     @DsfServiceEventHandler 
@@ -3078,10 +3295,19 @@ public class MIVariableManager implements ICommandControl {
     	// a list of all roots that have been updated, so we only have to
     	// set those to needing to be updated.
     	markAllOutOfDate();
+
+    	if (GdbDebugOptions.DEBUG_VAROBJS && fStopTime != 0) {
+    		GdbDebugOptions.trace(String.format("Variable objects: %d commands, last one done after %d ms\n", //$NON-NLS-1$
+    				Integer.valueOf(fStopCommandCount), Long.valueOf(Math.max(0, fStopLastCommandDone - fStopTime))));
+    		fStopTime = 0;
+    	}
     }
     
     @DsfServiceEventHandler 
     public void eventDispatched(IRunControl.ISuspendedDMEvent e) {
+    	fStopTime = System.currentTimeMillis();
+    	fStopLastCommandDone = fStopTime;
+    	fStopCommandCount = 0;
     }
     
     @DsfServiceEventHandler 
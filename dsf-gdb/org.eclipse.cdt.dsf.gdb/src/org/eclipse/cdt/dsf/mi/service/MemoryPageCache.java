@@ -0,0 +1,363 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.dsf.mi.service;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import org.eclipse.cdt.core.IAddress;
+import org.eclipse.cdt.dsf.concurrent.CountingRequestMonitor;
+import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
+import org.eclipse.cdt.dsf.datamodel.IDMContext;
+import org.eclipse.debug.core.model.MemoryByte;
+
+/**
+ * Size bounded cache for the memory of one memory context. The memory is cached in aligned
+ * pages of {@link #PAGE_SIZE} bytes. The pages missing for a request are read with as few
+ * back-end requests as possible. When the memory is accessed sequentially (e.g. while scrolling
+ * in a memory view) the reads are extended by a growing number of pages in the direction of
+ * the access, but not into pages for which read-ahead has failed before. When the cache is full,
+ * the least recently used pages are discarded.
+ * <p>
+ * The cache must be accessed on the executor thread of the session.
+ */
+abstract class MemoryPageCache {
+	static final int PAGE_BITS = 10;
+	static final int PAGE_SIZE = 1 << PAGE_BITS;
+	static final int DEFAULT_MAX_PAGES = 1024;
+	static final int MAX_READ_AHEAD_PAGES = 16;
+
+	// Values and flags of the memory bytes, MemoryByte objects are far too large to be cached.
+	private static final class Page {
+		final byte[] fValues = new byte[PAGE_SIZE];
+		final byte[] fFlags = new byte[PAGE_SIZE];
+	}
+
+	private final Executor fExecutor;
+	private final Map<Long, Page> fPages;
+
+	// Pages of the previous request and the current read-ahead in pages.
+	private long fPrevFirstPage = -1;
+	private long fPrevLastPage = -1;
+	private int fDirection;
+	private int fReadAhead;
+
+	// Read-ahead pages of the last read that failed because of them, they are not read ahead again.
+	private long fFailedFirstPage = -1;
+	private long fFailedLastPage = -1;
+
+	// Incremented on every reset, such that pending reads do not populate the cache.
+	private int fGeneration;
+
+	// Statistics
+	private int fRequestCount;
+	private int fHitCount;
+	private int fReadCount;
+
+	@SuppressWarnings("serial")
+	MemoryPageCache(Executor executor, final int maxPages) {
+		fExecutor = executor;
+		fPages = new LinkedHashMap<Long, Page>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Page> eldest) {
+				return size() > maxPages;
+			}
+		};
+	}
+
+	/**
+	 * Reads a block of memory from the back-end. Bytes that cannot be read have to be
+	 * marked as not readable.
+	 */
+	protected abstract void readBlock(IDMContext dmc, IAddress address, int count, DataRequestMonitor<MemoryByte[]> drm);
+
+	/**
+	 * Discards all cached memory.
+	 */
+	public void reset() {
+		fPages.clear();
+		fGeneration++;
+		fPrevFirstPage = fPrevLastPage = -1;
+		fDirection = 0;
+		fReadAhead = 0;
+		fFailedFirstPage = fFailedLastPage = -1;
+	}
+
+	/**
+	 * Returns the number of requests made to the cache.
+	 */
+	public int getRequestCount() {
+		return fRequestCount;
+	}
+
+	/**
+	 * Returns the number of requests that have been served without reading memory.
+	 */
+	public int getHitCount() {
+		return fHitCount;
+	}
+
+	/**
+	 * Returns the number of read requests sent to the back-end.
+	 */
+	public int getReadCount() {
+		return fReadCount;
+	}
+
+	/**
+	 * Returns whether any byte of the given memory area is cached.
+	 */
+	public boolean isCached(IAddress address, int count) {
+		if (count <= 0)
+			return false;
+		final long last = pageOf(address.add(count - 1));
+		for (long page = pageOf(address); page <= last; page++) {
+			if (fPages.containsKey(page))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Replaces the cached bytes of the given memory area. Bytes that are not in the cache are
+	 * ignored.
+	 * @return whether the value of a cached byte has changed.
+	 */
+	public boolean update(IAddress address, MemoryByte[] bytes) {
+		boolean changed = false;
+		final long first = pageOf(address);
+		int pos = -offsetInPage(address);
+		for (long p = first; pos < bytes.length; p++, pos += PAGE_SIZE) {
+			Page page = fPages.get(p);
+			if (page != null) {
+				final int from = Math.max(0, -pos);
+				final int to = Math.min(PAGE_SIZE, bytes.length - pos);
+				for (int i = from; i < to; i++) {
+					MemoryByte b = bytes[pos + i];
+					if (page.fValues[i] != b.getValue())
+						changed = true;
+					page.fValues[i] = b.getValue();
+					page.fFlags[i] = b.getFlags();
+				}
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Returns the content of the given memory area, missing pages are read from the back-end.
+	 */
+	public void getMemory(IDMContext dmc, final IAddress address, final int count, final DataRequestMonitor<MemoryByte[]> drm) {
+		fRequestCount++;
+		final MemoryByte[] result = new MemoryByte[count];
+		if (count == 0) {
+			fHitCount++;
+			drm.setData(result);
+			drm.done();
+			return;
+		}
+
+		final long first = pageOf(address);
+		final long last = pageOf(address.add(count - 1));
+		updateReadAhead(first, last);
+
+		long lo = first;
+		long hi = last;
+		if (fDirection > 0) {
+			hi = Math.min(last + fReadAhead, pageOf(address.add(address.getMaxOffset().subtract(address.getValue()))));
+		} else if (fDirection < 0) {
+			lo = Math.max(first - fReadAhead, 0);
+		}
+		if (fFailedFirstPage >= 0 && lo <= fFailedLastPage && hi >= fFailedFirstPage) {
+			// Stop reading ahead in front of memory that is known to be unreadable.
+			if (hi > last)
+				hi = Math.max(last, fFailedFirstPage - 1);
+			if (lo < first)
+				lo = Math.min(first, fFailedLastPage + 1);
+		}
+
+		// Copy the cached pages and collect the runs of missing pages, runs that
+		// consist of read-ahead pages only are not worth a separate request.
+		final List<long[]> runs = new ArrayList<long[]>();
+		long runStart = -1;
+		for (long p = lo; p <= hi + 1; p++) {
+			Page page = p <= hi ? fPages.get(p) : null;
+			if (page == null && p <= hi) {
+				if (runStart < 0)
+					runStart = p;
+				continue;
+			}
+			if (runStart >= 0) {
+				if (runStart <= last && p - 1 >= first)
+					runs.add(new long[] { runStart, p - 1 });
+				runStart = -1;
+			}
+			if (page != null && p >= first && p <= last) {
+				copyFromPage(page, p, address, result);
+			}
+		}
+
+		if (runs.isEmpty()) {
+			fHitCount++;
+			drm.setData(result);
+			drm.done();
+			return;
+		}
+
+		final CountingRequestMonitor crm = new CountingRequestMonitor(fExecutor, drm) {
+			@Override
+			protected void handleSuccess() {
+				drm.setData(result);
+				drm.done();
+			}
+		};
+		crm.setDoneCount(runs.size());
+		for (long[] run : runs) {
+			readRun(dmc, run[0], run[1], address, result, crm);
+		}
+	}
+
+	private void readRun(final IDMContext dmc, final long firstPage, final long lastPage, final IAddress address,
+			final MemoryByte[] result, final CountingRequestMonitor crm) {
+		final IAddress runAddress = pageAddress(address, firstPage);
+		final int runLength = (int) (lastPage - firstPage + 1) * PAGE_SIZE;
+		final int generation = fGeneration;
+		fReadCount++;
+		readBlock(dmc, runAddress, runLength, new DataRequestMonitor<MemoryByte[]>(fExecutor, crm) {
+			@Override
+			protected void handleSuccess() {
+				MemoryByte[] data = getData();
+				if (generation == fGeneration) {
+					for (long p = firstPage; p <= lastPage; p++) {
+						Page page = createPage(data, (int) (p - firstPage) * PAGE_SIZE);
+						if (page != null)
+							fPages.put(p, page);
+					}
+				}
+				final long requestStart = runAddress.distanceTo(address).longValue();
+				final int start = (int) Math.max(0, requestStart);
+				final int end = (int) Math.min(runLength, requestStart + result.length);
+				final int resultPos = (int) -requestStart;
+				if (isReadable(data, start, end) || (start == 0 && end == runLength)) {
+					copy(data, start, end, result, resultPos);
+					crm.done();
+					return;
+				}
+
+				// The extended area is not readable, which may have caused the entire read to fail.
+				// Remember the read-ahead pages, and read the requested part of the run, only.
+				if (generation == fGeneration) {
+					final long requestFirst = pageOf(address);
+					final long requestLast = pageOf(address.add(result.length - 1));
+					if (lastPage > requestLast) {
+						fFailedFirstPage = requestLast + 1;
+						fFailedLastPage = lastPage;
+					} else if (firstPage < requestFirst) {
+						fFailedFirstPage = firstPage;
+						fFailedLastPage = requestFirst - 1;
+					}
+				}
+				fReadCount++;
+				readBlock(dmc, runAddress.add(start), end - start, new DataRequestMonitor<MemoryByte[]>(fExecutor, crm) {
+					@Override
+					protected void handleSuccess() {
+						copy(getData(), 0, end - start, result, resultPos + start);
+						crm.done();
+					}
+				});
+			}
+		});
+	}
+
+	private void updateReadAhead(long first, long last) {
+		int direction = 0;
+		if (fPrevFirstPage >= 0) {
+			if (first >= fPrevFirstPage && last <= fPrevLastPage) {
+				// Within the previous request, keep the access pattern.
+				fPrevFirstPage = first;
+				fPrevLastPage = last;
+				return;
+			}
+			if (first >= fPrevFirstPage && first <= fPrevLastPage + 1 && last > fPrevLastPage) {
+				direction = 1;
+			} else if (last <= fPrevLastPage && last >= fPrevFirstPage - 1 && first < fPrevFirstPage) {
+				direction = -1;
+			}
+		}
+		if (direction == 0) {
+			fReadAhead = 0;
+		} else if (direction == fDirection) {
+			fReadAhead = Math.min(Math.max(1, 2 * fReadAhead), MAX_READ_AHEAD_PAGES);
+		} else {
+			fReadAhead = 1;
+		}
+		fDirection = direction;
+		fPrevFirstPage = first;
+		fPrevLastPage = last;
+	}
+
+	private static boolean isReadable(MemoryByte[] data, int start, int end) {
+		if (data == null || data.length < end)
+			return false;
+		for (int i = start; i < end; i++) {
+			if (data[i] == null || !data[i].isReadable())
+				return false;
+		}
+		return true;
+	}
+
+	// Creates a page from fully readable data, only.
+	private static Page createPage(MemoryByte[] data, int pos) {
+		if (data == null || data.length < pos + PAGE_SIZE)
+			return null;
+		Page page = new Page();
+		for (int i = 0; i < PAGE_SIZE; i++) {
+			MemoryByte b = data[pos + i];
+			if (b == null || !b.isReadable())
+				return null;
+			page.fValues[i] = b.getValue();
+			page.fFlags[i] = b.getFlags();
+		}
+		return page;
+	}
+
+	private static void copyFromPage(Page page, long p, IAddress address, MemoryByte[] result) {
+		final int pos = (int) ((p - pageOf(address)) * PAGE_SIZE) - offsetInPage(address);
+		final int from = Math.max(0, -pos);
+		final int to = Math.min(PAGE_SIZE, result.length - pos);
+		for (int i = from; i < to; i++) {
+			result[pos + i] = new MemoryByte(page.fValues[i], page.fFlags[i]);
+		}
+	}
+
+	private static void copy(MemoryByte[] data, int start, int end, MemoryByte[] result, int resultPos) {
+		for (int i = start; i < end; i++) {
+			MemoryByte b = data != null && i < data.length ? data[i] : null;
+			result[resultPos + i] = b != null ? b : new MemoryByte((byte) 0, (byte) 0);
+		}
+	}
+
+	private static long pageOf(IAddress address) {
+		return address.getValue().shiftRight(PAGE_BITS).longValue();
+	}
+
+	private static int offsetInPage(IAddress address) {
+		return address.getValue().intValue() & (PAGE_SIZE - 1);
+	}
+
+	private static IAddress pageAddress(IAddress address, long page) {
+		return address.add(BigInteger.valueOf(page).shiftLeft(PAGE_BITS).subtract(address.getValue()));
+	}
+}
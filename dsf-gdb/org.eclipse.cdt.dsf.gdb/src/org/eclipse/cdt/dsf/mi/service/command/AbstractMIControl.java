@@ -99,6 +99,10 @@ public abstract class AbstractMIControl extends AbstractDsfService
     private boolean fUseThreadGroupOption;
     
     private final BlockingQueue<CommandHandle> fTxCommands = new LinkedBlockingQueue<CommandHandle>();
+    /**
+     * Maximum number of queued commands the TX thread writes to the backend at once.
+     */
+    private static final int MAX_COMMANDS_PER_WRITE = 20;
     private final Map<Integer, CommandHandle>  fRxCommands = Collections.synchronizedMap(new HashMap<Integer, CommandHandle>());
 
     /**
@@ -612,53 +616,56 @@ public abstract class AbstractMIControl extends AbstractDsfService
 
         @Override
         public void run () {
-            while (true) {
-                CommandHandle commandHandle = null;
-                
+            final List<CommandHandle> batch = new ArrayList<CommandHandle>();
+            boolean shutdown = false;
+            while (!shutdown) {
+                batch.clear();
+
                 /*
                  *   Note: Acquiring locks for both fRxCommands and fTxCommands collections. 
                  */
                 synchronized(fTxCommands) {
                     try {
-                        commandHandle = fTxCommands.take();
+                        batch.add(fTxCommands.take());
                     } catch (InterruptedException e) {
                         break;  // Shutting down.
                     }
-        
-                    if (commandHandle == fTerminatorHandle) {
-                        
-                        break; // Null command is an indicator that we're shutting down. 
-                    }
-                    
-                    /*
-                     *  We note that this is an outstanding request at this point.
-                     */
-                    if (!(commandHandle.getCommand() instanceof RawCommand)) {
-                    	// RawCommands will not get an answer, so we cannot put them in the receive queue.
-                    	fRxCommands.put(commandHandle.getTokenId(), commandHandle);
+                    // Commands that are already queued (e.g. a -thread-select followed by the
+                    // command it applies to) are sent with a single write and flush.
+                    fTxCommands.drainTo(batch, MAX_COMMANDS_PER_WRITE - 1);
+
+                    for (int i = 0; i < batch.size(); i++) {
+                        final CommandHandle commandHandle = batch.get(i);
+                        if (commandHandle == fTerminatorHandle) {
+                            // Null command is an indicator that we're shutting down.
+                            // Commands queued after it are dropped.
+                            batch.subList(i, batch.size()).clear();
+                            shutdown = true;
+                            break;
+                        }
+
+                        /*
+                         *  We note that this is an outstanding request at this point.
+                         */
+                        if (!(commandHandle.getCommand() instanceof RawCommand)) {
+                            // RawCommands will not get an answer, so we cannot put them in the receive queue.
+                            fRxCommands.put(commandHandle.getTokenId(), commandHandle);
+                        }
                     }
                 }
-                
+                if (batch.isEmpty()) {
+                    break;
+                }
+
                 /*
-                 *   Construct the new command and push this command out the pipeline.
+                 *   Construct the new commands and push them out the pipeline.
                  */
-
-                final String str;
-                if (commandHandle.getCommand() instanceof RawCommand) {
-                	// RawCommands CANNOT have a token id: GDB would read it as part of the RawCommand!
-                	str = commandHandle.getCommand().constructCommand();
-                } else if (fUseThreadGroupOption) {
-                	// Implies that fUseThreadAndFrameOptions == true
-                	str = commandHandle.getTokenId() + commandHandle.getCommand().constructCommand(commandHandle.getGroupId(),
-							   																	   commandHandle.getThreadId(),
-							   																	   commandHandle.getStackFrameId());                	
-                } else if (fUseThreadAndFrameOptions) {
-                	str = commandHandle.getTokenId() + commandHandle.getCommand().constructCommand(commandHandle.getThreadId(),
-							   																	   commandHandle.getStackFrameId());
-                } else {
-                	str = commandHandle.getTokenId() + commandHandle.getCommand().constructCommand();
+                final StringBuilder builder = new StringBuilder();
+                for (CommandHandle commandHandle : batch) {
+                    builder.append(constructCommand(commandHandle));
                 }
-                
+                final String str = builder.toString();
+
                 try {
                     if (fOutputStream != null) {
                         fOutputStream.write(str.getBytes());
@@ -698,6 +705,22 @@ public abstract class AbstractMIControl extends AbstractDsfService
         }
     }
 
+    private String constructCommand(CommandHandle commandHandle) {
+        if (commandHandle.getCommand() instanceof RawCommand) {
+        	// RawCommands CANNOT have a token id: GDB would read it as part of the RawCommand!
+        	return commandHandle.getCommand().constructCommand();
+        } else if (fUseThreadGroupOption) {
+        	// Implies that fUseThreadAndFrameOptions == true
+        	return commandHandle.getTokenId() + commandHandle.getCommand().constructCommand(commandHandle.getGroupId(),
+        																				   commandHandle.getThreadId(),
+        																				   commandHandle.getStackFrameId());
+        } else if (fUseThreadAndFrameOptions) {
+        	return commandHandle.getTokenId() + commandHandle.getCommand().constructCommand(commandHandle.getThreadId(),
+        																				   commandHandle.getStackFrameId());
+        }
+        return commandHandle.getTokenId() + commandHandle.getCommand().constructCommand();
+    }
+
     private class RxThread extends Thread {
         private final InputStream fInputStream;
         private final MIParser fMiParser = new MIParser();
@@ -120,7 +120,9 @@ public class MIParser {
      * 
      */
     public MIResultRecord parseMIResultRecord(String line) {
-        StringBuffer buffer = new StringBuffer(line);
+        // Avoid copying the line while consuming characters from its front,
+        // results of commands can be very long.
+        FSB buffer = new FSB(new StringBuffer(line));
         // Fetch the Token/Id
         int id = parseToken(buffer);
         // Consume the '^'
@@ -128,19 +130,19 @@ public class MIParser {
         
         MIResultRecord rr = new MIResultRecord();
         rr.setToken(id);
-        if (buffer.toString().startsWith(MIResultRecord.DONE)) {
+        if (buffer.startsWith(MIResultRecord.DONE)) {
             rr.setResultClass(MIResultRecord.DONE);
             buffer.delete(0, MIResultRecord.DONE.length());
-        } else if (buffer.toString().startsWith(MIResultRecord.ERROR)) {
+        } else if (buffer.startsWith(MIResultRecord.ERROR)) {
             rr.setResultClass(MIResultRecord.ERROR);
             buffer.delete(0, MIResultRecord.ERROR.length());
-        } else if (buffer.toString().startsWith(MIResultRecord.EXIT)) {
+        } else if (buffer.startsWith(MIResultRecord.EXIT)) {
             rr.setResultClass(MIResultRecord.EXIT);
             buffer.delete(0, MIResultRecord.EXIT.length());
-        } else if (buffer.toString().startsWith(MIResultRecord.RUNNING)) {
+        } else if (buffer.startsWith(MIResultRecord.RUNNING)) {
             rr.setResultClass(MIResultRecord.RUNNING);
             buffer.delete(0, MIResultRecord.RUNNING.length());
-        } else if (buffer.toString().startsWith(MIResultRecord.CONNECTED)) {
+        } else if (buffer.startsWith(MIResultRecord.CONNECTED)) {
             rr.setResultClass(MIResultRecord.CONNECTED);
             buffer.delete(0, MIResultRecord.CONNECTED.length());
         } else {
@@ -150,7 +152,7 @@ public class MIParser {
         // Results are separated by commas.
         if (buffer.length() > 0 && buffer.charAt(0) == ',') {
             buffer.deleteCharAt(0);
-            MIResult[] res = processMIResults(new FSB(buffer));
+            MIResult[] res = processMIResults(buffer);
             rr.setMIResults(res);
         }
         return rr;
@@ -160,7 +162,7 @@ public class MIParser {
      * Find OutOfBand Records depending on the starting token.
      */
     public MIOOBRecord parseMIOOBRecord(String line) {
-        StringBuffer buffer = new StringBuffer(line);
+        FSB buffer = new FSB(new StringBuffer(line));
         int id = parseToken(buffer);
         MIOOBRecord oob = null;
         char c = buffer.length() != 0 ? buffer.charAt(0) : 0;
@@ -186,7 +188,7 @@ public class MIParser {
             }
             async.setToken(id);
             // Extract the Async-Class
-            int i = buffer.toString().indexOf(',');
+            int i = buffer.indexOf(',');
             if (i != -1) {
                 String asyncClass = buffer.substring(0, i);
                 async.setAsyncClass(asyncClass);
@@ -196,7 +198,7 @@ public class MIParser {
                 async.setAsyncClass(buffer.toString().trim());
                 buffer.setLength(0);
             }
-            MIResult[] res = processMIResults(new FSB(buffer));
+            MIResult[] res = processMIResults(buffer);
             async.setMIResults(res);
             oob = async;
         } else if (c == '~' || c == '@' || c == '&') {
@@ -225,7 +227,7 @@ public class MIParser {
             }
             // Don't parse any backslashes - backslashes within stream records
             // aren't escaped.
-            stream.setCString(translateCString(new FSB(buffer), false));
+            stream.setCString(translateCString(buffer, false));
             oob = stream;
         } else {
             // Badly format MI line, just pass it to the user as target stream
@@ -236,10 +238,10 @@ public class MIParser {
         return oob;
     }
     
-    private int parseToken(StringBuffer buffer) {
+    private int parseToken(FSB buffer) {
         int id = -1;
         // Fetch the Token/Id
-        if (Character.isDigit(buffer.charAt(0))) {
+        if (buffer.length() > 0 && Character.isDigit(buffer.charAt(0))) {
             int i = 1;
             while (i < buffer.length() && Character.isDigit(buffer.charAt(i))) {
                 i++;
@@ -407,12 +409,29 @@ public class MIParser {
      * @return The translated C string.
      */
     private String translateCString(FSB buffer, boolean parseBackslashes) {
+        // Most strings do not contain any escapes, return them without
+        // copying them character by character.
+        final int length = buffer.length();
+        int index = 0;
+        while (index < length) {
+            char c = buffer.charAt(index);
+            if (c == '"') {
+                String result = buffer.substring(0, index);
+                buffer.delete(0, index + 1);
+                return result;
+            }
+            if (c == '\\') {
+                break;
+            }
+            index++;
+        }
+
         boolean escape = false;
         boolean closingQuotes = false;
 
-        StringBuffer sb = new StringBuffer();
+        StringBuilder sb = new StringBuilder();
+        sb.append(buffer.substring(0, index));
 
-        int index = 0;
         for (; index < buffer.length() && !closingQuotes; index++) {
             char c = buffer.charAt(index);
             if (c == '\\') {
@@ -0,0 +1,385 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.dsf.mi.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
+import org.eclipse.cdt.dsf.concurrent.DefaultDsfExecutor;
+import org.eclipse.cdt.dsf.concurrent.DsfExecutor;
+import org.eclipse.cdt.dsf.concurrent.DsfRunnable;
+import org.eclipse.cdt.dsf.concurrent.IDsfStatusConstants;
+import org.eclipse.cdt.dsf.concurrent.Query;
+import org.eclipse.cdt.dsf.concurrent.RequestMonitor;
+import org.eclipse.cdt.dsf.debug.service.IFormattedValues;
+import org.eclipse.cdt.dsf.debug.service.IFormattedValues.FormattedValueDMContext;
+import org.eclipse.cdt.dsf.debug.service.IMemory.IMemoryDMContext;
+import org.eclipse.cdt.dsf.debug.service.command.ICommand;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandListener;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandResult;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandToken;
+import org.eclipse.cdt.dsf.debug.service.command.IEventListener;
+import org.eclipse.cdt.dsf.gdb.internal.GdbPlugin;
+import org.eclipse.cdt.dsf.mi.service.MIExpressions.MIExpressionDMC;
+import org.eclipse.cdt.dsf.mi.service.command.CommandFactory;
+import org.eclipse.cdt.dsf.mi.service.command.MIControlDMContext;
+import org.eclipse.cdt.dsf.mi.service.command.commands.ExprMetaGetValue;
+import org.eclipse.cdt.dsf.mi.service.command.commands.MICommand;
+import org.eclipse.cdt.dsf.mi.service.command.output.ExprMetaGetValueInfo;
+import org.eclipse.cdt.dsf.mi.service.command.output.MIInfo;
+import org.eclipse.cdt.dsf.mi.service.command.output.MIOOBRecord;
+import org.eclipse.cdt.dsf.mi.service.command.output.MIOutput;
+import org.eclipse.cdt.dsf.mi.service.command.output.MIParser;
+import org.eclipse.cdt.dsf.service.DsfServicesTracker;
+import org.eclipse.cdt.dsf.service.DsfSession;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the updates of variable objects after a stop against a scripted back-end,
+ * that answers the -var-* commands like GDB does.
+ */
+public class MIVariableManagerTest {
+
+	private static class ControlDMContext extends MIControlDMContext implements IMemoryDMContext {
+		ControlDMContext(String sessionId) {
+			super(sessionId, "control");
+		}
+	}
+
+	/**
+	 * Answers -var-create with the scripted value of the expression and -var-update with
+	 * the scripted changes that have not been reported yet.
+	 */
+	private static class ScriptedCommandControl implements IMICommandControl {
+		final DsfSession fSession;
+		final ControlDMContext fContext;
+		final CommandFactory fFactory = new CommandFactory();
+		final List<String> fCommands = new ArrayList<String>();
+		final Map<String, String> fValues = new HashMap<String, String>();
+		final Map<String, String> fChanges = new HashMap<String, String>();
+		final Set<String> fFailingUpdates = new HashSet<String>();
+		int fVarCount;
+
+		ScriptedCommandControl(DsfSession session) {
+			fSession = session;
+			fContext = new ControlDMContext(session.getId());
+		}
+
+		@Override
+		public <V extends ICommandResult> ICommandToken queueCommand(final ICommand<V> command, final DataRequestMonitor<V> rm) {
+			final MICommand<?> miCommand = (MICommand<?>) command;
+			fCommands.add(miCommand.constructCommand().trim());
+			final String reply = reply(miCommand.getOperation(), miCommand.getParameters());
+			// GDB answers after the command has been queued
+			fSession.getExecutor().execute(new DsfRunnable() {
+				@Override
+				@SuppressWarnings("unchecked")
+				public void run() {
+					MIOutput output = new MIOutput(new MIParser().parseMIResultRecord(reply), new MIOOBRecord[0]);
+					MIInfo info = miCommand.getResult(output);
+					if (info.isError()) {
+						rm.setStatus(new Status(IStatus.ERROR, GdbPlugin.PLUGIN_ID, IDsfStatusConstants.REQUEST_FAILED, reply, null));
+					} else {
+						rm.setData((V) info);
+					}
+					rm.done();
+				}
+			});
+			return new ICommandToken() {
+				@Override
+				public ICommand<? extends ICommandResult> getCommand() {
+					return command;
+				}
+			};
+		}
+
+		private String reply(String operation, String[] parameters) {
+			if (operation.equals("-var-create")) {
+				String expression = parameters[2];
+				String name = "var" + ++fVarCount;
+				fValues.put(name, fValues.get(expression));
+				return "^done,name=\"" + name + "\",numchild=\"0\",value=\"" + fValues.get(expression)
+						+ "\",type=\"int\",has_more=\"0\"";
+			}
+			if (operation.equals("-var-update")) {
+				String name = parameters[1];
+				if (fFailingUpdates.remove(name)) {
+					return "^error,msg=\"Cannot update " + name + "\"";
+				}
+				StringBuilder changes = new StringBuilder();
+				for (Iterator<Map.Entry<String, String>> it = fChanges.entrySet().iterator(); it.hasNext();) {
+					Map.Entry<String, String> change = it.next();
+					if (name.equals("*") || name.equals(change.getKey())) {
+						if (changes.length() > 0) {
+							changes.append(',');
+						}
+						changes.append("{name=\"").append(change.getKey()).append("\",value=\"").append(change.getValue())
+								.append("\",in_scope=\"true\",type_changed=\"false\",has_more=\"0\"}");
+						it.remove();
+					}
+				}
+				return "^done,changelist=[" + changes + "]";
+			}
+			return "^done";
+		}
+
+		@Override
+		public void removeCommand(ICommandToken token) {}
+
+		@Override
+		public void addCommandListener(ICommandListener listener) {}
+
+		@Override
+		public void removeCommandListener(ICommandListener listener) {}
+
+		@Override
+		public void addEventListener(IEventListener listener) {}
+
+		@Override
+		public void removeEventListener(IEventListener listener) {}
+
+		@Override
+		public String getId() {
+			return fContext.getCommandControlId();
+		}
+
+		@Override
+		public ControlDMContext getContext() {
+			return fContext;
+		}
+
+		@Override
+		public boolean isActive() {
+			return true;
+		}
+
+		@Override
+		public DsfSession getSession() {
+			return fSession;
+		}
+
+		@Override
+		public DsfExecutor getExecutor() {
+			return fSession.getExecutor();
+		}
+
+		@Override
+		public Dictionary<?, ?> getProperties() {
+			return new Hashtable<String, Object>();
+		}
+
+		@Override
+		public String getServiceFilter() {
+			return null;
+		}
+
+		@Override
+		public void initialize(RequestMonitor requestMonitor) {
+			requestMonitor.done();
+		}
+
+		@Override
+		public void shutdown(RequestMonitor requestMonitor) {
+			requestMonitor.done();
+		}
+
+		@Override
+		public boolean isRegistered() {
+			return false;
+		}
+
+		@Override
+		public int getStartupNumber() {
+			return 0;
+		}
+
+		@Override
+		public CommandFactory getCommandFactory() {
+			return fFactory;
+		}
+	}
+
+	private DsfSession fSession;
+	private ScriptedCommandControl fControl;
+	private DsfServicesTracker fTracker;
+	private MIVariableManager fManager;
+
+	@Before
+	public void setUp() throws Exception {
+		fSession = DsfSession.startSession(new DefaultDsfExecutor(MIVariableManagerTest.class.getName()), GdbPlugin.PLUGIN_ID);
+		fControl = new ScriptedCommandControl(fSession);
+		fTracker = new DsfServicesTracker(GdbPlugin.getBundleContext(), fSession.getId()) {
+			@Override
+			public <V> V getService(Class<V> serviceClass, String filter) {
+				return serviceClass.isInstance(fControl) ? serviceClass.cast(fControl) : null;
+			}
+		};
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		runOnExecutor(new Runnable() {
+			@Override
+			public void run() {
+				fManager.dispose();
+				fTracker.dispose();
+			}
+		});
+		DsfSession.endSession(fSession);
+		fSession.getExecutor().shutdown();
+	}
+
+	private void createManager(final boolean batched) throws Exception {
+		runOnExecutor(new Runnable() {
+			@Override
+			public void run() {
+				fManager = new MIVariableManager(fSession, fTracker) {
+					@Override
+					protected boolean useBatchedVarUpdate() {
+						return batched;
+					}
+				};
+			}
+		});
+	}
+
+	private void runOnExecutor(final Runnable runnable) throws Exception {
+		fSession.getExecutor().submit(new DsfRunnable() {
+			@Override
+			public void run() {
+				runnable.run();
+			}
+		}).get(5, TimeUnit.SECONDS);
+	}
+
+	private Query<ExprMetaGetValueInfo> queueGetValue(String expression) {
+		final MIExpressionDMC exprCtx = new MIExpressionDMC(fSession.getId(), expression, expression, fControl.getContext());
+		Query<ExprMetaGetValueInfo> query = new Query<ExprMetaGetValueInfo>() {
+			@Override
+			protected void execute(DataRequestMonitor<ExprMetaGetValueInfo> rm) {
+				fManager.queueCommand(new ExprMetaGetValue(
+						new FormattedValueDMContext(fSession.getId(), exprCtx, IFormattedValues.NATURAL_FORMAT)), rm);
+			}
+		};
+		fSession.getExecutor().execute(query);
+		return query;
+	}
+
+	private String getValue(String expression) throws Exception {
+		return queueGetValue(expression).get(5, TimeUnit.SECONDS).getValue();
+	}
+
+	/**
+	 * Creates the variable objects of the given expressions and lets the target run and stop,
+	 * the command log then only holds the commands sent after the stop.
+	 */
+	private void createAndResume(String... expressions) throws Exception {
+		for (int i = 0; i < expressions.length; i++) {
+			fControl.fValues.put(expressions[i], Integer.toString(i));
+			assertEquals(Integer.toString(i), getValue(expressions[i]));
+		}
+		runOnExecutor(new Runnable() {
+			@Override
+			public void run() {
+				fManager.markAllOutOfDate();
+			}
+		});
+		fControl.fCommands.clear();
+	}
+
+	@Test
+	public void testOneUpdateForAllRoots() throws Exception {
+		createManager(true);
+		createAndResume("a", "b", "c");
+		fControl.fChanges.put("var1", "10");
+		fControl.fChanges.put("var3", "30");
+
+		assertEquals("10", getValue("a"));
+		assertEquals(Arrays.asList("-var-update 1 *"), fControl.fCommands);
+		// The changes of the other roots were processed with the same command
+		assertEquals("1", getValue("b"));
+		assertEquals("30", getValue("c"));
+		assertEquals(Arrays.asList("-var-update 1 *"), fControl.fCommands);
+	}
+
+	@Test
+	public void testRequestsDuringUpdateShareIt() throws Exception {
+		createManager(true);
+		createAndResume("a", "b");
+		fControl.fChanges.put("var1", "10");
+		fControl.fChanges.put("var2", "20");
+
+		Query<ExprMetaGetValueInfo> a = queueGetValue("a");
+		Query<ExprMetaGetValueInfo> b = queueGetValue("b");
+		assertEquals("10", a.get(5, TimeUnit.SECONDS).getValue());
+		assertEquals("20", b.get(5, TimeUnit.SECONDS).getValue());
+		assertEquals(Arrays.asList("-var-update 1 *"), fControl.fCommands);
+	}
+
+	@Test
+	public void testFailedUpdateFallsBackToEachRoot() throws Exception {
+		createManager(true);
+		createAndResume("a", "b");
+		fControl.fChanges.put("var1", "10");
+		fControl.fChanges.put("var2", "20");
+		fControl.fFailingUpdates.add("*");
+
+		// The requested root is still updated on its own
+		assertEquals("10", getValue("a"));
+		assertEquals(Arrays.asList("-var-update 1 *", "-var-update 1 var1"), fControl.fCommands);
+
+		// The other root stayed out-of-date, its change was not lost
+		fControl.fCommands.clear();
+		assertEquals("20", getValue("b"));
+		assertEquals(Arrays.asList("-var-update 1 *"), fControl.fCommands);
+	}
+
+	@Test
+	public void testFailedRootUpdateOnlyFailsThatRoot() throws Exception {
+		createManager(true);
+		createAndResume("a", "b");
+		fControl.fChanges.put("var2", "20");
+		fControl.fFailingUpdates.add("*");
+		fControl.fFailingUpdates.add("var1");
+
+		// The failed update leaves the cached value
+		assertEquals("0", getValue("a"));
+		assertEquals("20", getValue("b"));
+	}
+
+	@Test
+	public void testPerRootUpdates() throws Exception {
+		createManager(false);
+		createAndResume("a", "b");
+		fControl.fChanges.put("var1", "10");
+		fControl.fChanges.put("var2", "20");
+
+		assertEquals("10", getValue("a"));
+		assertEquals("20", getValue("b"));
+		assertEquals(Arrays.asList("-var-update 1 var1", "-var-update 1 var2"), fControl.fCommands);
+	}
+}
@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.dsf.mi.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.cdt.core.IAddress;
+import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
+import org.eclipse.cdt.dsf.concurrent.ImmediateExecutor;
+import org.eclipse.cdt.dsf.datamodel.IDMContext;
+import org.eclipse.cdt.utils.Addr64;
+import org.eclipse.debug.core.model.MemoryByte;
+import org.junit.Test;
+
+/**
+ * Tests the memory cache of the MI memory service against a scripted back-end, that
+ * behaves like -data-read-memory-bytes.
+ */
+public class MemoryPageCacheTest {
+	private static final int PAGE = MemoryPageCache.PAGE_SIZE;
+
+	private static class ScriptedCache extends MemoryPageCache {
+		final List<String> fReads = new ArrayList<String>();
+		long fUnreadableStart = -1;
+		long fUnreadableEnd = -1;
+		byte fDelta;
+
+		ScriptedCache(int maxPages) {
+			super(ImmediateExecutor.getInstance(), maxPages);
+		}
+
+		@Override
+		protected void readBlock(IDMContext dmc, IAddress address, int count, DataRequestMonitor<MemoryByte[]> drm) {
+			final long start = address.getValue().longValue();
+			fReads.add(start + ":" + count);
+			MemoryByte[] block = new MemoryByte[count];
+			// A read that touches unreadable memory fails entirely
+			boolean fails = start < fUnreadableEnd && start + count > fUnreadableStart;
+			for (int i = 0; i < count; i++) {
+				block[i] = fails ? new MemoryByte((byte) 0, (byte) 0) : new MemoryByte(valueAt(start + i));
+			}
+			drm.setData(block);
+			drm.done();
+		}
+
+		byte valueAt(long address) {
+			return (byte) (address * 7 + fDelta);
+		}
+
+		MemoryByte[] read(long address, int count) {
+			final MemoryByte[][] result = new MemoryByte[1][];
+			getMemory(null, new Addr64(Long.toString(address)), count,
+					new DataRequestMonitor<MemoryByte[]>(ImmediateExecutor.getInstance(), null) {
+						@Override
+						protected void handleSuccess() {
+							result[0] = getData();
+						}
+					});
+			assertEquals(count, result[0].length);
+			return result[0];
+		}
+
+		void check(long address, int count) {
+			MemoryByte[] bytes = read(address, count);
+			for (int i = 0; i < count; i++) {
+				assertTrue(bytes[i].isReadable());
+				assertEquals(valueAt(address + i), bytes[i].getValue());
+			}
+		}
+	}
+
+	@Test
+	public void testSequentialAccessReadsAhead() {
+		ScriptedCache cache = new ScriptedCache(MemoryPageCache.DEFAULT_MAX_PAGES);
+		final int chunk = 256;
+		final int total = 256 * 1024;
+		for (int address = 0x10000 + 100; address < 0x10000 + total; address += chunk) {
+			cache.check(address, chunk);
+		}
+		final int requests = total / chunk;
+		assertEquals(requests, cache.getRequestCount());
+		// One read per page without read-ahead, read-ahead grows up to 16 pages per read
+		assertTrue(cache.fReads.toString(), cache.getReadCount() < total / PAGE / 8);
+		assertEquals(requests - cache.getReadCount(), cache.getHitCount());
+
+		// Scrolling back is served from the cache
+		int reads = cache.getReadCount();
+		for (int address = 0x10000 + total - chunk; address >= 0x10000 + total - 64 * PAGE; address -= chunk) {
+			cache.check(address, chunk);
+		}
+		assertEquals(reads, cache.getReadCount());
+	}
+
+	@Test
+	public void testBackwardAccessReadsAhead() {
+		ScriptedCache cache = new ScriptedCache(MemoryPageCache.DEFAULT_MAX_PAGES);
+		for (int address = 0x100000; address > 0x100000 - 64 * PAGE; address -= 128) {
+			cache.check(address, 128);
+		}
+		assertTrue(cache.fReads.toString(), cache.getReadCount() < 16);
+	}
+
+	@Test
+	public void testRandomAccessDoesNotReadAhead() {
+		ScriptedCache cache = new ScriptedCache(MemoryPageCache.DEFAULT_MAX_PAGES);
+		cache.check(10 * PAGE + 10, 20);
+		cache.check(50 * PAGE + 10, 20);
+		cache.check(30 * PAGE + 10, PAGE);
+		assertEquals("[" + 10 * PAGE + ":" + PAGE + ", " + 50 * PAGE + ":" + PAGE + ", " + 30 * PAGE + ":" + 2 * PAGE + "]",
+				cache.fReads.toString());
+		cache.check(30 * PAGE + 500, 1000);
+		assertEquals(3, cache.getReadCount());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedPagesAreEvicted() {
+		ScriptedCache cache = new ScriptedCache(4);
+		cache.check(0, 4 * PAGE);
+		cache.check(0, 1);
+		cache.check(10 * PAGE, 3 * PAGE);
+		assertEquals(2, cache.getReadCount());
+		// Page 0 has been used recently
+		cache.check(0, 1);
+		assertEquals(2, cache.getReadCount());
+		cache.check(PAGE, 1);
+		assertEquals(3, cache.getReadCount());
+	}
+
+	@Test
+	public void testUpdateAndReset() {
+		ScriptedCache cache = new ScriptedCache(MemoryPageCache.DEFAULT_MAX_PAGES);
+		cache.check(PAGE, PAGE);
+		assertTrue(cache.isCached(new Addr64(Long.toString(PAGE - 10)), 11));
+		assertFalse(cache.isCached(new Addr64(Long.toString(PAGE - 10)), 10));
+
+		// A write that partially overlaps the cached page
+		cache.fDelta = 1;
+		MemoryByte[] written = new MemoryByte[20];
+		for (int i = 0; i < written.length; i++) {
+			written[i] = new MemoryByte(cache.valueAt(PAGE - 10 + i));
+		}
+		assertTrue(cache.update(new Addr64(Long.toString(PAGE - 10)), written));
+		assertFalse(cache.update(new Addr64(Long.toString(PAGE - 10)), written));
+		MemoryByte[] bytes = cache.read(PAGE, 20);
+		assertEquals(1, cache.getReadCount());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(cache.valueAt(PAGE + i), bytes[i].getValue());
+		}
+		assertEquals((byte) (cache.valueAt(PAGE + 10) - 1), bytes[10].getValue());
+
+		cache.reset();
+		cache.check(PAGE, 20);
+		assertEquals(2, cache.getReadCount());
+	}
+
+	@Test
+	public void testUnreadableMemoryNextToRequest() {
+		ScriptedCache cache = new ScriptedCache(MemoryPageCache.DEFAULT_MAX_PAGES);
+		cache.fUnreadableStart = 3 * PAGE + 100;
+		cache.fUnreadableEnd = 4 * PAGE;
+		// The page is partially readable, the requested part must be read exactly
+		cache.check(3 * PAGE, 100);
+		assertEquals("[" + 3 * PAGE + ":" + PAGE + ", " + 3 * PAGE + ":100]", cache.fReads.toString());
+
+		// Read-ahead into unreadable memory must not spoil readable memory
+		cache.fReads.clear();
+		cache.check(PAGE, PAGE);
+		cache.check(2 * PAGE, PAGE);
+		cache.check(2 * PAGE + 500, PAGE - 500);
+		cache.check(3 * PAGE + 50, 50);
+		assertFalse(cache.read(3 * PAGE + 100, 1)[0].isReadable());
+		assertFalse(cache.isCached(new Addr64(Long.toString(3 * PAGE)), PAGE));
+	}
+
+	@Test
+	public void testNoReadAheadIntoUnreadableMemory() {
+		ScriptedCache cache = new ScriptedCache(MemoryPageCache.DEFAULT_MAX_PAGES);
+		cache.fUnreadableStart = 8 * PAGE;
+		cache.fUnreadableEnd = 64 * PAGE;
+		for (int address = PAGE; address < 8 * PAGE; address += 256) {
+			cache.check(address, 256);
+		}
+		// Only the first read ahead into the unreadable memory fails
+		int failedReads = 0;
+		for (String read : cache.fReads) {
+			String[] parts = read.split(":");
+			long start = Long.parseLong(parts[0]);
+			long end = start + Integer.parseInt(parts[1]);
+			if (start < cache.fUnreadableEnd && end > cache.fUnreadableStart)
+				failedReads++;
+		}
+		assertEquals(cache.fReads.toString(), 1, failedReads);
+
+		// Reading ahead resumes after a reset
+		cache.reset();
+		cache.fUnreadableStart = cache.fUnreadableEnd = -1;
+		cache.fReads.clear();
+		cache.check(4 * PAGE, 256);
+		cache.check(5 * PAGE, 256);
+		assertEquals("[" + 4 * PAGE + ":" + PAGE + ", " + 5 * PAGE + ":" + 2 * PAGE + "]", cache.fReads.toString());
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2012 Ericsson and others.
+ * Copyright (c) 2008, 2013 Ericsson and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,8 @@
  *******************************************************************************/
 package org.eclipse.cdt.dsf.mi.service.command.commands;
 
+import org.eclipse.cdt.dsf.mi.service.MIVariableManagerTest;
+import org.eclipse.cdt.dsf.mi.service.MemoryPageCacheTest;
 import org.eclipse.cdt.dsf.mi.service.command.output.MIStringHandlerTests;
 import org.eclipse.cdt.dsf.mi.service.command.output.MIThreadTests;
 import org.eclipse.cdt.tests.dsf.gdb.framework.OnceOnlySuite;
@@ -32,7 +34,9 @@ import org.junit.runners.Suite;
         MIThreadTests.class,
         LaunchUtilsTest.class,
         MIStringHandlerTests.class,
-        ProcStatParserTest.class
+        ProcStatParserTest.class,
+        MemoryPageCacheTest.class,
+        MIVariableManagerTest.class
         /* Add your test class here */
         })
 public class Suite_Sessionless_Tests {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 Wind River Systems and others.
+ * Copyright (c) 2007, 2013 Wind River Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -84,7 +84,25 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
          Platform.getDebugOption("org.eclipse.cdt.dsf.ui/debug/vm/cache")); //$NON-NLS-1$
     }   
 
-    private static final int MAX_CACHE_SIZE = 1000;
+    /**
+     * Name of the system property which can be used to override the default
+     * size budget of the cache, in bytes.
+     */
+    private static final String PROP_CACHE_BUDGET = "org.eclipse.cdt.dsf.ui.viewmodel.cacheBudget"; //$NON-NLS-1$
+
+    private static final int DEFAULT_CACHE_BUDGET = Integer.getInteger(PROP_CACHE_BUDGET, 1024 * 1024).intValue();
+
+    /**
+     * Constants used to estimate the memory used by a cache entry.  The 
+     * estimates are rough, they only need to be good enough to keep views 
+     * with many large elements from using up much more memory than views 
+     * with small elements.
+     */
+    private static final int ENTRY_SIZE_ESTIMATE = 96;
+    private static final int CHILD_SIZE_ESTIMATE = 4;
+    private static final int PROPERTY_SIZE_ESTIMATE = 40;
+
+    private static final Object[] EMPTY_CHILDREN = new Object[0];
 
 	/**
      * Class representing a key to an element's data in the cache.  The main
@@ -137,7 +155,9 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
     /**
      * A base class for the entry in the cache.  Since the cache maintains
      * a double-linked list through all the entries, the linked list references
-     * are maintained in this class.
+     * are maintained in this class.  Element data entries and flush markers
+     * are in addition linked into a list of entries with the same root element
+     * (see {@link RootElementEntries}).
      */
     private static class Entry {
         final Object fKey;
@@ -145,6 +165,14 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
         Entry fNext;
         Entry fPrevious;
 
+        Entry fRootNext;
+        Entry fRootPrevious;
+        
+        /**
+         * Estimated size of this entry, as accounted for in the cache size.
+         */
+        int fSize = ENTRY_SIZE_ESTIMATE;
+
         Entry(Object key) {
             fKey = key;
         }
@@ -170,6 +198,47 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
             fPrevious.fNext = this;
             fNext.fPrevious = this;
         }
+
+        void insertInRoot(Entry nextEntry) {
+            fRootNext  = nextEntry;
+            fRootPrevious = nextEntry.fRootPrevious;
+            fRootPrevious.fRootNext = this;
+            fRootNext.fRootPrevious = this;
+        }
+
+        void removeFromRoot() {
+            fRootPrevious.fRootNext = fRootNext;
+            fRootNext.fRootPrevious = fRootPrevious;
+        }
+
+        void reinsertInRoot(Entry nextEntry) {
+            removeFromRoot();
+            insertInRoot(nextEntry);
+        }
+    }
+    
+    /**
+     * Head of the list of element data entries and flush markers which share
+     * a root element.  Flushing the cache for a root element only needs to 
+     * walk this list rather than all the entries in the cache.
+     */
+    private static class RootElementEntries extends Entry {
+        /**
+         * Number of element data entries in the list.  When it drops to zero,
+         * the list is discarded together with its flush markers.
+         */
+        int fElementCount = 0;
+        
+        RootElementEntries(Object rootElement) {
+            super(rootElement);
+            fRootNext = this;
+            fRootPrevious = this;
+        }
+        
+        @Override
+        public String toString() {
+            return "ROOT ENTRIES " + fKey;  //$NON-NLS-1$
+        }
     }
     
     /**
@@ -211,9 +280,16 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
         boolean fAllChildrenKnown = false;
         
         /**
-         * Map containing children of this element, keyed by child index.
+         * Array containing children of this element, indexed by child 
+         * position.  Children which are not known are <code>null</code>.
          */
-        Map<Integer,Object> fChildren = null;
+        Object[] fChildren = null;
+        
+        /**
+         * Number of used positions in the children array, i.e. one more than 
+         * the highest index of a known child.
+         */
+        int fChildrenLength = 0;
         
         /**
          * Map containing element properties.
@@ -230,27 +306,66 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
         Map<String, Object> fArchiveProperties = null;
 
 		/**
-		 * Ensure this cache entry has a map in which to hold the children
-		 * elements. If it doesn't, create one and give it an initial capacity
-		 * of 30% more than the number of children we know the parent currently
-		 * has (give it some room to grow). If we don't know the child count,
-		 * give the map some nominal initial capacity.
+		 * Ensure this cache entry has an array in which to hold the children
+		 * elements. If it doesn't, create one big enough for the number of 
+		 * children we know the parent currently has, up to some nominal 
+		 * capacity. The array is grown as children are added, so that large 
+		 * elements of which only a few children are shown do not use up the 
+		 * cache.
 		 */
-        void ensureChildrenMap() {
+        void ensureChildrenArray() {
             if (fChildren == null) {
                 Integer childrenCount = fChildrenCount;
-                childrenCount = childrenCount != null ? childrenCount : 0;
-                int capacity = Math.max((childrenCount.intValue() * 4)/3, 32);
-                fChildren = new HashMap<Integer,Object>(capacity);
+                int capacity = childrenCount != null ? Math.min(childrenCount.intValue(), 64) : 32;
+                fChildren = capacity > 0 ? new Object[capacity] : EMPTY_CHILDREN;
+                fChildrenLength = 0;
+            }
+        }
+        
+        void setChild(int position, Object child) {
+            if (position >= fChildren.length) {
+                Object[] children = new Object[Math.max(position + 1, fChildren.length * 3/2 + 8)];
+                System.arraycopy(fChildren, 0, children, 0, fChildrenLength);
+                fChildren = children;
+            }
+            fChildren[position] = child;
+            if (position >= fChildrenLength) {
+                fChildrenLength = position + 1;
             }
         }
         
+        Object getChild(int position) {
+            return position < fChildrenLength ? fChildren[position] : null; 
+        }
+        
+        void clearChildren() {
+            fChildren = null;
+            fChildrenLength = 0;
+        }
+        
+        /**
+         * Returns the estimated memory used by this entry.
+         */
+        int estimateSize() {
+            int size = ENTRY_SIZE_ESTIMATE;
+            if (fChildren != null) {
+                size += fChildren.length * CHILD_SIZE_ESTIMATE;
+            }
+            if (fProperties != null) {
+                size += fProperties.size() * PROPERTY_SIZE_ESTIMATE;
+            }
+            if (fArchiveProperties != null) {
+                size += fArchiveProperties.size() * PROPERTY_SIZE_ESTIMATE;
+            }
+            return size;
+        }
+        
         @Override
         public String toString() {
             return fKey.toString() + " = " + //$NON-NLS-1$ 
                 "[hasChildren=" + fHasChildren + ", " +//$NON-NLS-1$ //$NON-NLS-2$
                 "childrenCount=" + fChildrenCount + //$NON-NLS-1$
-                ", children=" + fChildren + //$NON-NLS-1$ 
+                ", children=" + getChildren() + //$NON-NLS-1$ 
                 ", properties=" + fProperties + //$NON-NLS-1$ 
                 ", oldProperties=" + fArchiveProperties + "]"; //$NON-NLS-1$ //$NON-NLS-2$ 
         }
@@ -267,8 +382,23 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
 		public Boolean getHasChildren() { return fHasChildren; }
         @Override
 		public Integer getChildCount() { return fChildrenCount; }
+        /**
+         * Returns a copy of the cached children, the cache itself stores them 
+         * in an array.
+         */
         @Override
-		public Map<Integer, Object> getChildren() { return fChildren; }
+		public Map<Integer, Object> getChildren() {
+            if (fChildren == null) {
+                return null;
+            }
+            Map<Integer, Object> children = new HashMap<Integer, Object>(fChildrenLength * 4/3 + 1);
+            for (int i = 0; i < fChildrenLength; i++) {
+                if (fChildren[i] != null) {
+                    children.put(i, fChildren[i]);
+                }
+            }
+            return children;
+        }
         @Override
 		public Map<String, Object> getProperties() { return fProperties; }
         @Override
@@ -375,9 +505,8 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
      * combination of this hash map and a double-linked list running through all 
      * the entries in the cache.  The linked list is used to organize the cache entries
      * in least recently used (LRU) order.  This ordering is then used to delete least 
-     * recently used entries in the cache and keep the cache from growing indefinitely.
-     * Also, the ordering is used to optimize the flushing of the cache data (see 
-     * {@link FlushMarkerKey} for more details).
+     * recently used entries in the cache and keep the cache from growing beyond 
+     * its budget (see {@link #getCacheBudget()}).
      */
     private final Map<Object, Entry> fCacheData = Collections.synchronizedMap(new HashMap<Object, Entry>(200, 0.75f));
     
@@ -386,6 +515,22 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
      */
     private final Entry fCacheListHead;
 
+    /**
+     * Lists of the element data entries for each root element.  The entries
+     * in each list are also kept in LRU order, and the lists contain the flush
+     * markers used to optimize the flushing of the cache data (see 
+     * {@link FlushMarkerKey} for more details).
+     */
+    private final Map<Object, RootElementEntries> fRootElementEntries = new HashMap<Object, RootElementEntries>();
+    
+    /**
+     * Sum of the estimated sizes of the entries in the cache.
+     */
+    private volatile int fCacheSize = 0;
+    
+    private volatile long fCacheHits = 0;
+    private volatile long fCacheMisses = 0;
+
 
     public AbstractCachingVMProvider(AbstractVMAdapter adapter, IPresentationContext presentationContext) {
         super(adapter, presentationContext);
@@ -405,6 +550,51 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
     protected IVMUpdatePolicy[] createUpdateModes() {
         return new IVMUpdatePolicy[] { new AutomaticUpdatePolicy() };
     }
+
+    /**
+     * Returns the maximum estimated size of the data in this provider's 
+     * cache, in bytes.  When the cache grows beyond this size, the least 
+     * recently used entries are removed.  The default budget can be set 
+     * with the <code>org.eclipse.cdt.dsf.ui.viewmodel.cacheBudget</code> 
+     * system property, sub-classes may override this method to use a 
+     * different budget for a given view.
+     * 
+     * @since 2.4
+     */
+    protected int getCacheBudget() {
+        return DEFAULT_CACHE_BUDGET;
+    }
+
+    /**
+     * Returns the number of viewer updates that were completed using the
+     * data in the cache, since this provider was created.
+     * 
+     * @since 2.4
+     */
+    public long getCacheHitCount() {
+        return fCacheHits;
+    }
+
+    /**
+     * Returns the number of viewer updates that had to be forwarded to
+     * the VM nodes, at least in part, since this provider was created.
+     * 
+     * @since 2.4
+     */
+    public long getCacheMissCount() {
+        return fCacheMisses;
+    }
+
+    /**
+     * Returns the estimated size of the data currently held in the cache,
+     * in bytes.
+     * 
+     * @see #getCacheBudget()
+     * @since 2.4
+     */
+    public int getCacheSize() {
+        return fCacheSize;
+    }
        
     @Override
 	public IVMUpdatePolicy[] getAvailableUpdatePolicies() {
@@ -472,6 +662,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
             // Check if the cache entry has this request result cached. 
             if (entry.fHasChildren != null) {
                 // Cache Hit!  Just return the value.
+                fCacheHits++;
                 if (DEBUG_CACHE && (DEBUG_PRESENTATION_ID == null || getPresentationContext().getId().equals(DEBUG_PRESENTATION_ID))) {
                     DsfUIPlugin.debug("cacheHitHasChildren(node = " + node + ", update = " + update + ", " + entry.fHasChildren + ")"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
                 }
@@ -479,6 +670,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                 update.done();
             } else {
                 // Cache miss!  Save the flush counter of the entry and create a proxy update.
+                fCacheMisses++;
                 final int flushCounter = entry.fFlushCounter;
                 missUpdates.add( 
                     new VMHasChildrenUpdate(
@@ -521,6 +713,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
         // Check if the cache entry has this request result cached. 
         if(entry.fChildrenCount != null) {
             // Cache Hit!  Just return the value.
+            fCacheHits++;
             if (DEBUG_CACHE && (DEBUG_PRESENTATION_ID == null || getPresentationContext().getId().equals(DEBUG_PRESENTATION_ID))) {
                 DsfUIPlugin.debug("cacheHitChildrenCount(node = " + node + ", update = " + update + ", " + entry.fChildrenCount + ")"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
             }
@@ -528,6 +721,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
             update.done();
         } else {
             // Cache miss!  Save the flush counter of the entry and create a proxy update.
+            fCacheMisses++;
             final int flushCounter = entry.fFlushCounter;
             IChildrenCountUpdate updateProxy = new VMChildrenCountUpdate(
                 update, 
@@ -566,6 +760,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
             // Need to retrieve all the children if there is no children information yet.
             // Or if the client requested all children (offset = -1, length -1) and all 
             // the children are not yet known.
+            fCacheMisses++;
             IChildrenUpdate updateProxy = new VMChildrenUpdate(
                 update, update.getOffset(), update.getLength(),
                 new ViewerDataRequestMonitor<List<Object>>(getExecutor(), update){
@@ -586,20 +781,23 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                         }
 
                         if (flushCounter == entry.fFlushCounter) {
-                            entry.ensureChildrenMap();
+                            entry.ensureChildrenArray();
                         }
                         
-                        // Set the children to map and update.
+                        // Set the children to the cache entry and update.
                         for(int j = 0; j < getData().size(); j++) {
                             int offset = updateOffset + j;
                             Object child = getData().get(j);
                             if (child != null) {
                                 if (flushCounter == entry.fFlushCounter) {
-                                    entry.fChildren.put(offset, child);
+                                    entry.setChild(offset, child);
                                 }
                                 update.setChild(child, offset);
                             }
                         }
+                        if (flushCounter == entry.fFlushCounter) {
+                            entryChanged(entry);
+                        }
                         update.done();
                     }
                     
@@ -617,15 +815,19 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
             // the children array is complete.
 
             if (DEBUG_CACHE && (DEBUG_PRESENTATION_ID == null || getPresentationContext().getId().equals(DEBUG_PRESENTATION_ID))) {
-                DsfUIPlugin.debug("cacheHitChildren(node = " + node + ", update = " + update + ", children = " + entry.fChildren.keySet() + ")"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ 
+                DsfUIPlugin.debug("cacheHitChildren(node = " + node + ", update = " + update + ", children = " + entry.getChildren().keySet() + ")"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ 
             }
 
             // The following assert should never fail given the first if statement. 
             assert entry.fAllChildrenKnown;
             
             // we have all of the children in cache; return from cache
-            for(int position = 0; position < entry.fChildren.size(); position++) {
-                update.setChild(entry.fChildren.get(position), position);
+            fCacheHits++;
+            for(int position = 0; position < entry.fChildrenLength; position++) {
+                Object child = entry.fChildren[position];
+                if (child != null) {
+                    update.setChild(child, position);
+                }
             }
             update.done();
         } else {
@@ -639,9 +841,9 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
 
             // Write known children from cache into the update.
             for(Integer position = update.getOffset(); position < update.getOffset() + update.getLength(); position++) {
-                Object child = entry.fChildren.get(position);
+                Object child = entry.getChild(position);
                 if (child != null) {
-                    update.setChild(entry.fChildren.get(position), position);
+                    update.setChild(child, position);
                     childrenMissingFromCache.remove(position);
                 }
             }
@@ -660,6 +862,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
             	
                 // Some children were not found in the cache, create separate 
                 // proxy updates for the continuous ranges of missing children.
+                fCacheMisses++;
                 List<IChildrenUpdate> partialUpdates = new ArrayList<IChildrenUpdate>(2);
                 final CountingRequestMonitor multiRm = new ViewerCountingRequestMonitor(getExecutor(), update);
                 while(childrenMissingFromCache.size() > 0)
@@ -683,7 +886,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                                     if (DEBUG_CACHE && (DEBUG_PRESENTATION_ID == null || getPresentationContext().getId().equals(DEBUG_PRESENTATION_ID))) {
                                         DsfUIPlugin.debug("cachePartialSaveChildren(node = " + node + ", update = " + update + ", saved = {" + offset + "->" + (offset + getData().size()) + "})"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ 
                                     }
-                                    entry.ensureChildrenMap();
+                                    entry.ensureChildrenArray();
                                 }
                                 
                                 for (int i = 0; i < getData().size(); i++) {
@@ -691,10 +894,13 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                                         update.setChild(getData().get(i), offset + i);
                                         if (flushCounter == entry.fFlushCounter) {
                                             // Only save the children to the cahce if the entry wasn't flushed.
-                                            entry.fChildren.put(offset + i, getData().get(i));
+                                            entry.setChild(offset + i, getData().get(i));
                                         }
                                     }
                                 }
+                                if (flushCounter == entry.fFlushCounter) {
+                                    entryChanged(entry);
+                                }
                                 multiRm.done();
                             }
                         }));
@@ -706,6 +912,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                 multiRm.setDoneCount(partialUpdates.size());
             } else {
                 // All children were found in cache.  Complete the update.
+                fCacheHits++;
                 update.done();
             }
         }
@@ -723,11 +930,18 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
         if (DEBUG_CACHE && (DEBUG_PRESENTATION_ID == null || getPresentationContext().getId().equals(DEBUG_PRESENTATION_ID))) {
             DsfUIPlugin.debug("cacheFlushing(" + flushKey + ")"); //$NON-NLS-1$ //$NON-NLS-2$  
         }
+        // Only the entries with the root element of the flush can be affected by it.
+        // If there are none, there is nothing to flush and no need for a marker.
+        RootElementEntries rootEntries = fRootElementEntries.get(flushKey.fRootElement);
+        if (rootEntries == null) {
+            return;
+        }
+        
         // For each entry that has the given context as a parent, perform the flush.
-        // Iterate through the cache entries backwards.  This means that we will be
-        // iterating in order of most-recently-used to least-recently-used.
-        Entry entry = fCacheListHead.fPrevious;
-        while (entry != fCacheListHead) {
+        // Iterate through the entries of the root element backwards.  This means that 
+        // we will be iterating in order of most-recently-used to least-recently-used.
+        Entry entry = rootEntries.fRootPrevious;
+        while (entry != rootEntries) {
             if (entry.fKey instanceof FlushMarkerKey) {
                 FlushMarkerKey entryFlushKey = (FlushMarkerKey)entry.fKey;
                 // If the context currently being flushed includes the flush
@@ -736,8 +950,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                 // Use special handling for null contexts, which we treat like it's an
                 // ancestor of all other contexts.
                 if (flushKey.includes(entryFlushKey)) {
-                    fCacheData.remove(entryFlushKey);
-                    entry.remove();
+                    entry.removeFromRoot();
                 }
                 
                 // If the flush context in current entry includes the current context
@@ -765,8 +978,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                         // There is no archived data, which means that this entry is empty, so remove it from cache 
                         // completely.
                         if (elementDataEntry.fArchiveProperties == null) {
-                            fCacheData.remove(entry.fKey);
-                            entry.remove();
+                            removeEntry(entry);
                         }                        
                     } else {
                         // We are not changing the archived data.  If archive data exists in the entry, leave it.
@@ -774,22 +986,24 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                         if (elementDataEntry.fArchiveProperties != null) {
                             elementDataEntry.fProperties = null;
                         } else {
-                            fCacheData.remove(entry.fKey);
-                            entry.remove();
+                            removeEntry(entry);
                         }
                     }
                     elementDataEntry.fFlushCounter++;                    
                     elementDataEntry.fHasChildren = null;
                     elementDataEntry.fChildrenCount = null;
-                    elementDataEntry.fChildren = null;
+                    elementDataEntry.clearChildren();
                     elementDataEntry.fAllChildrenKnown = false;
                     elementDataEntry.fDirty = false;
+                    updateEntrySize(elementDataEntry);
                 } else if ((updateFlags & IVMUpdatePolicy.FLUSH_ALL_PROPERTIES) != 0) {
                 	elementDataEntry.fProperties = null;
+                    updateEntrySize(elementDataEntry);
                 } else if ((updateFlags & IVMUpdatePolicy.FLUSH_PARTIAL_PROPERTIES) != 0) {
                     Collection<String> propertiesToFlush = flushKey.getPropertiesToFlush(elementDataKey, elementDataEntry.fDirty);
                     if (propertiesToFlush != null && elementDataEntry.fProperties != null) {
                         elementDataEntry.fProperties.keySet().removeAll(propertiesToFlush);
+                        updateEntrySize(elementDataEntry);
                     }
                 } else if ((updateFlags & IVMUpdatePolicy.DIRTY) != 0) {
                     elementDataEntry.fDirty = true;
@@ -798,13 +1012,14 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                     }
                 }
             }
-            entry = entry.fPrevious;
+            entry = entry.fRootPrevious;
         }
         
-        // Insert a marker for this flush operation.
-        Entry flushMarkerEntry = new Entry(flushKey);
-        fCacheData.put(flushKey, flushMarkerEntry);
-        flushMarkerEntry.insert(fCacheListHead);
+        // Insert a marker for this flush operation, unless the flush removed 
+        // all the entries for the root element.
+        if (fRootElementEntries.get(flushKey.fRootElement) == rootEntries) {
+            new Entry(flushKey).insertInRoot(rootEntries);
+        }
     }
 
     /**
@@ -1017,8 +1232,9 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
         assert key != null;
         ElementDataEntry entry = (ElementDataEntry)fCacheData.get(key);
         if (entry != null) {
-            // Entry exists, move it to the end of the list.
+            // Entry exists, move it to the end of the lists.
             entry.reinsert(fCacheListHead);
+            entry.reinsertInRoot(fRootElementEntries.get(key.fRootElement));
         } else if (create) {
             // Create a new entry and add it to the end of the list.
             entry = new ElementDataEntry(key);
@@ -1056,10 +1272,8 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
             if (rootElementChildren != null) {
                 entry.fHasChildren = rootElementChildren.length > 0;
                 entry.fChildrenCount = rootElementChildren.length;
-                entry.fChildren = new HashMap<Integer, Object>(entry.fChildrenCount * 4/3);
-                for (int i = 0; i < rootElementChildren.length; i++) {
-                    entry.fChildren.put(i, rootElementChildren[i]);
-                }
+                entry.fChildren = rootElementChildren.clone();
+                entry.fChildrenLength = rootElementChildren.length;
                 entry.fAllChildrenKnown = true;
                 entry.fDirty = true;
             }
@@ -1072,6 +1286,9 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                 entry.fProperties.put(PROP_CACHE_ENTRY_DIRTY, true);
                 entry.fDirty = true;
             }
+            if (entry != null) {
+                entryChanged(entry);
+            }
         }
     }
     
@@ -1081,10 +1298,70 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
     private void addEntry(Object key, Entry entry) {
         fCacheData.put(key, entry);
         entry.insert(fCacheListHead);
-        // If we are at capacity in the cache, remove the entry from head.
-        if (fCacheData.size() > MAX_CACHE_SIZE) {
-            fCacheData.remove(fCacheListHead.fNext.fKey);
-            fCacheListHead.fNext.remove();
+        if (entry instanceof ElementDataEntry) {
+            Object rootElement = ((ElementDataKey)key).fRootElement;
+            RootElementEntries rootEntries = fRootElementEntries.get(rootElement);
+            if (rootEntries == null) {
+                rootEntries = new RootElementEntries(rootElement);
+                fRootElementEntries.put(rootElement, rootEntries);
+            }
+            entry.insertInRoot(rootEntries);
+            rootEntries.fElementCount++;
+        }
+        fCacheSize += entry.fSize;
+        trimCache();
+    }
+
+    /**
+     * Removes the given entry from the cache map and from the lists 
+     * maintained through the entries.
+     */
+    private void removeEntry(Entry entry) {
+        fCacheData.remove(entry.fKey);
+        entry.remove();
+        if (entry instanceof ElementDataEntry) {
+            entry.removeFromRoot();
+            Object rootElement = ((ElementDataKey)entry.fKey).fRootElement;
+            RootElementEntries rootEntries = fRootElementEntries.get(rootElement);
+            if (--rootEntries.fElementCount == 0) {
+                fRootElementEntries.remove(rootElement);
+            }
+        }
+        fCacheSize -= entry.fSize;
+    }
+
+    /**
+     * Re-calculates the size of the given entry after its data changed.
+     * Entries which were already removed from the cache are ignored.
+     */
+    private void updateEntrySize(ElementDataEntry entry) {
+        if (fCacheData.get(entry.fKey) == entry) {
+            int size = entry.estimateSize();
+            fCacheSize += size - entry.fSize;
+            entry.fSize = size;
+        }
+    }
+
+    /**
+     * Called after data was stored in the given entry, to keep the cache 
+     * within its budget.
+     */
+    private void entryChanged(ElementDataEntry entry) {
+        updateEntrySize(entry);
+        trimCache();
+    }
+
+    /**
+     * If the cache is over its budget, removes the least recently used 
+     * entries.  The most recently used entry is always kept.
+     */
+    private void trimCache() {
+        int budget = getCacheBudget();
+        while (fCacheSize > budget && fCacheListHead.fNext != fCacheListHead.fPrevious) {
+            if (DEBUG_CACHE && (DEBUG_PRESENTATION_ID == null || getPresentationContext().getId().equals(DEBUG_PRESENTATION_ID))) {
+                DsfUIPlugin.debug("cacheEvicted(" + fCacheListHead.fNext + ")"); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+            removeEntry(fCacheListHead.fNext);
         }
     }
     
@@ -1171,6 +1448,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
             // found in the map.
             if (entry.fProperties != null && entry.fProperties.keySet().containsAll(update.getProperties())) {
                 // Cache Hit!  Just return the value.
+                fCacheHits++;
                 if (DEBUG_CACHE && (DEBUG_PRESENTATION_ID == null || getPresentationContext().getId().equals(DEBUG_PRESENTATION_ID))) {
                     DsfUIPlugin.debug("cacheHitProperties(node = " + node + ", update = " + update + ", " + entry.fProperties + ")"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
                 }
@@ -1182,6 +1460,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                 update.done();
             } else {
                 // Cache miss!  Check if already cached properties can be re-used. 
+                fCacheMisses++;
                 Set<String> missingProperties = null;
                 if (entry.fProperties != null) {
                     missingProperties = new HashSet<String>(update.getProperties().size() * 4/3);
@@ -1263,6 +1542,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                                 cachedStatus = PropertiesUpdateStatus.mergePropertiesStatus(
                                     cachedStatus, missUpdateStatus, _missingProperties);
                                 cachedProperties.put(PROP_UPDATE_STATUS, cachedStatus);
+                                entryChanged(entry);
                             } else {
                                 // We are not caching the result of this update, but we should still return valid data 
                                 // to the client.  In case the update was canceled we can also return valid data to the 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2011 Wind River Systems and others.
+ * Copyright (c) 2006, 2013 Wind River Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,6 +17,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -33,6 +34,12 @@ import org.eclipse.core.runtime.Status;
 /**
  * Default implementation of a DSF executor interfaces, based on the 
  * standard java.util.concurrent.ThreadPoolExecutor.
+ * <p>
+ * The executor keeps statistics of how long runnables wait in its queue
+ * and how long they take to execute.  Components that do not share state
+ * with each other can use separate executors, and the statistics can be
+ * used to find out which of them is congested.
+ * </p>
  * 
  * @since 1.0
  */
@@ -50,6 +57,18 @@ public class DefaultDsfExecutor extends ScheduledThreadPoolExecutor
      */
     private String fName;
     
+    /** 
+     * Statistics about the executed runnables.  They are written only in the 
+     * executor thread, but can be read in any thread.  Times are in nanoseconds.
+     */
+    private volatile long fExecutedCount = 0;
+    private volatile long fTotalQueueLatency = 0;
+    private volatile long fMaxQueueLatency = 0;
+    private volatile long fTotalExecutionTime = 0;
+    
+    /** Start time of the runnable currently executing, only used in the executor thread */
+    private long fExecutionStartTime;
+    
     /** Thread factory that creates the single thread to be used for this executor */
     static class DsfThreadFactory implements ThreadFactory {
         private String fThreadName; 
@@ -103,6 +122,99 @@ public class DefaultDsfExecutor extends ScheduledThreadPoolExecutor
     protected String getName() { 
         return fName;
     }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        // The runnables in the queue of a scheduled executor are delayed tasks, the 
+        // negative delay of a task which is about to run is the time it was waiting 
+        // to be executed.
+        if (r instanceof Delayed) {
+            long latency = -((Delayed)r).getDelay(TimeUnit.NANOSECONDS);
+            if (latency > 0) {
+                fTotalQueueLatency += latency;
+                if (latency > fMaxQueueLatency) {
+                    fMaxQueueLatency = latency;
+                }
+            }
+        }
+        fExecutionStartTime = System.nanoTime();
+    }
+    
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        fTotalExecutionTime += System.nanoTime() - fExecutionStartTime;
+        fExecutedCount++;
+        super.afterExecute(r, t);
+    }
+    
+    /**
+     * Returns the number of runnables waiting in this executor's queue, 
+     * including the ones that are scheduled for later execution.
+     * @since 2.4
+     */
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
+
+    /**
+     * Returns the number of runnables executed since this executor was 
+     * created, or since the last call to {@link #resetStatistics()}.
+     * @since 2.4
+     */
+    public long getExecutedCount() {
+        return fExecutedCount;
+    }
+
+    /**
+     * Returns the average time that the executed runnables waited in the 
+     * queue after they were due to run.
+     * @since 2.4
+     */
+    public long getAverageQueueLatency(TimeUnit unit) {
+        long count = fExecutedCount;
+        return count != 0 ? unit.convert(fTotalQueueLatency / count, TimeUnit.NANOSECONDS) : 0;
+    }
+
+    /**
+     * Returns the longest time that an executed runnable waited in the queue
+     * after it was due to run.
+     * @since 2.4
+     */
+    public long getMaxQueueLatency(TimeUnit unit) {
+        return unit.convert(fMaxQueueLatency, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the average time it took to execute a runnable.
+     * @since 2.4
+     */
+    public long getAverageExecutionTime(TimeUnit unit) {
+        long count = fExecutedCount;
+        return count != 0 ? unit.convert(fTotalExecutionTime / count, TimeUnit.NANOSECONDS) : 0;
+    }
+
+    /**
+     * Clears the statistics about executed runnables.  The statistics are 
+     * cleared in the executor thread, so this method can be called in any 
+     * thread.
+     * @since 2.4
+     */
+    public void resetStatistics() {
+        if (isInExecutorThread()) {
+            fExecutedCount = 0;
+            fTotalQueueLatency = 0;
+            fMaxQueueLatency = 0;
+            fTotalExecutionTime = 0;
+        } else {
+            execute(new DsfRunnable() {
+                @Override
+                public void run() {
+                    resetStatistics();
+                }
+            });
+        }
+    }
     
     static void logException(Throwable t) {
         DsfPlugin plugin = DsfPlugin.getDefault();
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2013 agent and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     agent - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.tests.dsf.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.eclipse.cdt.dsf.concurrent.DsfRunnable;
+import org.eclipse.cdt.tests.dsf.TestDsfExecutor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the statistics kept by the DSF executor.
+ */
+public class DsfExecutorStatisticsTests {
+    TestDsfExecutor fExecutor;
+
+    @Before
+    public void startServices() throws ExecutionException, InterruptedException {
+        fExecutor = new TestDsfExecutor();
+    }
+
+    @After
+    public void shutdownServices() throws ExecutionException, InterruptedException {
+        fExecutor.submit(new DsfRunnable() { public void run() {
+            fExecutor.shutdown();
+        }}).get();
+        if (fExecutor.exceptionsCaught()) {
+            Throwable[] exceptions = fExecutor.getExceptions();
+            throw new ExecutionException(exceptions[0]);
+        }
+        fExecutor = null;
+    }
+
+    @Test
+    public void executorStatisticsTest() throws InterruptedException, ExecutionException {
+        // Block the executor, so that the following runnables have to wait in the queue.
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        fExecutor.execute(new DsfRunnable() { public void run() {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {}
+        }});
+        blocked.await();
+        for (int i = 0; i < 10; i++) {
+            fExecutor.execute(new DsfRunnable() { public void run() {}});
+        }
+        Assert.assertEquals(10, fExecutor.getQueueDepth());
+        release.countDown();
+        fExecutor.submit(new DsfRunnable() { public void run() {}}).get();
+
+        // The last runnable may not be accounted for yet when its future completes.
+        Assert.assertTrue(fExecutor.getExecutedCount() >= 11);
+        Assert.assertEquals(0, fExecutor.getQueueDepth());
+        Assert.assertTrue(fExecutor.getMaxQueueLatency(TimeUnit.NANOSECONDS) > 0);
+        Assert.assertTrue(fExecutor.getAverageQueueLatency(TimeUnit.NANOSECONDS) > 0);
+        Assert.assertTrue(fExecutor.getAverageExecutionTime(TimeUnit.NANOSECONDS) > 0);
+
+        // Read the statistics in the executor thread, right after they are reset.
+        long[] reset = fExecutor.submit(new Callable<long[]>() {
+            public long[] call() {
+                fExecutor.resetStatistics();
+                return new long[] {
+                    fExecutor.getExecutedCount(),
+                    fExecutor.getMaxQueueLatency(TimeUnit.NANOSECONDS),
+                    fExecutor.getAverageQueueLatency(TimeUnit.NANOSECONDS),
+                    fExecutor.getAverageExecutionTime(TimeUnit.NANOSECONDS) };
+            }
+        }).get();
+        for (long value : reset) {
+            Assert.assertEquals(0, value);
+        }
+    }
+}
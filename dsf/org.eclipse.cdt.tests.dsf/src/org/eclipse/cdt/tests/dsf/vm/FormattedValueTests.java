@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2011 Wind River Systems and others.
+ * Copyright (c) 2009, 2013 Wind River Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -271,6 +271,20 @@ abstract public class FormattedValueTests extends TestCase implements IViewerUpd
         
     }
 
+    public void testCacheStatistics() {
+        setInput(IFormattedValues.NATURAL_FORMAT);
+        setUpdatePolicy(ManualUpdatePolicy.MANUAL_UPDATE_POLICY_ID);
+        setFormatAndValidate(IFormattedValues.HEX_FORMAT, true, false, false);
+        Assert.assertTrue(fVMProvider.getCacheMissCount() > 0);
+        Assert.assertTrue(fVMProvider.getCacheSize() > 0);
+        
+        // Values for the natural format are still cached, so changing back 
+        // to it should only result in cache hits. 
+        long hits = fVMProvider.getCacheHitCount();
+        setFormatAndValidate(IFormattedValues.NATURAL_FORMAT, true, true, false);
+        Assert.assertTrue(fVMProvider.getCacheHitCount() > hits);
+    }
+
     private void postEventInManualUpdateMode() {
         // Generate an event which will cause all cache entries to be marked dirty.
         fViewerListener.reset();